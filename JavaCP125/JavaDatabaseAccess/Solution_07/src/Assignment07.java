@@ -43,24 +43,28 @@ public final class Assignment07 {
         final  DbServer db = new DbServer(DB_URL,
                                           DB_ACCOUNT, DB_PASSWORD);
 
-        // print out the consultants
-        System.out.println("The consultants of SCG");
-        for (final Consultant consultant : db.getConsultants()) {
-            System.out.println(consultant.getName());
-        }
+        try {
+            // print out the consultants
+            System.out.println("The consultants of SCG");
+            for (final Consultant consultant : db.getConsultants()) {
+                System.out.println(consultant.getName());
+            }
 
-        System.out.println();
-        System.out.println();
+            System.out.println();
+            System.out.println();
 
-        // generate the march 2006 invoice for each client
-        for (final ClientAccount client : db.getClients()) {
-            System.out.println(client.getName());
+            // generate the march 2006 invoice for each client
+            for (final ClientAccount client : db.getClients()) {
+                System.out.println(client.getName());
 
-            final Invoice invoice = db.getInvoice(client, INVOICE_MONTH, INVOICE_YEAR);
+                final Invoice invoice = db.getInvoice(client, INVOICE_MONTH, INVOICE_YEAR);
 
-            System.out.println();
-            System.out.println(invoice.toString());
-            System.out.println();
+                System.out.println();
+                System.out.println(invoice.toString());
+                System.out.println();
+            }
+        } finally {
+            db.close();
         }
     }
 }
@@ -12,8 +12,9 @@ import com.scg.persistent.DbServer;
  * @author Russ Moul
  */
 public final class InitDb {
-    /** The database URL. */
-    private static final String DB_URL = "jdbc:mysql://localhost/scgDB";
+    /** The database URL, allowing batched inserts to be sent as multi-row inserts. */
+    private static final String DB_URL =
+        "jdbc:mysql://localhost/scgDB?rewriteBatchedStatements=true";
 
     /** The database account name. */
     private static final String DB_ACCOUNT = "student";
@@ -43,16 +44,12 @@ public final class InitDb {
         final  DbServer db = new DbServer(DB_URL,
                                           DB_ACCOUNT, DB_PASSWORD);
 
-        for (final ClientAccount client : accounts) {
-            db.addClient(client);
-        }
-
-        for (final Consultant consultant : consultants) {
-            db.addConsultant(consultant);
-        }
-
-        for (final TimeCard timeCard : timeCards) {
-            db.addTimeCard(timeCard);
+        try {
+            db.addClients(accounts);
+            db.addConsultants(consultants);
+            db.addTimeCards(timeCards);
+        } finally {
+            db.close();
         }
     }
 }
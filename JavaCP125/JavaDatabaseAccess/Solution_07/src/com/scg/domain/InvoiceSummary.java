@@ -0,0 +1,131 @@
+package com.scg.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+import com.scg.util.DateRange;
+
+/**
+ * A summary of a client's invoice for a month, the billable hours and
+ * charges totalled by consultant and skill rather than itemized by day.
+ *
+ * @author Russ Moul
+ */
+public final class InvoiceSummary {
+    /** Format string for the summary header. */
+    private static final String HEADER_FORMAT = "Invoice Summary for: %s, %2$tB %2$tY%n";
+
+    /** Format string for the summary total. */
+    private static final String TOTAL_FORMAT = "%nTotal: %48d  %,10.2f%n";
+
+    /** Name of the client. */
+    private final String clientName;
+
+    /** The range of dates this summary applies to. */
+    private final DateRange dateRange;
+
+    /** Container for the summary items. */
+    private final List<InvoiceSummaryItem> items = new ArrayList<InvoiceSummaryItem>();
+
+    /** Total hours for this summary. */
+    private int totalHours;
+
+    /** Total charges for this summary. */
+    private int totalCharges;
+
+    /**
+     * Construct an InvoiceSummary.
+     *
+     * @param clientName Name of the client.
+     * @param month Month summarized, the 0-based month number.
+     * @param year Year summarized.
+     */
+    public InvoiceSummary(final String clientName, final int month, final int year) {
+        this.clientName = clientName;
+        this.dateRange = new DateRange(month, year);
+    }
+
+    /**
+     * Get the client name.
+     *
+     * @return Name of the client.
+     */
+    public String getClientName() {
+        return clientName;
+    }
+
+    /**
+     * Get the start date for this summary.
+     *
+     * @return Start date.
+     */
+    public Date getStartDate() {
+        return dateRange.getStartDate();
+    }
+
+    /**
+     * Get the end date for this summary.
+     *
+     * @return End date.
+     */
+    public Date getEndDate() {
+        return dateRange.getEndDate();
+    }
+
+    /**
+     * Add an item to this summary.
+     *
+     * @param item InvoiceSummaryItem to add.
+     */
+    public void addItem(final InvoiceSummaryItem item) {
+        items.add(item);
+        totalHours += item.getHours();
+        totalCharges += item.getCharges();
+    }
+
+    /**
+     * Get the items of this summary.
+     *
+     * @return unmodifiable list of the items.
+     */
+    public List<InvoiceSummaryItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Get the total hours for this summary.
+     *
+     * @return Total hours.
+     */
+    public int getTotalHours() {
+        return totalHours;
+    }
+
+    /**
+     * Get the total charges for this summary.
+     *
+     * @return Total charges.
+     */
+    public int getTotalCharges() {
+        return totalCharges;
+    }
+
+    /**
+     * Print the summary.
+     *
+     * @return Formatted summary.
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.US, HEADER_FORMAT, clientName, dateRange.getStartDate()));
+        for (final InvoiceSummaryItem item : items) {
+            sb.append(item).append(String.format("%n"));
+        }
+        sb.append(String.format(Locale.US, TOTAL_FORMAT, totalHours, (double)totalCharges));
+        return sb.toString();
+    }
+}
@@ -0,0 +1,89 @@
+package com.scg.domain;
+
+import java.util.Locale;
+
+/**
+ * Encapsulates the total billable hours and charges of a single consultant
+ * and skill, for inclusion in an invoice summary.
+ *
+ * @author Russ Moul
+ */
+public final class InvoiceSummaryItem {
+    /** Format string for summary item. */
+    private static final String ITEM_FORMAT = "%-28s %-20s %5d  %,10.2f";
+
+    /** The consultant delivering the hours. */
+    private final Consultant consultant;
+
+    /** The skill delivered. */
+    private final Skill skill;
+
+    /** The total hours. */
+    private final int hours;
+
+    /** The total charges. */
+    private final int charges;
+
+    /**
+     * Construct an InvoiceSummaryItem.
+     *
+     * @param consultant Consultant delivering the hours.
+     * @param skill Skill delivered.
+     * @param hours Total hours.
+     * @param charges Total charges.
+     */
+    public InvoiceSummaryItem(final Consultant consultant, final Skill skill,
+                              final int hours, final int charges) {
+        this.consultant = consultant;
+        this.skill = skill;
+        this.hours = hours;
+        this.charges = charges;
+    }
+
+    /**
+     * Get the consultant for this item.
+     *
+     * @return The consultant.
+     */
+    public Consultant getConsultant() {
+        return consultant;
+    }
+
+    /**
+     * Get the skill for this item.
+     *
+     * @return The skill.
+     */
+    public Skill getSkill() {
+        return skill;
+    }
+
+    /**
+     * Get the total hours for this item.
+     *
+     * @return The hours.
+     */
+    public int getHours() {
+        return hours;
+    }
+
+    /**
+     * Get the total charges for this item.
+     *
+     * @return The charges.
+     */
+    public int getCharges() {
+        return charges;
+    }
+
+    /**
+     * Print the consultant, skill, hours and charges for this item.
+     *
+     * @return Formatted string.
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, ITEM_FORMAT, consultant.getName(),
+                             skill.getName(), hours, (double)charges);
+    }
+}
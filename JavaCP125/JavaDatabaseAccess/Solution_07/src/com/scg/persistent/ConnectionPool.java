@@ -0,0 +1,482 @@
+package com.scg.persistent;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded pool of database connections.  At most maxSize connections are
+ * open at once, a request for a connection when all of them are in use waits
+ * up to maxWaitMillis for one to be returned.  Idle connections are reused
+ * most recently used first, those idle for longer than maxIdleMillis are
+ * closed.  A connection idle for longer than the validation interval is
+ * validated before it's reused, and connections which fail validation are
+ * discarded.  The pool records the number of connections requested and the
+ * time spent waiting for them.
+ *
+ * @author Russ Moul
+ */
+public final class ConnectionPool {
+    /** The default maximum number of open connections. */
+    public static final int DEFAULT_MAX_SIZE = 8;
+
+    /** The default maximum time to wait for a connection, in milliseconds. */
+    public static final long DEFAULT_MAX_WAIT_MILLIS = 30000L;
+
+    /** The default maximum time a connection may be idle, in milliseconds. */
+    public static final long DEFAULT_MAX_IDLE_MILLIS = 300000L;
+
+    /** The default maximum number of statements cached per connection. */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+    /** Idle time after which a connection is validated before reuse, in milliseconds. */
+    private static final long VALIDATION_INTERVAL_MILLIS = 5000L;
+
+    /** Time allowed for validating a connection, in seconds. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
+    /** This class' logger. */
+    private static final Logger log = Logger.getLogger(ConnectionPool.class.getName());
+
+    /** The database URL. */
+    private final String dbUrl;
+
+    /** Username for accessing the database. */
+    private final String username;
+
+    /** Password for the username. */
+    private final String password;
+
+    /** The maximum number of open connections. */
+    private final int maxSize;
+
+    /** The maximum time to wait for a connection, in milliseconds. */
+    private final long maxWaitMillis;
+
+    /** The maximum time a connection may be idle, in milliseconds. */
+    private final long maxIdleMillis;
+
+    /** The maximum number of statements cached per connection. */
+    private final int statementCacheSize;
+
+    /** The idle connections, most recently used first. */
+    private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+
+    /** The number of open connections, idle, in use or being opened. */
+    private int openCount;
+
+    /** Whether the pool has been closed. */
+    private boolean closed;
+
+    /** The number of connections handed out. */
+    private long acquireCount;
+
+    /** The number of requests which had to wait for a connection. */
+    private long waitCount;
+
+    /** Total time spent waiting for connections, in nanoseconds. */
+    private long totalWaitNanos;
+
+    /** Longest time spent waiting for a connection, in nanoseconds. */
+    private long longestWaitNanos;
+
+    /** The number of connections opened. */
+    private long createdCount;
+
+    /** The number of idle connections closed for being idle too long. */
+    private long evictedCount;
+
+    /** The number of connections discarded after failing validation. */
+    private long invalidatedCount;
+
+    /**
+     * Construct a ConnectionPool with the default limits.
+     *
+     * @param dbUrl the database URL
+     * @param username the database username
+     * @param password the database password
+     */
+    public ConnectionPool(final String dbUrl,
+                          final String username, final String password) {
+        this(dbUrl, username, password, DEFAULT_MAX_SIZE, DEFAULT_MAX_WAIT_MILLIS,
+             DEFAULT_MAX_IDLE_MILLIS, DEFAULT_STATEMENT_CACHE_SIZE);
+    }
+
+    /**
+     * Construct a ConnectionPool.
+     *
+     * @param dbUrl the database URL
+     * @param username the database username
+     * @param password the database password
+     * @param maxSize the maximum number of open connections
+     * @param maxWaitMillis the maximum time to wait for a connection, in
+     *                      milliseconds
+     * @param maxIdleMillis the maximum time a connection may be idle before
+     *                      it's closed, in milliseconds
+     * @param statementCacheSize the maximum number of statements cached per
+     *                           idle connection, 0 to close the statements
+     *                           when the connection is released
+     */
+    public ConnectionPool(final String dbUrl,
+                          final String username, final String password,
+                          final int maxSize, final long maxWaitMillis,
+                          final long maxIdleMillis, final int statementCacheSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Invalid maximum pool size: " + maxSize);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+        }
+        this.dbUrl = dbUrl;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.maxWaitMillis = maxWaitMillis;
+        this.maxIdleMillis = maxIdleMillis;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Obtain a connection from the pool, opening a new connection if none
+     * are idle and the pool isn't full, otherwise waiting for a connection
+     * to be released.  Every connection obtained must be released.
+     *
+     * @return the connection
+     *
+     * @throws SQLException if the pool is closed, no connection becomes
+     *         available in time or a connection can't be opened
+     */
+    PooledConnection acquire() throws SQLException {
+        final long start = System.nanoTime();
+        boolean waited = false;
+        while (true) {
+            closeAll(evictExpired());
+            PooledConnection conn = null;
+            synchronized (this) {
+                while (!closed && idle.isEmpty() && openCount >= maxSize) {
+                    final long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis)
+                                         - (System.nanoTime() - start);
+                    if (remaining <= 0) {
+                        throw new SQLException("Timed out waiting for a database connection.");
+                    }
+                    waited = true;
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+                    } catch (final InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted waiting for a database connection.");
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is closed.");
+                }
+                if (idle.isEmpty()) {
+                    openCount++;
+                } else {
+                    conn = idle.removeFirst();
+                }
+            }
+
+            if (conn == null) {
+                conn = open();
+            } else if (!validate(conn)) {
+                discard(conn);
+                synchronized (this) {
+                    invalidatedCount++;
+                }
+                continue;
+            }
+            recordAcquire(System.nanoTime() - start, waited);
+            return conn;
+        }
+    }
+
+    /**
+     * Open a new connection, the open count having been incremented for it.
+     *
+     * @return the connection
+     *
+     * @throws SQLException if the connection can't be opened
+     */
+    private PooledConnection open() throws SQLException {
+        final Connection conn;
+        try {
+            conn = DriverManager.getConnection(dbUrl, username, password);
+        } catch (final SQLException ex) {
+            synchronized (this) {
+                openCount--;
+                notifyAll();
+            }
+            throw ex;
+        }
+        synchronized (this) {
+            createdCount++;
+        }
+        return new PooledConnection(conn, statementCacheSize);
+    }
+
+    /**
+     * Validate an idle connection, if it has been idle for longer than the
+     * validation interval.
+     *
+     * @param conn the connection to validate
+     *
+     * @return true if the connection is usable
+     */
+    private boolean validate(final PooledConnection conn) {
+        if (System.currentTimeMillis() - conn.getLastUsed() < VALIDATION_INTERVAL_MILLIS) {
+            return true;
+        }
+        try {
+            return conn.getConnection().isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (final SQLException ex) {
+            log.log(Level.FINE, "Connection validation failed.", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Record the successful acquisition of a connection.
+     *
+     * @param waitNanos time taken to obtain the connection, in nanoseconds
+     * @param waited whether the request waited for a connection to be released
+     */
+    private synchronized void recordAcquire(final long waitNanos, final boolean waited) {
+        acquireCount++;
+        if (waited) {
+            waitCount++;
+        }
+        totalWaitNanos += waitNanos;
+        longestWaitNanos = Math.max(longestWaitNanos, waitNanos);
+    }
+
+    /**
+     * Return a connection to the pool.  Any transaction left open on the
+     * connection is rolled back and auto-commit restored, a connection which
+     * is closed or can't be reset is discarded.
+     *
+     * @param conn the connection to release
+     */
+    void release(final PooledConnection conn) {
+        boolean reusable;
+        try {
+            final Connection c = conn.getConnection();
+            reusable = !c.isClosed();
+            if (reusable && !c.getAutoCommit()) {
+                c.rollback();
+                c.setAutoCommit(true);
+            }
+        } catch (final SQLException ex) {
+            log.log(Level.WARNING, "Unable to reset released connection, discarding it.", ex);
+            reusable = false;
+        }
+
+        if (reusable) {
+            conn.evictStatements();
+        }
+
+        final boolean pooled;
+        final List<PooledConnection> expired;
+        synchronized (this) {
+            pooled = reusable && !closed;
+            if (pooled) {
+                conn.setLastUsed(System.currentTimeMillis());
+                idle.addFirst(conn);
+                notifyAll();
+                expired = removeExpired(conn.getLastUsed());
+            } else {
+                expired = new ArrayList<PooledConnection>();
+            }
+        }
+        if (!pooled) {
+            discard(conn);
+        }
+        closeAll(expired);
+    }
+
+    /**
+     * Remove the idle connections which have been idle for longer than
+     * maxIdleMillis.
+     *
+     * @return the connections removed, to be closed by the caller
+     */
+    private synchronized List<PooledConnection> evictExpired() {
+        return removeExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Remove the idle connections which have been idle for longer than
+     * maxIdleMillis.  The least recently used connections are at the end of
+     * the idle list.  Must be called holding this pool's lock.
+     *
+     * @param now the current time, in milliseconds
+     *
+     * @return the connections removed, to be closed once the lock is released
+     */
+    private List<PooledConnection> removeExpired(final long now) {
+        final List<PooledConnection> expired = new ArrayList<PooledConnection>();
+        while (!idle.isEmpty() && now - idle.getLast().getLastUsed() > maxIdleMillis) {
+            expired.add(idle.removeLast());
+        }
+        openCount -= expired.size();
+        evictedCount += expired.size();
+        if (!expired.isEmpty()) {
+            notifyAll();
+        }
+        return expired;
+    }
+
+    /**
+     * Close a connection removed from the pool and release its place.
+     *
+     * @param conn the connection to discard
+     */
+    private void discard(final PooledConnection conn) {
+        conn.close();
+        synchronized (this) {
+            openCount--;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Close connections already removed from the pool's count.
+     *
+     * @param conns the connections to close
+     */
+    private static void closeAll(final List<PooledConnection> conns) {
+        for (final PooledConnection conn : conns) {
+            conn.close();
+        }
+    }
+
+    /**
+     * Close the pool.  Idle connections are closed immediately, those in use
+     * are closed as they are released.
+     */
+    public void close() {
+        final List<PooledConnection> toClose;
+        synchronized (this) {
+            closed = true;
+            toClose = new ArrayList<PooledConnection>(idle);
+            idle.clear();
+            openCount -= toClose.size();
+            notifyAll();
+        }
+        closeAll(toClose);
+    }
+
+    /**
+     * Gets the maximum number of open connections.
+     *
+     * @return the maximum pool size.
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Gets the number of open connections, whether idle or in use.
+     *
+     * @return the number of open connections.
+     */
+    public synchronized int getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * Gets the number of idle connections.
+     *
+     * @return the number of idle connections.
+     */
+    public synchronized int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Gets the number of connections handed out by the pool.
+     *
+     * @return the number of connections acquired.
+     */
+    public synchronized long getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * Gets the number of requests which had to wait for a connection to be
+     * released.
+     *
+     * @return the number of requests which waited.
+     */
+    public synchronized long getWaitCount() {
+        return waitCount;
+    }
+
+    /**
+     * Gets the total time spent obtaining connections, including the time
+     * spent opening and validating them.
+     *
+     * @return the total wait time, in milliseconds.
+     */
+    public synchronized long getTotalWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalWaitNanos);
+    }
+
+    /**
+     * Gets the longest time spent obtaining a connection.
+     *
+     * @return the longest wait time, in milliseconds.
+     */
+    public synchronized long getLongestWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(longestWaitNanos);
+    }
+
+    /**
+     * Gets the number of connections opened by the pool.
+     *
+     * @return the number of connections opened.
+     */
+    public synchronized long getCreatedCount() {
+        return createdCount;
+    }
+
+    /**
+     * Gets the number of connections closed for being idle too long.
+     *
+     * @return the number of connections evicted.
+     */
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Gets the number of connections discarded after failing validation.
+     *
+     * @return the number of connections invalidated.
+     */
+    public synchronized long getInvalidatedCount() {
+        return invalidatedCount;
+    }
+
+    /**
+     * Print the pool's statistics.
+     *
+     * @return the formatted statistics.
+     */
+    @Override
+    public synchronized String toString() {
+        return String.format("ConnectionPool[open=%d, idle=%d, acquired=%d, waited=%d, "
+                             + "waitMillis=%d, longestWaitMillis=%d, created=%d, "
+                             + "evicted=%d, invalidated=%d]",
+                             openCount, idle.size(), acquireCount, waitCount,
+                             TimeUnit.NANOSECONDS.toMillis(totalWaitNanos),
+                             TimeUnit.NANOSECONDS.toMillis(longestWaitNanos),
+                             createdCount, evictedCount, invalidatedCount);
+    }
+}
@@ -1,13 +1,16 @@
 package com.scg.persistent;
 
+import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.Date;
-import java.sql.DriverManager;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -16,6 +19,8 @@ import com.scg.domain.Consultant;
 import com.scg.domain.ConsultantTime;
 import com.scg.domain.Invoice;
 import com.scg.domain.InvoiceLineItem;
+import com.scg.domain.InvoiceSummary;
+import com.scg.domain.InvoiceSummaryItem;
 import com.scg.domain.Skill;
 import com.scg.domain.TimeCard;
 import com.scg.util.Address;
@@ -25,7 +30,30 @@ import com.scg.util.StateCode;
 
 /**
  * Responsible for providing a programmatic interface to store and access objects
- * in the database.
+ * in the database.  Connections are obtained from a ConnectionPool, which
+ * caches the statements prepared on each connection, so the statements are
+ * prepared once per connection rather than once per operation.
+ * <p>
+ * Clients, consultants and time cards may be added in bulk, the rows being
+ * inserted using JDBC batches and committed a batch at a time.  With MySQL
+ * the connection property rewriteBatchedStatements=true allows the driver to
+ * send each batch as a single multi-row insert.
+ * <p>
+ * The ids of inserted rows are obtained from the generated keys returned by
+ * the insert, and the ids of consultants and clients are kept in an IdCache
+ * so each is looked up only once.
+ * <p>
+ * Clients, consultants and invoice line items may also be read through a
+ * RowCursor, which fetches the rows in groups of a given fetch size and maps
+ * them as they are read, allowing any number of rows to be processed in
+ * constant memory.  With MySQL the connection property useCursorFetch=true is
+ * required for the fetch size to be honored.
+ * <p>
+ * Invoice summaries are totalled by the database, the billable hours being
+ * grouped by consultant and skill, so only the totals are returned.  The
+ * summaries of every client for a month are obtained with a single query.
+ * Both itemized invoices and summaries price the hours at Skill.getRate(),
+ * the rate column of the skills table is not used, so the two always agree.
  *
  * @author Russ Moul
  */
@@ -65,17 +93,17 @@ public final class DbServer {
           +    "AND first_name = ? "
           +    "AND middle_name = ?";
 
-    /** SQL for obtaining the last identity value generated on a connection. */
-    private static final String LAST_IDENTITY_SQL =
-            "SELECT LAST_INSERT_ID()";
+    /** SQL for obtaining the client id of a client. */
+    private static final String CLIENT_ID_SELECT_SQL =
+            "SELECT DISTINCT id "
+          +   "FROM clients "
+          +  "WHERE name = ?";
 
     /** SQL for inserting a billable hours record. */
     private static final String BILLABLE_HOURS_INSERT_SQL =
             "INSERT INTO billable_hours (client_id, "
           + "timecard_id, date, skill, hours) "
-          + "VALUES ((SELECT DISTINCT id "
-          +               "FROM clients "
-          +              "WHERE name = ?), ? , ?, ?, ?)";
+          + "VALUES (?, ? , ?, ?, ?)";
 
     /** SQL for inserting a non billable hours record. */
     private static final String NON_BILLABLE_HOURS_INSERT_SQL =
@@ -97,20 +125,138 @@ public final class DbServer {
           + "   AND b.date >= ?"
           + "   AND b.date <= ?";
 
+    /** SQL for totalling a client's hours for a month by consultant and skill. */
+    private static final String INVOICE_SUMMARY_SELECT_SQL =
+            "SELECT c.last_name, c.first_name, c.middle_name, b.skill,"
+          + "       SUM(b.hours)"
+          + "  FROM billable_hours b, consultants c, skills s, timecards t"
+          + " WHERE b.client_id = (SELECT DISTINCT id"
+          +                       "  FROM clients"
+          +                       " WHERE name = ?)"
+          + "   AND b.skill = s.name"
+          + "   AND b.timecard_id = t.id"
+          + "   AND c.id = t.consultant_id"
+          + "   AND b.date >= ?"
+          + "   AND b.date <= ?"
+          + " GROUP BY c.last_name, c.first_name, c.middle_name, b.skill"
+          + " ORDER BY c.last_name, c.first_name, c.middle_name, b.skill";
+
+    /** SQL for totalling every client's hours for a month by consultant and skill. */
+    private static final String ALL_INVOICE_SUMMARIES_SELECT_SQL =
+            "SELECT cl.name, c.last_name, c.first_name, c.middle_name, b.skill,"
+          + "       SUM(b.hours)"
+          + "  FROM billable_hours b, clients cl, consultants c, skills s, timecards t"
+          + " WHERE b.client_id = cl.id"
+          + "   AND b.skill = s.name"
+          + "   AND b.timecard_id = t.id"
+          + "   AND c.id = t.consultant_id"
+          + "   AND b.date >= ?"
+          + "   AND b.date <= ?"
+          + " GROUP BY cl.name, c.last_name, c.first_name, c.middle_name, b.skill"
+          + " ORDER BY cl.name, c.last_name, c.first_name, c.middle_name, b.skill";
+
+
+    /** The default number of objects inserted and committed per batch. */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** The default number of rows fetched at a time by a cursor. */
+    public static final int DEFAULT_FETCH_SIZE = 500;
+
+    /** Maps a client row. */
+    private static final RowMapper<ClientAccount> CLIENT_MAPPER =
+        new RowMapper<ClientAccount>() {
+            @Override
+            public ClientAccount map(final ResultSet rs) throws SQLException {
+                final String name = rs.getString(1);
+                final String street = rs.getString(2);
+                final String city = rs.getString(3);
+                final StateCode state = StateCode.valueOf(rs.getString(4));
+                final String postalCode = rs.getString(5);
+                final String contactLastName = rs.getString(6);
+                final String contactFirstName = rs.getString(7);
+                final String contactMiddleName = rs.getString(8);
+                return new ClientAccount(name,
+                        new Name(contactLastName, contactFirstName, contactMiddleName),
+                        new Address(street, city, state, postalCode));
+            }
+        };
+
+    /** Maps a consultant row. */
+    private static final RowMapper<Consultant> CONSULTANT_MAPPER =
+        new RowMapper<Consultant>() {
+            @Override
+            public Consultant map(final ResultSet rs) throws SQLException {
+                final String lastName = rs.getString(1);
+                final String firstName = rs.getString(2);
+                final String middleName = rs.getString(3);
+                return new Consultant(new Name(lastName, firstName, middleName));
+            }
+        };
+
+    /** Maps an invoice item row. */
+    private static final RowMapper<InvoiceLineItem> INVOICE_ITEM_MAPPER =
+        new RowMapper<InvoiceLineItem>() {
+            @Override
+            public InvoiceLineItem map(final ResultSet rs) throws SQLException {
+                final Date date = rs.getDate(1);
+                final String cLastName = rs.getString(2);
+                final String cFirstName = rs.getString(3);
+                final String cMiddleName = rs.getString(4);
+                final String skill = rs.getString(5);
+                final int hours = rs.getInt(7);
+
+                final Consultant consultant = new Consultant(
+                                              new Name(cLastName, cFirstName,
+                                                       cMiddleName));
+                final Skill sk = Skill.valueOf(skill);
+
+                return new InvoiceLineItem(date, consultant, sk, hours);
+            }
+        };
+
+    /** Sets the client insert parameters. */
+    private static final ParameterSetter<ClientAccount> CLIENT_SETTER =
+        new ParameterSetter<ClientAccount>() {
+            @Override
+            public void setParameters(final PreparedStatement ps, final ClientAccount client)
+                throws SQLException {
+                ps.setString(1, client.getName());
+                final Address address = client.getAddress();
+                ps.setString(2, address.getStreetNumber());
+                ps.setString(3, address.getCity());
+                ps.setString(4, address.getState().toString());
+                ps.setString(5, address.getPostalCode());
+                final Name contact = client.getContact();
+                ps.setString(6, contact.getLastName());
+                ps.setString(7, contact.getFirstName());
+                ps.setString(8, contact.getMiddleName());
+            }
+        };
+
+    /** Sets the consultant insert parameters. */
+    private static final ParameterSetter<Consultant> CONSULTANT_SETTER =
+        new ParameterSetter<Consultant>() {
+            @Override
+            public void setParameters(final PreparedStatement ps, final Consultant consultant)
+                throws SQLException {
+                final Name name = consultant.getName();
+                ps.setString(1, name.getLastName());
+                ps.setString(2, name.getFirstName());
+                ps.setString(3, name.getMiddleName());
+            }
+        };
 
     /** This class' logger. */
     private static final Logger log = Logger.getLogger(DbServer.class.getName());
-    /** The database URL. */
-    private final String dbUrl;
 
-    /** Username for accessing the database. */
-    private final String username;
+    /** The pool connections are obtained from. */
+    private final ConnectionPool pool;
 
-    /** Password for the username. */
-    private final String password;
+    /** The cached consultant and client ids. */
+    private final IdCache idCache = new IdCache();
 
     /**
-     * Constructor.
+     * Constructor, creates a connection pool with the default limits.
      *
      * @param dbUrl the database URL
      * @param username the database username
@@ -119,9 +265,42 @@ public final class DbServer {
      */
     public DbServer(final String dbUrl,
                     final String username, final String password) {
-        this.dbUrl = dbUrl;
-        this.username = username;
-        this.password = password;
+        this(new ConnectionPool(dbUrl, username, password));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pool the pool to obtain connections from
+     */
+    public DbServer(final ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Gets the pool connections are obtained from.
+     *
+     * @return the connection pool.
+     */
+    public ConnectionPool getConnectionPool() {
+        return pool;
+    }
+
+    /**
+     * Gets the cache of consultant and client ids.  Entries must be
+     * invalidated if the rows they identify are changed by another process.
+     *
+     * @return the id cache.
+     */
+    public IdCache getIdCache() {
+        return idCache;
+    }
+
+    /**
+     * Close the connection pool.
+     */
+    public void close() {
+        pool.close();
     }
 
     /**
@@ -132,33 +311,36 @@ public final class DbServer {
      * @throws SQLException if any database operations fail
      */
     public void addClient(final ClientAccount client) throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
+        final PooledConnection conn = pool.acquire();
         try {
-            conn = DriverManager.getConnection(dbUrl, username, password);
-            ps = conn.prepareStatement(CLIENT_INSERT_SQL);
-            ps.setString(1, client.getName());
-            final Address address = client.getAddress();
-            ps.setString(2, address.getStreetNumber());
-            ps.setString(3, address.getCity());
-            ps.setString(4, address.getState().toString());
-            ps.setString(5, address.getPostalCode());
-            final Name contact = client.getContact();
-            ps.setString(6, contact.getLastName());
-            ps.setString(7, contact.getFirstName());
-            ps.setString(8, contact.getMiddleName());
+            final PreparedStatement ps =
+                conn.prepareStatement(CLIENT_INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            CLIENT_SETTER.setParameters(ps, client);
 
             ps.executeUpdate();
-        } finally {
-            if (ps != null) {
-                ps.close();
-            }
-            if (conn != null) {
-                conn.close();
+            final Integer id = generatedKey(ps);
+            if (id != null) {
+                idCache.putClientId(client.getName(), id);
             }
+        } finally {
+            pool.release(conn);
         }
     }
 
+    /**
+     * Add clients to the database, in batches of DEFAULT_BATCH_SIZE.
+     *
+     * @param clients the clients to add
+     *
+     * @return the number of clients added
+     *
+     * @throws SQLException if any database operations fail, the batches
+     *         already committed remain in the database
+     */
+    public int addClients(final Iterable<ClientAccount> clients) throws SQLException {
+        return addAll(clients.iterator(), DEFAULT_BATCH_SIZE, CLIENT_INSERT_SQL, CLIENT_SETTER);
+    }
+
     /**
      * Get all of the clients in the database.
      *
@@ -167,41 +349,21 @@ public final class DbServer {
      * @throws SQLException if any datbase operations fail
      */
     public List<ClientAccount> getClients() throws SQLException {
-        final List<ClientAccount> clients = new ArrayList<ClientAccount>();
-        Connection conn = null;
-        Statement stmnt = null;
-        ResultSet rs = null;
-        try {
-            conn = DriverManager.getConnection(dbUrl, username, password);
-            stmnt = conn.createStatement();
-            rs = stmnt.executeQuery(CLIENT_ALL_SELECT_SQL);
-            while (rs.next()) {
-                final String name = rs.getString(1);
-                final String street = rs.getString(2);
-                final String city = rs.getString(3);
-                final StateCode state = StateCode.valueOf(rs.getString(4));
-                final String postalCode = rs.getString(5);
-                final String contactLastName = rs.getString(6);
-                final String contactFirstName = rs.getString(7);
-                final String contactMiddleName = rs.getString(8);
-                final ClientAccount client =
-                    new ClientAccount(name,
-                        new Name(contactLastName, contactFirstName, contactMiddleName),
-                        new Address(street, city, state, postalCode));
-                clients.add(client);
-            }
-            return clients;
-        } finally {
-            if (stmnt != null) {
-                stmnt.close();
-            }
-            if (rs != null) {
-                rs.close();
-            }
-            if (conn != null) {
-                conn.close();
-            }
-        }
+        return readAll(getClientCursor(DEFAULT_FETCH_SIZE));
+    }
+
+    /**
+     * Get a cursor over all of the clients in the database.  The cursor must
+     * be closed if it isn't read to the end.
+     *
+     * @param fetchSize the number of rows fetched at a time
+     *
+     * @return a cursor over the clients
+     *
+     * @throws SQLException if any datbase operations fail
+     */
+    public RowCursor<ClientAccount> getClientCursor(final int fetchSize) throws SQLException {
+        return openCursor(CLIENT_ALL_SELECT_SQL, fetchSize, CLIENT_MAPPER);
     }
 
     /**
@@ -213,25 +375,79 @@ public final class DbServer {
      */
     public void addConsultant(final Consultant consultant)
         throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
+        final PooledConnection conn = pool.acquire();
         try {
-            conn = DriverManager.getConnection(dbUrl, username, password);
-
-            ps = conn.prepareStatement(CONSULTANT_INSERT_SQL);
-            final Name name = consultant.getName();
-            ps.setString(1, name.getLastName());
-            ps.setString(2, name.getFirstName());
-            ps.setString(3, name.getMiddleName());
+            final PreparedStatement ps =
+                conn.prepareStatement(CONSULTANT_INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+            CONSULTANT_SETTER.setParameters(ps, consultant);
 
             ps.executeUpdate();
+            final Integer id = generatedKey(ps);
+            if (id != null) {
+                idCache.putConsultantId(consultant.getName(), id);
+            }
         } finally {
-            if (ps != null) {
-                ps.close();
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * Add consultants to the database, in batches of DEFAULT_BATCH_SIZE.
+     *
+     * @param consultants the consultants to add
+     *
+     * @return the number of consultants added
+     *
+     * @throws SQLException if any database operations fail, the batches
+     *         already committed remain in the database
+     */
+    public int addConsultants(final Iterable<Consultant> consultants) throws SQLException {
+        return addAll(consultants.iterator(), DEFAULT_BATCH_SIZE,
+                      CONSULTANT_INSERT_SQL, CONSULTANT_SETTER);
+    }
+
+    /**
+     * Insert objects using a JDBC batch, committing each batch.
+     *
+     * @param <T> the type of object inserted
+     * @param values the objects to insert
+     * @param batchSize the number of objects inserted and committed per batch
+     * @param sql the insert SQL
+     * @param setter sets the insert parameters from an object
+     *
+     * @return the number of objects inserted
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private <T> int addAll(final Iterator<? extends T> values, final int batchSize,
+                           final String sql, final ParameterSetter<? super T> setter)
+        throws SQLException {
+        checkBatchSize(batchSize);
+        final PooledConnection conn = pool.acquire();
+        try {
+            final Connection c = conn.getConnection();
+            c.setAutoCommit(false);
+            final PreparedStatement ps = conn.prepareStatement(sql);
+            int added = 0;
+            int pending = 0;
+            while (values.hasNext()) {
+                setter.setParameters(ps, values.next());
+                ps.addBatch();
+                added++;
+                if (++pending == batchSize) {
+                    ps.executeBatch();
+                    c.commit();
+                    pending = 0;
+                }
             }
-            if (conn != null) {
-                conn.close();
+            if (pending > 0) {
+                ps.executeBatch();
+                c.commit();
             }
+            c.setAutoCommit(true);
+            return added;
+        } finally {
+            pool.release(conn);
         }
     }
 
@@ -243,40 +459,86 @@ public final class DbServer {
      * @throws SQLException if any datbase operations fail
      */
     public List<Consultant> getConsultants() throws SQLException {
-        final List<Consultant> consultants = new ArrayList<Consultant>();
-        Connection conn = null;
-        Statement stmnt = null;
-        ResultSet rs = null;
+        return readAll(getConsultantCursor(DEFAULT_FETCH_SIZE));
+    }
 
-        try {
-            conn = DriverManager.getConnection(dbUrl, username, password);
+    /**
+     * Get a cursor over all of the consultants in the database.  The cursor
+     * must be closed if it isn't read to the end.
+     *
+     * @param fetchSize the number of rows fetched at a time
+     *
+     * @return a cursor over the consultants
+     *
+     * @throws SQLException if any datbase operations fail
+     */
+    public RowCursor<Consultant> getConsultantCursor(final int fetchSize) throws SQLException {
+        return openCursor(CONSULTANT_ALL_SELECT_SQL, fetchSize, CONSULTANT_MAPPER);
+    }
 
-            stmnt = conn.createStatement();
-            rs = stmnt.executeQuery(CONSULTANT_ALL_SELECT_SQL);
-            while (rs.next()) {
-                final String lastName = rs.getString(1);
-                final String firstName = rs.getString(2);
-                final String middleName = rs.getString(3);
-                final Consultant consultant = new Consultant(
-                                              new Name(lastName, firstName, middleName));
-                consultants.add(consultant);
+    /**
+     * Execute a query and open a cursor over its results.  The connection is
+     * held by the cursor until it's closed.
+     *
+     * @param <T> the type of object the rows are mapped to
+     * @param sql the query
+     * @param fetchSize the number of rows fetched at a time
+     * @param mapper maps each row to an object
+     * @param params the query parameters
+     *
+     * @return the cursor
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private <T> RowCursor<T> openCursor(final String sql, final int fetchSize,
+                                        final RowMapper<T> mapper, final Object... params)
+        throws SQLException {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("Invalid fetch size: " + fetchSize);
+        }
+        final PooledConnection conn = pool.acquire();
+        RowCursor<T> cursor = null;
+        try {
+            final PreparedStatement ps = conn.prepareStatement(sql);
+            ps.setFetchSize(fetchSize);
+            for (int i = 0; i < params.length; i++) {
+                ps.setObject(i + 1, params[i]);
             }
-            return consultants;
+            cursor = new RowCursor<T>(pool, conn, ps.executeQuery(), mapper);
+            return cursor;
         } finally {
-            if (stmnt != null) {
-                stmnt.close();
+            if (cursor == null) {
+                pool.release(conn);
             }
-            if (rs != null) {
-                rs.close();
-            }
-            if (conn != null) {
-                conn.close();
+        }
+    }
+
+    /**
+     * Read the remaining rows of a cursor, and close it.
+     *
+     * @param <T> the type of object the rows are mapped to
+     * @param cursor the cursor
+     *
+     * @return the objects mapped from the rows
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private static <T> List<T> readAll(final RowCursor<T> cursor) throws SQLException {
+        final List<T> rows = new ArrayList<T>();
+        try {
+            T row;
+            while ((row = cursor.nextRow()) != null) {
+                rows.add(row);
             }
+            return rows;
+        } finally {
+            cursor.close();
         }
     }
 
     /**
-     * Add a timecard to the database.
+     * Add a timecard to the database.  The time card and its hours are
+     * committed together.
      *
      * @param timeCard the timecard to add
      *
@@ -284,92 +546,265 @@ public final class DbServer {
      */
     public void addTimeCard(final TimeCard timeCard)
         throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
-        Statement stmnt = null;
-        PreparedStatement billableStmnt = null;
-        PreparedStatement nonbillableStmnt = null;
+        addTimeCards(Collections.singletonList(timeCard).iterator(), 1);
+    }
 
+    /**
+     * Add time cards to the database, in batches of DEFAULT_BATCH_SIZE time
+     * cards.
+     *
+     * @param timeCards the time cards to add
+     *
+     * @return the number of time cards added
+     *
+     * @throws SQLException if any database operations fail, the batches
+     *         already committed remain in the database
+     */
+    public int addTimeCards(final Iterable<TimeCard> timeCards) throws SQLException {
+        return addTimeCards(timeCards.iterator(), DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Add time cards to the database.  The time cards are read from the
+     * iterator as they are inserted so they may be streamed from their
+     * source.  Each time card is inserted individually, its id being returned
+     * by the insert, while the hours records of batchSize time cards are
+     * inserted as a JDBC batch and committed along with the time cards in a
+     * single transaction.  Time cards for unknown consultants are logged and
+     * skipped.
+     *
+     * @param timeCards the time cards to add
+     * @param batchSize the number of time cards committed per batch
+     *
+     * @return the number of time cards added
+     *
+     * @throws SQLException if any database operations fail, the batches
+     *         already committed remain in the database
+     */
+    public int addTimeCards(final Iterator<TimeCard> timeCards, final int batchSize)
+        throws SQLException {
+        checkBatchSize(batchSize);
+        final PooledConnection conn = pool.acquire();
         try {
-            conn = DriverManager.getConnection(dbUrl, username, password);
+            final Connection c = conn.getConnection();
+            c.setAutoCommit(false);
+            final PreparedStatement billableStmnt =
+                conn.prepareStatement(BILLABLE_HOURS_INSERT_SQL);
+            final PreparedStatement nonbillableStmnt =
+                conn.prepareStatement(NON_BILLABLE_HOURS_INSERT_SQL);
+            int added = 0;
+            int pending = 0;
+            while (timeCards.hasNext()) {
+                final TimeCard timeCard = timeCards.next();
+                final Name name = timeCard.getConsultant().getName();
+                final Integer consultantId = getConsultantId(conn, name);
+                if (consultantId == null) {
+                    log.severe("Unknown consultant: " + name);
+                    continue;
+                }
 
-            // get the consultant id
-            ps = conn.prepareStatement(CONSULTANT_ID_SELECT_SQL);
-            final Name name = timeCard.getConsultant().getName();
-            ps.setString(1, name.getLastName());
-            ps.setString(2, name.getFirstName());
-            ps.setString(3, name.getMiddleName());
+                final Integer timeCardId = insertTimeCard(conn, consultantId, timeCard);
+                if (timeCardId == null) {
+                    log.severe("Unable to locate inserted timecard.");
+                    continue;
+                }
 
-            rs = ps.executeQuery();
-            if (rs.next()) {
-                final int consultantId = rs.getInt(1);
-                rs.close();
-                ps.close();
-
-                // insert the time card record
-                ps = conn.prepareStatement(TIMECARD_INSERT_SQL);
-                ps.setInt(1, consultantId);
-                ps.setDate(2, new Date(timeCard.getWeekStartingDay().getTime()));
-
-                ps.executeUpdate();
-
-                // get the identity of the inserted row
-                stmnt = conn.createStatement();
-                rs = stmnt.executeQuery(LAST_IDENTITY_SQL);
-                if (rs.next()) {
-                    final int timeCardId = rs.getInt(1);
-
-                    final List<ConsultantTime> entries = timeCard.getConsultingHours();
-
-                    // prepare the statements
-                    billableStmnt = conn.prepareStatement(BILLABLE_HOURS_INSERT_SQL);
-                    nonbillableStmnt = conn.prepareStatement(NON_BILLABLE_HOURS_INSERT_SQL);
-                    // insert the hours records
-                    for (final ConsultantTime entry : entries) {
-                        ps = (entry.isBillable()) ? billableStmnt : nonbillableStmnt;
-                        int ndx = 1;
-                        ps.setString(ndx++, entry.isBillable() ? entry.getAccount().getName()
-                                                               : entry.getAccount().toString());
-                        ps.setInt(ndx++, timeCardId);
-                        ps.setDate(ndx++, new Date(entry.getDate().getTime()));
-                        if (entry.isBillable()) {
-                            ps.setString(ndx++, entry.getSkill().toString());
+                // batch the hours records
+                for (final ConsultantTime entry : timeCard.getConsultingHours()) {
+                    if (entry.isBillable()) {
+                        final String clientName = entry.getAccount().getName();
+                        final Integer clientId = getClientId(conn, clientName);
+                        if (clientId == null) {
+                            log.severe("Unknown client: " + clientName);
                         }
-                        ps.setInt(ndx++, entry.getHours());
-
-                        ps.executeUpdate();
+                        setHoursParameters(billableStmnt, clientId, timeCardId, entry);
+                        billableStmnt.addBatch();
+                    } else {
+                        setHoursParameters(nonbillableStmnt, null, timeCardId, entry);
+                        nonbillableStmnt.addBatch();
                     }
-                } else {
-                    log.severe("Unable to locate inserted timecard.");
                 }
-            } else {
-                log.severe("Unknown client.");
-            }
-        } finally {
-            if (ps != null) {
-                ps.close();
-            }
-            if (stmnt != null) {
-                stmnt.close();
+                added++;
+                if (++pending == batchSize) {
+                    billableStmnt.executeBatch();
+                    nonbillableStmnt.executeBatch();
+                    c.commit();
+                    pending = 0;
+                }
             }
-            if (billableStmnt != null) {
-                billableStmnt.close();
+            if (pending > 0) {
+                billableStmnt.executeBatch();
+                nonbillableStmnt.executeBatch();
+                c.commit();
             }
-            if (nonbillableStmnt != null) {
-                nonbillableStmnt.close();
+            c.setAutoCommit(true);
+            return added;
+        } finally {
+            pool.release(conn);
+        }
+    }
+
+    /**
+     * Obtain the id of a consultant, from the id cache if it's cached.
+     *
+     * @param conn the connection to use
+     * @param name the consultant's name
+     *
+     * @return the consultant id, or null if the consultant is unknown
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private Integer getConsultantId(final PooledConnection conn, final Name name)
+        throws SQLException {
+        Integer id = idCache.getConsultantId(name);
+        if (id == null) {
+            id = selectConsultantId(conn, name);
+            if (id != null) {
+                idCache.putConsultantId(name, id);
             }
-            if (rs != null) {
+        }
+        return id;
+    }
+
+    /**
+     * Obtain the id of a client, from the id cache if it's cached.
+     *
+     * @param conn the connection to use
+     * @param clientName the client's name
+     *
+     * @return the client id, or null if the client is unknown
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private Integer getClientId(final PooledConnection conn, final String clientName)
+        throws SQLException {
+        Integer id = idCache.getClientId(clientName);
+        if (id == null) {
+            final PreparedStatement ps = conn.prepareStatement(CLIENT_ID_SELECT_SQL);
+            ps.setString(1, clientName);
+
+            final ResultSet rs = ps.executeQuery();
+            try {
+                id = rs.next() ? Integer.valueOf(rs.getInt(1)) : null;
+            } finally {
                 rs.close();
             }
-            if (conn != null) {
-                conn.close();
+            if (id != null) {
+                idCache.putClientId(clientName, id);
             }
         }
+        return id;
+    }
+
+    /**
+     * Obtain the id of a consultant from the database.
+     *
+     * @param conn the connection to use
+     * @param name the consultant's name
+     *
+     * @return the consultant id, or null if the consultant is unknown
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private static Integer selectConsultantId(final PooledConnection conn, final Name name)
+        throws SQLException {
+        final PreparedStatement ps = conn.prepareStatement(CONSULTANT_ID_SELECT_SQL);
+        ps.setString(1, name.getLastName());
+        ps.setString(2, name.getFirstName());
+        ps.setString(3, name.getMiddleName());
+
+        final ResultSet rs = ps.executeQuery();
+        try {
+            return rs.next() ? Integer.valueOf(rs.getInt(1)) : null;
+        } finally {
+            rs.close();
+        }
     }
 
     /**
-     * Get clients monthly invoice.
+     * Insert a time card record.
+     *
+     * @param conn the connection to use
+     * @param consultantId the id of the time card's consultant
+     * @param timeCard the time card
+     *
+     * @return the id of the inserted time card, or null if it wasn't returned
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private static Integer insertTimeCard(final PooledConnection conn, final int consultantId,
+                                          final TimeCard timeCard) throws SQLException {
+        final PreparedStatement ps =
+            conn.prepareStatement(TIMECARD_INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+        ps.setInt(1, consultantId);
+        ps.setDate(2, new Date(timeCard.getWeekStartingDay().getTime()));
+
+        ps.executeUpdate();
+        return generatedKey(ps);
+    }
+
+    /**
+     * Gets the key generated by the last execution of an insert.
+     *
+     * @param ps the insert statement, prepared to return generated keys
+     *
+     * @return the generated key, or null if none was returned
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private static Integer generatedKey(final PreparedStatement ps) throws SQLException {
+        final ResultSet rs = ps.getGeneratedKeys();
+        try {
+            return rs.next() ? Integer.valueOf(rs.getInt(1)) : null;
+        } finally {
+            rs.close();
+        }
+    }
+
+    /**
+     * Set the parameters of a billable or non-billable hours insert.
+     *
+     * @param ps the insert statement for the entry's kind of hours
+     * @param clientId the id of the client billed, null if unknown or the
+     *                 hours are non-billable
+     * @param timeCardId the id of the entry's time card
+     * @param entry the hours
+     *
+     * @throws SQLException if any database operations fail
+     */
+    private static void setHoursParameters(final PreparedStatement ps, final Integer clientId,
+                                           final int timeCardId, final ConsultantTime entry)
+        throws SQLException {
+        int ndx = 1;
+        if (!entry.isBillable()) {
+            ps.setString(ndx++, entry.getAccount().toString());
+        } else if (clientId == null) {
+            ps.setNull(ndx++, Types.INTEGER);
+        } else {
+            ps.setInt(ndx++, clientId);
+        }
+        ps.setInt(ndx++, timeCardId);
+        ps.setDate(ndx++, new Date(entry.getDate().getTime()));
+        if (entry.isBillable()) {
+            ps.setString(ndx++, entry.getSkill().toString());
+        }
+        ps.setInt(ndx++, entry.getHours());
+    }
+
+    /**
+     * Check a batch size is valid.
+     *
+     * @param batchSize the batch size
+     */
+    private static void checkBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+    }
+
+    /**
+     * Get clients monthly invoice.  The line items are charged at the rate of
+     * their Skill.
      *
      * @param client the client to obtain the invoice line items for
      * @param month the month of the invoice
@@ -381,53 +816,171 @@ public final class DbServer {
      */
     public Invoice getInvoice(final ClientAccount client, final int month, final int year)
         throws SQLException {
-        Connection conn = null;
-        PreparedStatement ps = null;
-        ResultSet rs = null;
         final Invoice invoice = new Invoice(client, month, year);
-
+        final RowCursor<InvoiceLineItem> cursor =
+            getInvoiceLineItemCursor(client, month, year, DEFAULT_FETCH_SIZE);
         try {
-            conn = DriverManager.getConnection(dbUrl, username, password);
-            // determine the start and end of the month
-            final DateRange dr = new DateRange(month, year);
+            InvoiceLineItem item;
+            while ((item = cursor.nextRow()) != null) {
+                invoice.addLineItem(item);
+            }
+        } finally {
+            cursor.close();
+        }
+        return invoice;
+    }
 
-            // get the invoice line items
-            ps = conn.prepareStatement(INVOICE_ITEMS_SELECT_SQL);
+    /**
+     * Get a cursor over a client's invoice line items for a month.  The
+     * cursor must be closed if it isn't read to the end.
+     *
+     * @param client the client to obtain the invoice line items for
+     * @param month the month of the invoice
+     * @param year the year of the invoice
+     * @param fetchSize the number of rows fetched at a time
+     *
+     * @return a cursor over the invoice line items
+     *
+     * @throws SQLException if any database operations fail
+     */
+    public RowCursor<InvoiceLineItem> getInvoiceLineItemCursor(final ClientAccount client,
+                                                               final int month, final int year,
+                                                               final int fetchSize)
+        throws SQLException {
+        // determine the start and end of the month
+        final DateRange dr = new DateRange(month, year);
+        return openCursor(INVOICE_ITEMS_SELECT_SQL, fetchSize, INVOICE_ITEM_MAPPER,
+                          client.getName(),
+                          new Date(dr.getStartDate().getTime()),
+                          new Date(dr.getEndDate().getTime()));
+    }
+
+    /**
+     * Get a client's invoice summary for a month, the hours totalled by the
+     * database for each consultant and skill and charged at the rate of the
+     * Skill, as the line items of getInvoice are.
+     *
+     * @param client the client to summarize
+     * @param month the month of the invoice
+     * @param year the year of the invoice
+     *
+     * @return the client's invoice summary for the month
+     *
+     * @throws SQLException if any database operations fail
+     */
+    public InvoiceSummary getInvoiceSummary(final ClientAccount client,
+                                            final int month, final int year)
+        throws SQLException {
+        final InvoiceSummary summary = new InvoiceSummary(client.getName(), month, year);
+        final DateRange dr = new DateRange(month, year);
+        final PooledConnection conn = pool.acquire();
+        ResultSet rs = null;
+        try {
+            final PreparedStatement ps = conn.prepareStatement(INVOICE_SUMMARY_SELECT_SQL);
             ps.setString(1, client.getName());
             ps.setDate(2, new Date(dr.getStartDate().getTime()));
             ps.setDate(3, new Date(dr.getEndDate().getTime()));
 
             rs = ps.executeQuery();
             while (rs.next()) {
-                final Date date = rs.getDate(1);
-                final String cLastName = rs.getString(2);
-                final String cFirstName = rs.getString(3);
-                final String cMiddleName = rs.getString(4);
-                final String skill = rs.getString(5);
-                final int hours = rs.getInt(7);
+                summary.addItem(mapSummaryItem(rs, 1));
+            }
+        } finally {
+            if (rs != null) {
+                rs.close();
+            }
+            pool.release(conn);
+        }
+        return summary;
+    }
 
-                final Consultant consultant = new Consultant(
-                                              new Name(cLastName, cFirstName,
-                                                       cMiddleName));
-                final Skill sk = Skill.valueOf(skill);
+    /**
+     * Get the invoice summaries of every client for a month using a single
+     * query.  Clients without billable hours for the month have no summary.
+     *
+     * @param month the month of the invoices
+     * @param year the year of the invoices
+     *
+     * @return the clients' invoice summaries, in client name order
+     *
+     * @throws SQLException if any database operations fail
+     */
+    public List<InvoiceSummary> getInvoiceSummaries(final int month, final int year)
+        throws SQLException {
+        final List<InvoiceSummary> summaries = new ArrayList<InvoiceSummary>();
+        final DateRange dr = new DateRange(month, year);
+        final PooledConnection conn = pool.acquire();
+        ResultSet rs = null;
+        try {
+            final PreparedStatement ps = conn.prepareStatement(ALL_INVOICE_SUMMARIES_SELECT_SQL);
+            ps.setDate(1, new Date(dr.getStartDate().getTime()));
+            ps.setDate(2, new Date(dr.getEndDate().getTime()));
 
-                final InvoiceLineItem item = new InvoiceLineItem(date,
-                                                                 consultant,
-                                                                 sk, hours);
-                invoice.addLineItem(item);
+            rs = ps.executeQuery();
+            InvoiceSummary summary = null;
+            while (rs.next()) {
+                final String clientName = rs.getString(1);
+                if (summary == null || !summary.getClientName().equals(clientName)) {
+                    summary = new InvoiceSummary(clientName, month, year);
+                    summaries.add(summary);
+                }
+                summary.addItem(mapSummaryItem(rs, 2));
             }
         } finally {
-            if (ps != null) {
-                ps.close();
-            }
             if (rs != null) {
                 rs.close();
             }
+            pool.release(conn);
+        }
+        return summaries;
+    }
 
-            if (conn != null) {
-                conn.close();
-            }
+    /**
+     * Map the consultant, skill and total hours columns of a summary row, the
+     * charges being the hours at the rate of the skill.
+     *
+     * @param rs the result set, positioned at the row to map
+     * @param column the index of the first of the columns
+     *
+     * @return the summary item
+     *
+     * @throws SQLException if the row can't be read, or the total hours
+     *         aren't a whole number within the range of an int
+     */
+    private static InvoiceSummaryItem mapSummaryItem(final ResultSet rs, final int column)
+        throws SQLException {
+        int ndx = column;
+        final String lastName = rs.getString(ndx++);
+        final String firstName = rs.getString(ndx++);
+        final String middleName = rs.getString(ndx++);
+        final Skill skill = Skill.valueOf(rs.getString(ndx++));
+        // SUM of an integer column may be returned as a DECIMAL
+        final BigDecimal totalHours = rs.getBigDecimal(ndx++);
+        final int hours;
+        try {
+            hours = totalHours.intValueExact();
+        } catch (final ArithmeticException ex) {
+            throw new SQLException("Invalid total hours: " + totalHours);
         }
-        return invoice;
+        final int charges = hours * skill.getRate();
+        return new InvoiceSummaryItem(new Consultant(new Name(lastName, firstName, middleName)),
+                                      skill, hours, charges);
+    }
+
+    /**
+     * Sets the parameters of an insert statement from an object.
+     *
+     * @param <T> the type of object inserted
+     */
+    private interface ParameterSetter<T> {
+        /**
+         * Set the statement parameters.
+         *
+         * @param ps the statement
+         * @param value the object inserted
+         *
+         * @throws SQLException if a parameter can't be set
+         */
+        void setParameters(PreparedStatement ps, T value) throws SQLException;
     }
 }
@@ -0,0 +1,94 @@
+package com.scg.persistent;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scg.util.Name;
+
+/**
+ * An in-process cache of the surrogate ids of consultants, by name, and of
+ * clients, by client name.  Ids are cached as they are generated or looked up
+ * so they need only be obtained from the database once.  The cache is not
+ * aware of changes made to the database by other processes, entries for rows
+ * deleted or renamed elsewhere must be invalidated.
+ *
+ * @author Russ Moul
+ */
+public final class IdCache {
+    /** Consultant ids by consultant name. */
+    private final ConcurrentMap<Name, Integer> consultantIds =
+        new ConcurrentHashMap<Name, Integer>();
+
+    /** Client ids by client name. */
+    private final ConcurrentMap<String, Integer> clientIds =
+        new ConcurrentHashMap<String, Integer>();
+
+    /**
+     * Gets the cached id of a consultant.
+     *
+     * @param name the consultant's name
+     *
+     * @return the consultant id, or null if not cached
+     */
+    public Integer getConsultantId(final Name name) {
+        return consultantIds.get(name);
+    }
+
+    /**
+     * Cache the id of a consultant.  The name is copied, as Name is mutable.
+     *
+     * @param name the consultant's name
+     * @param id the consultant id
+     */
+    public void putConsultantId(final Name name, final int id) {
+        consultantIds.put(new Name(name.getLastName(), name.getFirstName(), name.getMiddleName()),
+                          Integer.valueOf(id));
+    }
+
+    /**
+     * Remove the cached id of a consultant.
+     *
+     * @param name the consultant's name
+     */
+    public void invalidateConsultant(final Name name) {
+        consultantIds.remove(name);
+    }
+
+    /**
+     * Gets the cached id of a client.
+     *
+     * @param clientName the client's name
+     *
+     * @return the client id, or null if not cached
+     */
+    public Integer getClientId(final String clientName) {
+        return clientIds.get(clientName);
+    }
+
+    /**
+     * Cache the id of a client.
+     *
+     * @param clientName the client's name
+     * @param id the client id
+     */
+    public void putClientId(final String clientName, final int id) {
+        clientIds.put(clientName, Integer.valueOf(id));
+    }
+
+    /**
+     * Remove the cached id of a client.
+     *
+     * @param clientName the client's name
+     */
+    public void invalidateClient(final String clientName) {
+        clientIds.remove(clientName);
+    }
+
+    /**
+     * Remove all of the cached ids.
+     */
+    public void invalidateAll() {
+        consultantIds.clear();
+        clientIds.clear();
+    }
+}
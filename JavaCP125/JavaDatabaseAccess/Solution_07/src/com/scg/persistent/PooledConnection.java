@@ -0,0 +1,176 @@
+package com.scg.persistent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A database connection managed by a ConnectionPool.  Each pooled connection
+ * caches the statements prepared on it, keyed by their SQL, so a statement is
+ * prepared once for the life of the connection rather than once per use.  The
+ * cache is bounded, but only when the connection is released to the pool: a
+ * statement may still be in use until then, so every statement prepared while
+ * the connection is in use is kept, and on release the least recently used
+ * are closed until the cache is within its bound.  Cached statements must not
+ * be closed by their users, they are closed when they leave the cache or the
+ * connection is closed.
+ *
+ * @author Russ Moul
+ */
+final class PooledConnection {
+    /** This class' logger. */
+    private static final Logger log = Logger.getLogger(PooledConnection.class.getName());
+
+    /** Initial capacity of the statement cache. */
+    private static final int INITIAL_CACHE_CAPACITY = 16;
+
+    /** Load factor of the statement cache. */
+    private static final float CACHE_LOAD_FACTOR = 0.75f;
+
+    /** The database connection. */
+    private final Connection connection;
+
+    /** The maximum number of cached statements. */
+    private final int statementCacheSize;
+
+    /** The cached statements by SQL, in least recently used order. */
+    private final Map<String, PreparedStatement> statements;
+
+    /** Time this connection was last returned to the pool, in milliseconds. */
+    private long lastUsed;
+
+    /**
+     * Construct a PooledConnection.
+     *
+     * @param connection the database connection
+     * @param statementCacheSize the maximum number of cached statements
+     */
+    PooledConnection(final Connection connection, final int statementCacheSize) {
+        this.connection = connection;
+        this.statementCacheSize = statementCacheSize;
+        this.statements = new LinkedHashMap<String, PreparedStatement>(
+                              INITIAL_CACHE_CAPACITY, CACHE_LOAD_FACTOR, true);
+        this.lastUsed = System.currentTimeMillis();
+    }
+
+    /**
+     * Gets the underlying database connection, for transaction control.  The
+     * connection must not be closed by the caller.
+     *
+     * @return the connection.
+     */
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * Gets a prepared statement for the SQL, preparing and caching it if it
+     * isn't already cached.  The statement's parameters are cleared.
+     *
+     * @param sql the SQL of the statement
+     *
+     * @return the prepared statement, must not be closed by the caller
+     *
+     * @throws SQLException if the statement can't be prepared
+     */
+    PreparedStatement prepareStatement(final String sql) throws SQLException {
+        return prepareStatement(sql, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * Gets a prepared statement for the SQL, which may return the keys it
+     * generates, preparing and caching it if it isn't already cached.  The
+     * statement's parameters are cleared.
+     *
+     * @param sql the SQL of the statement
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS if the
+     *        statement returns generated keys, otherwise
+     *        Statement.NO_GENERATED_KEYS
+     *
+     * @return the prepared statement, must not be closed by the caller
+     *
+     * @throws SQLException if the statement can't be prepared
+     */
+    PreparedStatement prepareStatement(final String sql, final int autoGeneratedKeys)
+        throws SQLException {
+        // statements returning keys are cached apart from those which don't
+        final String key = (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS)
+                         ? autoGeneratedKeys + ":" + sql : sql;
+        PreparedStatement ps = statements.get(key);
+        if (ps == null) {
+            ps = connection.prepareStatement(sql, autoGeneratedKeys);
+            statements.put(key, ps);
+        } else {
+            ps.clearParameters();
+        }
+        return ps;
+    }
+
+    /**
+     * Close the least recently used statements until the cache is within its
+     * bound.  Called when the connection is released, as until then any of
+     * the statements may be in use.
+     */
+    void evictStatements() {
+        while (statements.size() > statementCacheSize) {
+            final Map.Entry<String, PreparedStatement> eldest =
+                statements.entrySet().iterator().next();
+            statements.remove(eldest.getKey());
+            closeStatement(eldest.getValue());
+        }
+    }
+
+    /**
+     * Gets the time this connection was last returned to the pool.
+     *
+     * @return the time last used, in milliseconds.
+     */
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Sets the time this connection was last returned to the pool.
+     *
+     * @param lastUsed the time last used, in milliseconds
+     */
+    void setLastUsed(final long lastUsed) {
+        this.lastUsed = lastUsed;
+    }
+
+    /**
+     * Close the cached statements and the database connection.
+     */
+    void close() {
+        final List<PreparedStatement> cached = new ArrayList<PreparedStatement>(statements.values());
+        statements.clear();
+        for (final PreparedStatement ps : cached) {
+            closeStatement(ps);
+        }
+        try {
+            connection.close();
+        } catch (final SQLException ex) {
+            log.log(Level.WARNING, "Attempt to close connection failed.", ex);
+        }
+    }
+
+    /**
+     * Close a statement, logging any failure.
+     *
+     * @param ps the statement to close
+     */
+    private static void closeStatement(final PreparedStatement ps) {
+        try {
+            ps.close();
+        } catch (final SQLException ex) {
+            log.log(Level.WARNING, "Attempt to close statement failed.", ex);
+        }
+    }
+}
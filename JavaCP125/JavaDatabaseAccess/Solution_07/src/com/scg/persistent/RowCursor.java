@@ -0,0 +1,186 @@
+package com.scg.persistent;
+
+import java.io.Closeable;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A forward only cursor over the rows of a query, mapping each row to an
+ * object only as it is read.  Rows are fetched from the database in groups of
+ * the query's fetch size, so the rows may be processed in constant memory
+ * however many there are.  The cursor holds a pooled connection until it is
+ * closed, it is closed automatically once the last row has been read but
+ * must be closed if it is abandoned before then.  A RowCursor is not thread
+ * safe.
+ * <p>
+ * The rows may be read either with nextRow, which reports database failures
+ * as an SQLException, or as an Iterator, which reports them as a
+ * CursorException.
+ *
+ * @param <T> the type of object the rows are mapped to
+ *
+ * @author Russ Moul
+ */
+public final class RowCursor<T> implements Iterator<T>, Closeable {
+    /** This class' logger. */
+    private static final Logger log = Logger.getLogger(RowCursor.class.getName());
+
+    /** The pool the connection is released to. */
+    private final ConnectionPool pool;
+
+    /** The connection the query was executed on. */
+    private final PooledConnection conn;
+
+    /** The query results. */
+    private final ResultSet rs;
+
+    /** Maps each row to an object. */
+    private final RowMapper<T> mapper;
+
+    /** The row read by hasNext but not yet returned by next, null if none. */
+    private T pending;
+
+    /** Whether the cursor has been closed. */
+    private boolean closed;
+
+    /**
+     * Construct a RowCursor.
+     *
+     * @param pool the pool the connection is released to
+     * @param conn the connection the query was executed on
+     * @param rs the query results
+     * @param mapper maps each row to an object
+     */
+    RowCursor(final ConnectionPool pool, final PooledConnection conn,
+              final ResultSet rs, final RowMapper<T> mapper) {
+        this.pool = pool;
+        this.conn = conn;
+        this.rs = rs;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Read the next row.
+     *
+     * @return the object mapped from the next row, or null if there are no
+     *         more rows
+     *
+     * @throws SQLException if the row can't be read, in which case the cursor is closed
+     */
+    public T nextRow() throws SQLException {
+        if (pending != null) {
+            final T row = pending;
+            pending = null;
+            return row;
+        }
+        if (closed) {
+            return null;
+        }
+        boolean read = false;
+        try {
+            final T row = rs.next() ? mapper.map(rs) : null;
+            read = true;
+            if (row == null) {
+                close();
+            }
+            return row;
+        } finally {
+            if (!read) {
+                close();
+            }
+        }
+    }
+
+    /**
+     * Whether there is another row.
+     *
+     * @return true if there is another row.
+     *
+     * @throws CursorException if the row can't be read
+     */
+    @Override
+    public boolean hasNext() {
+        if (pending == null) {
+            try {
+                pending = nextRow();
+            } catch (final SQLException ex) {
+                throw new CursorException(ex);
+            }
+        }
+        return pending != null;
+    }
+
+    /**
+     * Read the next row.
+     *
+     * @return the object mapped from the next row.
+     *
+     * @throws CursorException if the row can't be read
+     */
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final T row = pending;
+        pending = null;
+        return row;
+    }
+
+    /**
+     * Not supported.
+     */
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Close the cursor, closing the results and releasing the connection.
+     * Closing a closed cursor has no effect.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            rs.close();
+        } catch (final SQLException ex) {
+            log.log(Level.WARNING, "Attempt to close result set failed.", ex);
+        }
+        pool.release(conn);
+    }
+
+    /**
+     * Thrown by the Iterator methods of a RowCursor when a row can't be read.
+     */
+    public static final class CursorException extends RuntimeException {
+        /** serialVersionUID */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Construct a CursorException.
+         *
+         * @param cause the database failure
+         */
+        CursorException(final SQLException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        /**
+         * Gets the database failure.
+         *
+         * @return the cause.
+         */
+        @Override
+        public SQLException getCause() {
+            return (SQLException)super.getCause();
+        }
+    }
+}
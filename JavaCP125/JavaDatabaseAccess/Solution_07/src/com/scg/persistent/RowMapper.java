@@ -0,0 +1,24 @@
+package com.scg.persistent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object.
+ *
+ * @param <T> the type of object mapped to
+ *
+ * @author Russ Moul
+ */
+interface RowMapper<T> {
+    /**
+     * Map the current row.
+     *
+     * @param rs the result set, positioned at the row to map
+     *
+     * @return the object mapped from the row
+     *
+     * @throws SQLException if the row can't be read
+     */
+    T map(ResultSet rs) throws SQLException;
+}
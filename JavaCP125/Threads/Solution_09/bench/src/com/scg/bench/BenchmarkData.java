@@ -0,0 +1,166 @@
+package com.scg.bench;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Random;
+
+import com.scg.domain.Account;
+import com.scg.domain.ClientAccount;
+import com.scg.domain.Consultant;
+import com.scg.domain.ConsultantTime;
+import com.scg.domain.NonBillableAccount;
+import com.scg.domain.Skill;
+import com.scg.domain.TimeCard;
+import com.scg.util.Address;
+import com.scg.util.Name;
+import com.scg.util.StateCode;
+
+/**
+ * Synthetic benchmark data, generated in the shapes ListFactory uses.  Each
+ * consultant submits a time card for every week, each work day of which is
+ * charged to one of the consultant's clients or, occasionally, a non-billable
+ * account; some days include overtime.  The data is generated from a fixed
+ * seed so every run benchmarks the same data.
+ *
+ * @author Russ Moul
+ */
+public final class BenchmarkData {
+    /** The default seed. */
+    public static final long DEFAULT_SEED = 20060227L;
+
+    /** The first year of data. */
+    public static final int START_YEAR = 2006;
+
+    /** Standard work day hours. */
+    private static final int STD_WORK_DAY = 8;
+
+    /** Overtime hours. */
+    private static final int OT_HOURS = 4;
+
+    /** Work days per week. */
+    private static final int WORK_DAYS_PER_WEEK = 5;
+
+    /** Days per week. */
+    private static final int DAYS_PER_WEEK = 7;
+
+    /** One in this many days is non-billable. */
+    private static final int NON_BILLABLE_ODDS = 10;
+
+    /** One in this many days includes overtime. */
+    private static final int OVERTIME_ODDS = 5;
+
+    /** The number of clients each consultant works for. */
+    private static final int CLIENTS_PER_CONSULTANT = 3;
+
+    /** The billable skills. */
+    private static final Skill[] SKILLS = {
+        Skill.PROJECT_MANAGER, Skill.SYSTEM_ARCHITECT,
+        Skill.SOFTWARE_ENGINEER, Skill.SOFTWARE_TESTER
+    };
+
+    /** The clients. */
+    private final List<ClientAccount> clients = new ArrayList<ClientAccount>();
+
+    /** The consultants. */
+    private final List<Consultant> consultants = new ArrayList<Consultant>();
+
+    /** The time cards, in submission order. */
+    private final List<TimeCard> timeCards = new ArrayList<TimeCard>();
+
+    /**
+     * Generate benchmark data from the default seed.
+     *
+     * @param clientCount the number of clients
+     * @param consultantCount the number of consultants
+     * @param weeks the number of weeks of time cards, starting the first
+     *        Monday of START_YEAR
+     */
+    public BenchmarkData(final int clientCount, final int consultantCount, final int weeks) {
+        this(clientCount, consultantCount, weeks, DEFAULT_SEED);
+    }
+
+    /**
+     * Generate benchmark data.
+     *
+     * @param clientCount the number of clients
+     * @param consultantCount the number of consultants
+     * @param weeks the number of weeks of time cards, starting the first
+     *        Monday of START_YEAR
+     * @param seed the random seed
+     */
+    public BenchmarkData(final int clientCount, final int consultantCount, final int weeks,
+                         final long seed) {
+        final Random random = new Random(seed);
+        final StateCode[] states = StateCode.values();
+        for (int i = 0; i < clientCount; i++) {
+            clients.add(new ClientAccount(String.format("Client %04d Industries", i),
+                    new Name("Contact" + i, "Wiley"),
+                    new Address(String.format("%d Index Ct.", 1000 + i), "Redmond",
+                                states[i % states.length], String.format("%05d", 98000 + i))));
+        }
+        final List<List<ClientAccount>> assignments = new ArrayList<List<ClientAccount>>();
+        for (int i = 0; i < consultantCount; i++) {
+            consultants.add(new Consultant(new Name("Coder" + i, "Carl", "S.")));
+            final List<ClientAccount> assigned = new ArrayList<ClientAccount>();
+            for (int j = 0; j < Math.min(CLIENTS_PER_CONSULTANT, clientCount); j++) {
+                assigned.add(clients.get(random.nextInt(clientCount)));
+            }
+            assignments.add(assigned);
+        }
+
+        final Calendar calendar = new GregorianCalendar(START_YEAR, Calendar.JANUARY, 1);
+        while (calendar.get(Calendar.DAY_OF_WEEK) != Calendar.MONDAY) {
+            calendar.add(Calendar.DATE, 1);
+        }
+        final NonBillableAccount[] nonBillable = NonBillableAccount.values();
+        for (int week = 0; week < weeks; week++) {
+            for (int i = 0; i < consultantCount; i++) {
+                final Calendar day = (Calendar)calendar.clone();
+                final TimeCard timeCard = new TimeCard(consultants.get(i), day.getTime());
+                final Skill skill = SKILLS[i % SKILLS.length];
+                final List<ClientAccount> assigned = assignments.get(i);
+                for (int d = 0; d < WORK_DAYS_PER_WEEK; d++) {
+                    final Account account = (random.nextInt(NON_BILLABLE_ODDS) == 0)
+                        ? nonBillable[random.nextInt(nonBillable.length)]
+                        : assigned.get(random.nextInt(assigned.size()));
+                    final int hours = (random.nextInt(OVERTIME_ODDS) == 0)
+                        ? STD_WORK_DAY + OT_HOURS : STD_WORK_DAY;
+                    timeCard.addConsultantTime(new ConsultantTime(day.getTime(), account, skill, hours));
+                    day.add(Calendar.DATE, 1);
+                }
+                timeCards.add(timeCard);
+            }
+            calendar.add(Calendar.DATE, DAYS_PER_WEEK);
+        }
+    }
+
+    /**
+     * Gets the clients.
+     *
+     * @return the clients.
+     */
+    public List<ClientAccount> getClients() {
+        return Collections.unmodifiableList(clients);
+    }
+
+    /**
+     * Gets the consultants.
+     *
+     * @return the consultants.
+     */
+    public List<Consultant> getConsultants() {
+        return Collections.unmodifiableList(consultants);
+    }
+
+    /**
+     * Gets the time cards, in submission order.
+     *
+     * @return the time cards.
+     */
+    public List<TimeCard> getTimeCards() {
+        return Collections.unmodifiableList(timeCards);
+    }
+}
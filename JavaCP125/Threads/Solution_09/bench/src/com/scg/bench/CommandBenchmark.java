@@ -0,0 +1,79 @@
+package com.scg.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.scg.net.AddClientCommand;
+import com.scg.net.AddTimeCardCommand;
+import com.scg.net.Command;
+import com.scg.net.WireFormat;
+
+/**
+ * Benchmarks of command encoding round trips in each wire format.
+ *
+ * @author Russ Moul
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class CommandBenchmark {
+    /** The wire format. */
+    @Param({"SERIALIZATION", "BINARY"})
+    private WireFormat format;
+
+    /** An add time card command. */
+    private Command<?> addTimeCard;
+
+    /** An add client command. */
+    private Command<?> addClient;
+
+    /**
+     * Generate the commands.
+     */
+    @Setup
+    public void setUp() {
+        final BenchmarkData data = new BenchmarkData(1, 1, 1);
+        addTimeCard = new AddTimeCardCommand(data.getTimeCards().get(0));
+        addClient = new AddClientCommand(data.getClients().get(0));
+    }
+
+    /**
+     * Encode and decode an add time card command.
+     *
+     * @return the decoded command
+     *
+     * @throws Exception if the round trip fails
+     */
+    @Benchmark
+    public Object addTimeCardRoundTrip() throws Exception {
+        final byte[] payload = format.encode(addTimeCard);
+        return format.decode(payload, 0, payload.length);
+    }
+
+    /**
+     * Encode and decode an add client command.
+     *
+     * @return the decoded command
+     *
+     * @throws Exception if the round trip fails
+     */
+    @Benchmark
+    public Object addClientRoundTrip() throws Exception {
+        final byte[] payload = format.encode(addClient);
+        return format.decode(payload, 0, payload.length);
+    }
+}
@@ -0,0 +1,140 @@
+package com.scg.bench;
+
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.scg.domain.ClientAccount;
+import com.scg.domain.Invoice;
+import com.scg.domain.InvoicePage;
+import com.scg.domain.TimeCard;
+import com.scg.domain.TimeEntryStore;
+import com.scg.util.DateRange;
+import com.scg.util.TimeCardListUtil;
+
+/**
+ * Benchmarks of invoice generation: extracting a client's line items for a
+ * month, from time cards and from a TimeEntryStore, formatting the invoice,
+ * and formatting it page by page from the store.
+ *
+ * @author Russ Moul
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class InvoiceBenchmark {
+    /** The invoice month. */
+    private static final int MONTH = Calendar.JUNE;
+
+    /** The invoice year. */
+    private static final int YEAR = BenchmarkData.START_YEAR;
+
+    /** The number of clients. */
+    @Param({"20"})
+    private int clients;
+
+    /** The number of consultants. */
+    @Param({"50"})
+    private int consultants;
+
+    /** The number of weeks of time cards. */
+    @Param({"52", "260"})
+    private int weeks;
+
+    /** The client invoiced. */
+    private ClientAccount client;
+
+    /** The time cards for the invoice month. */
+    private List<TimeCard> monthTimeCards;
+
+    /** Every time entry. */
+    private TimeEntryStore store;
+
+    /** A populated invoice. */
+    private Invoice invoice;
+
+    /**
+     * Generate the data.
+     */
+    @Setup
+    public void setUp() {
+        final BenchmarkData data = new BenchmarkData(clients, consultants, weeks);
+        client = data.getClients().get(0);
+        monthTimeCards = TimeCardListUtil.getTimeCardsForDateRange(data.getTimeCards(),
+                                                                    new DateRange(MONTH, YEAR));
+        store = new TimeEntryStore();
+        for (final TimeCard timeCard : data.getTimeCards()) {
+            store.add(timeCard);
+        }
+        invoice = extractLineItemsFromTimeCards();
+    }
+
+    /**
+     * Extract the line items from the month's time cards.
+     *
+     * @return the invoice
+     */
+    @Benchmark
+    public Invoice extractLineItemsFromTimeCards() {
+        final Invoice result = new Invoice(client, MONTH, YEAR);
+        for (final TimeCard timeCard : monthTimeCards) {
+            result.extractLineItems(timeCard);
+        }
+        return result;
+    }
+
+    /**
+     * Extract the line items by scanning every entry in the store.
+     *
+     * @return the invoice
+     */
+    @Benchmark
+    public Invoice extractLineItemsFromStore() {
+        final Invoice result = new Invoice(client, MONTH, YEAR);
+        result.extractLineItems(store);
+        return result;
+    }
+
+    /**
+     * Format the invoice.
+     *
+     * @return the formatted invoice
+     */
+    @Benchmark
+    public String invoiceToString() {
+        return invoice.toString();
+    }
+
+    /**
+     * Format the invoice's pages from the store, each page's line items
+     * produced as the page is reached, into a reused page buffer.
+     *
+     * @return the total length of the pages
+     */
+    @Benchmark
+    public int pagesFromStore() {
+        final StringBuilder page = new StringBuilder();
+        int length = 0;
+        for (final InvoicePage invoicePage : new Invoice(client, MONTH, YEAR).pages(store)) {
+            invoicePage.appendTo(page);
+            length += page.length();
+            page.setLength(0);
+        }
+        return length;
+    }
+}
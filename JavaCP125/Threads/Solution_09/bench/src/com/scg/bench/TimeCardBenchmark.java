@@ -0,0 +1,181 @@
+package com.scg.bench;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.scg.domain.TimeCard;
+import com.scg.util.DateRange;
+import com.scg.util.EpochDays;
+import com.scg.util.TimeCardIndex;
+import com.scg.util.TimeCardListUtil;
+
+/**
+ * Benchmarks of time card processing: formatting a time card report,
+ * sorting and filtering time card lists and date range checks.  The sort
+ * benchmarks include copying the shuffled list they sort.
+ *
+ * @author Russ Moul
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Benchmark)
+public class TimeCardBenchmark {
+    /** The number of dates checked by the date range benchmarks. */
+    private static final int DATE_COUNT = 1024;
+
+    /** The number of clients. */
+    @Param({"20"})
+    private int clients;
+
+    /** The number of consultants. */
+    @Param({"50"})
+    private int consultants;
+
+    /** The number of weeks of time cards. */
+    @Param({"52", "260"})
+    private int weeks;
+
+    /** The time cards, in a fixed random order. */
+    private List<TimeCard> shuffled;
+
+    /** The time cards, indexed by week. */
+    private TimeCardIndex index;
+
+    /** The date range filtered on, a month. */
+    private DateRange dateRange;
+
+    /** Dates checked against the date range. */
+    private Date[] dates;
+
+    /** The epoch days of the dates. */
+    private long[] epochDays;
+
+    /**
+     * Generate the data.
+     */
+    @Setup
+    public void setUp() {
+        final BenchmarkData data = new BenchmarkData(clients, consultants, weeks);
+        shuffled = new ArrayList<TimeCard>(data.getTimeCards());
+        final Random random = new Random(BenchmarkData.DEFAULT_SEED);
+        Collections.shuffle(shuffled, random);
+        index = new TimeCardIndex();
+        for (final TimeCard timeCard : data.getTimeCards()) {
+            index.add(timeCard);
+        }
+        dateRange = new DateRange(Calendar.JUNE, BenchmarkData.START_YEAR);
+        dates = new Date[DATE_COUNT];
+        epochDays = new long[DATE_COUNT];
+        final long first = EpochDays.fromDate(data.getTimeCards().get(0).getWeekStartingDay());
+        for (int i = 0; i < DATE_COUNT; i++) {
+            epochDays[i] = first + random.nextInt(weeks * 7);
+            dates[i] = EpochDays.toDate(epochDays[i]);
+        }
+    }
+
+    /**
+     * Format a time card report.
+     *
+     * @return the report
+     */
+    @Benchmark
+    public String toReportString() {
+        return shuffled.get(0).toReportString();
+    }
+
+    /**
+     * Sort the time cards by start date.
+     *
+     * @return the sorted time cards
+     */
+    @Benchmark
+    public List<TimeCard> sortByStartDate() {
+        final List<TimeCard> timeCards = new ArrayList<TimeCard>(shuffled);
+        TimeCardListUtil.sortByStartDate(timeCards);
+        return timeCards;
+    }
+
+    /**
+     * Sort the time cards by consultant name.
+     *
+     * @return the sorted time cards
+     */
+    @Benchmark
+    public List<TimeCard> sortByConsultantName() {
+        final List<TimeCard> timeCards = new ArrayList<TimeCard>(shuffled);
+        TimeCardListUtil.sortByConsultantName(timeCards);
+        return timeCards;
+    }
+
+    /**
+     * Select a month's time cards by scanning the list.
+     *
+     * @return the selected time cards
+     */
+    @Benchmark
+    public List<TimeCard> getTimeCardsForDateRange() {
+        return TimeCardListUtil.getTimeCardsForDateRange(shuffled, dateRange);
+    }
+
+    /**
+     * Select a month's time cards from the index.
+     *
+     * @return the selected time cards
+     */
+    @Benchmark
+    public List<TimeCard> getTimeCardsForDateRangeIndexed() {
+        return index.getTimeCardsForDateRange(dateRange);
+    }
+
+    /**
+     * Check dates against the date range.
+     *
+     * @return the number of dates in the range
+     */
+    @Benchmark
+    public int isInRangeDate() {
+        int count = 0;
+        for (final Date date : dates) {
+            if (dateRange.isInRange(date)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Check epoch days against the date range.
+     *
+     * @return the number of days in the range
+     */
+    @Benchmark
+    public int isInRangeEpochDay() {
+        int count = 0;
+        for (final long epochDay : epochDays) {
+            if (dateRange.isInRange(epochDay)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -15,6 +15,13 @@ import com.scg.net.client.InvoiceClient;
 public final class Assignment09 {
     /** Localhost. */
     private static final String LOCALHOST = "127.0.0.1";
+
+    /** The number of time cards sent per batch. */
+    private static final int TIME_CARD_BATCH_SIZE = 16;
+
+    /** The number of commands which may await acknowledgement, when framed. */
+    private static final int RESPONSE_WINDOW = 32;
+
     /**
      * Prevent instantiation.
      */
@@ -24,7 +31,8 @@ public final class Assignment09 {
     /**
      * Test the Solution 09 Client.
      *
-     * @param args Command line parameters - not used.
+     * @param args Command line parameters, "nio" sends framed command streams
+     *             as required by a server in NON_BLOCKING mode.
      *
      * @throws Exception if any occur
      */
@@ -44,6 +52,20 @@ public final class Assignment09 {
         final InvoiceClient netClient04 =
             new InvoiceClient(LOCALHOST, Assignment09Server.DEFAULT_PORT, immutableTimeCards);
 
+        final boolean framed = args.length > 0 && Assignment09Server.NIO_ARG.equals(args[0]);
+        netClient01.setFramed(framed);
+        netClient01.setBatchSize(TIME_CARD_BATCH_SIZE);
+        netClient01.setResponseWindow(framed ? RESPONSE_WINDOW : 0);
+        netClient02.setFramed(framed);
+        netClient02.setBatchSize(TIME_CARD_BATCH_SIZE);
+        netClient02.setResponseWindow(framed ? RESPONSE_WINDOW : 0);
+        netClient03.setFramed(framed);
+        netClient03.setBatchSize(TIME_CARD_BATCH_SIZE);
+        netClient03.setResponseWindow(framed ? RESPONSE_WINDOW : 0);
+        netClient04.setFramed(framed);
+        netClient04.setBatchSize(TIME_CARD_BATCH_SIZE);
+        netClient04.setResponseWindow(framed ? RESPONSE_WINDOW : 0);
+
         netClient01.start();
         netClient02.start();
         netClient03.start();
@@ -56,6 +78,7 @@ public final class Assignment09 {
 
         // Sent quit command
         final InvoiceClient shutdownClient = new InvoiceClient(LOCALHOST, Assignment09Server.DEFAULT_PORT, null);
+        shutdownClient.setFramed(framed);
         shutdownClient.sendQuit();
     }
 
@@ -5,6 +5,9 @@ import com.scg.domain.ClientAccount;
 import com.scg.domain.Consultant;
 import com.scg.domain.TimeCard;
 import com.scg.net.server.InvoiceServer;
+import com.scg.net.server.PoolType;
+import com.scg.net.server.ProcessorPool;
+import com.scg.net.server.ServerMode;
 
 /**
  * The server.
@@ -15,6 +18,18 @@ public final class Assignment09Server {
     /** The port for the server to listen on. */
     public static final int DEFAULT_PORT = 10888;
 
+    /**
+     * The maximum number of connections processed at once, in BLOCKING mode
+     * each connection holds a worker until it disconnects.
+     */
+    private static final int WORKERS = 8;
+
+    /** The maximum number of connections waiting to be processed. */
+    private static final int PENDING_CONNECTIONS = 64;
+
+    /** Command line argument selecting the non-blocking server mode. */
+    public static final String NIO_ARG = "nio";
+
     /**
      * Prevent instantiation.
      */
@@ -24,7 +39,8 @@ public final class Assignment09Server {
     /**
      * Instantiates an InvoiceServer and starts it.
      *
-     * @param args Command line parameters.
+     * @param args Command line parameters, "nio" runs the server in
+     *             NON_BLOCKING mode.
      *
      * @throws Exception if the server raises any exceptions
      */
@@ -34,8 +50,11 @@ public final class Assignment09Server {
         final List<TimeCard> timeCards = new ArrayList<TimeCard>();
         ListFactory.populateLists(accounts, consultants, timeCards);
 
+        final ServerMode mode = (args.length > 0 && NIO_ARG.equals(args[0]))
+                              ? ServerMode.NON_BLOCKING : ServerMode.BLOCKING;
         final InvoiceServer server = new InvoiceServer(DEFAULT_PORT,
-                                                 accounts, consultants);
+                                                 accounts, consultants, mode);
+        server.setProcessorPool(new ProcessorPool(PoolType.FIXED, WORKERS, PENDING_CONNECTIONS));
         server.run();
     }
 }
@@ -0,0 +1,271 @@
+package com.scg.domain;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.scg.util.Address;
+import com.scg.util.StateCode;
+
+/**
+ * The invoicing business' name and address, as read from the properties file
+ * named by Invoice.PROP_FILE_NAME.  The shared profile is loaded once, on
+ * first use, and reloaded whenever the file changes; a profile is immutable,
+ * a reload replaces the shared instance.  A reload from a file which can't be
+ * read, is missing any of the properties or is invalid keeps the current
+ * profile, so a file read while it is still being written is ignored.
+ *
+ * @author Russ Moul
+ */
+public final class BusinessProfile {
+    /** This class' logger. */
+    private static final Logger log = Logger.getLogger(BusinessProfile.class.getName());
+
+    /** The default business state. */
+    private static final String DEFAULT_STATE = "WA";
+
+    /** The properties a reloaded profile must have. */
+    private static final String[] REQUIRED_PROPS = {
+        Invoice.BUSINESS_NAME_PROP, Invoice.BUSINESS_STREET_PROP, Invoice.BUSINESS_CITY_PROP,
+        Invoice.BUSINESS_STATE_PROP, Invoice.BUSINESS_ZIP_PROP
+    };
+
+    /**
+     * Time the properties file must be unchanged before it is reloaded, in
+     * milliseconds, so a file written in several steps is read once.
+     */
+    private static final long RELOAD_DELAY_MILLIS = 500L;
+
+    /** The business' name. */
+    private final String name;
+
+    /** The business' address. */
+    private final Address address;
+
+    /**
+     * Construct a BusinessProfile.
+     *
+     * @param name the business' name
+     * @param address the business' address
+     */
+    public BusinessProfile(final String name, final Address address) {
+        this.name = name;
+        this.address = address;
+    }
+
+    /**
+     * Gets the shared business profile, loading it and starting the watch
+     * for changes on first use.
+     *
+     * @return the current business profile.
+     */
+    public static BusinessProfile getInstance() {
+        return Holder.current;
+    }
+
+    /**
+     * Load a business profile from a properties file.  Missing properties,
+     * or a missing file, default to Invoice.NA.
+     *
+     * @param propFile the properties file
+     *
+     * @return the business profile
+     */
+    public static BusinessProfile load(final File propFile) {
+        Properties invoiceProps = new Properties();
+        try {
+            invoiceProps = readProperties(propFile);
+        } catch (final FileNotFoundException e) {
+            log.log(Level.WARNING, "Unable to locate properties file, " + propFile.getAbsolutePath(), e);
+        } catch (final IOException e) {
+            log.log(Level.WARNING, "Unable to read properties file.", e);
+        }
+        return fromProperties(invoiceProps);
+    }
+
+    /**
+     * Read a properties file.
+     *
+     * @param propFile the properties file
+     *
+     * @return the properties read
+     *
+     * @throws IOException if the file can't be read
+     */
+    private static Properties readProperties(final File propFile) throws IOException {
+        final Properties invoiceProps = new Properties();
+        final FileInputStream in = new FileInputStream(propFile);
+        try {
+            invoiceProps.load(in);
+        } finally {
+            try {
+                in.close();
+            } catch (final IOException e) {
+                log.log(Level.WARNING, "Attempt to close properties file failed.", e);
+            }
+        }
+        return invoiceProps;
+    }
+
+    /**
+     * Create a business profile from properties.  Missing properties default
+     * to Invoice.NA.
+     *
+     * @param invoiceProps the properties
+     *
+     * @return the business profile
+     *
+     * @throws IllegalArgumentException if the state is not a valid StateCode
+     */
+    private static BusinessProfile fromProperties(final Properties invoiceProps) {
+        final String bizName = invoiceProps.getProperty(Invoice.BUSINESS_NAME_PROP, Invoice.NA);
+        final String bizStreet = invoiceProps.getProperty(Invoice.BUSINESS_STREET_PROP, Invoice.NA);
+        final String bizCity = invoiceProps.getProperty(Invoice.BUSINESS_CITY_PROP, Invoice.NA);
+        final String bizState = invoiceProps.getProperty(Invoice.BUSINESS_STATE_PROP, DEFAULT_STATE);
+        final String bizZip = invoiceProps.getProperty(Invoice.BUSINESS_ZIP_PROP, Invoice.NA);
+        return new BusinessProfile(bizName,
+                new Address(bizStreet, bizCity, StateCode.valueOf(bizState), bizZip));
+    }
+
+    /**
+     * Gets the business' name.
+     *
+     * @return the name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Gets the business' address.
+     *
+     * @return the address.
+     */
+    public Address getAddress() {
+        return address;
+    }
+
+    /**
+     * Holds the shared profile, initialized on first use.
+     */
+    private static final class Holder {
+        /** The properties file. */
+        private static final File PROP_FILE = new File(Invoice.PROP_FILE_NAME).getAbsoluteFile();
+
+        /** The current profile, replaced when the file changes. */
+        private static volatile BusinessProfile current = load(PROP_FILE);
+
+        static {
+            final Thread watcher = new Thread(new ProfileWatcher(PROP_FILE), "BusinessProfileWatcher");
+            watcher.setDaemon(true);
+            watcher.start();
+        }
+
+        /**
+         * Prevent instantiation.
+         */
+        private Holder() {
+        }
+
+        /**
+         * Reload the shared profile, keeping the current profile if the file
+         * can't be read, is incomplete or is invalid.
+         */
+        static void reload() {
+            try {
+                final Properties invoiceProps = readProperties(PROP_FILE);
+                for (final String prop : REQUIRED_PROPS) {
+                    if (invoiceProps.getProperty(prop) == null) {
+                        log.warning("Business profile " + PROP_FILE + " has no " + prop
+                                  + ", keeping the current profile.");
+                        return;
+                    }
+                }
+                current = fromProperties(invoiceProps);
+                log.info("Reloaded business profile from " + PROP_FILE);
+            } catch (final IOException e) {
+                log.log(Level.WARNING, "Unable to reload business profile, keeping the current profile.", e);
+            } catch (final RuntimeException e) {
+                log.log(Level.WARNING, "Invalid business profile, keeping the current profile.", e);
+            }
+        }
+    }
+
+    /**
+     * Watches the properties file's directory, reloading the shared profile
+     * when the file is created or modified.  The reload waits until the file
+     * has been unchanged for RELOAD_DELAY_MILLIS.
+     */
+    private static final class ProfileWatcher implements Runnable {
+        /** The properties file. */
+        private final File propFile;
+
+        /**
+         * Construct a ProfileWatcher.
+         *
+         * @param propFile the properties file
+         */
+        ProfileWatcher(final File propFile) {
+            this.propFile = propFile;
+        }
+
+        /**
+         * Watch for changes until interrupted or the directory becomes
+         * inaccessible.
+         */
+        @Override
+        public void run() {
+            final Path dir = propFile.getParentFile().toPath();
+            final Path fileName = propFile.toPath().getFileName();
+            WatchService watchService = null;
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                           StandardWatchEventKinds.ENTRY_MODIFY);
+                boolean valid = true;
+                while (valid) {
+                    WatchKey key = watchService.take();
+                    boolean changed = false;
+                    // once the file has changed, wait until its events stop
+                    while (key != null && valid) {
+                        for (final WatchEvent<?> event : key.pollEvents()) {
+                            if (fileName.equals(event.context())) {
+                                changed = true;
+                            }
+                        }
+                        valid = key.reset();
+                        key = changed ? watchService.poll(RELOAD_DELAY_MILLIS, TimeUnit.MILLISECONDS)
+                                      : null;
+                    }
+                    if (changed) {
+                        Holder.reload();
+                    }
+                }
+                log.warning("Business profile directory no longer accessible, " + dir);
+            } catch (final InterruptedException e) {
+                log.info("Business profile watch interrupted.");
+            } catch (final IOException e) {
+                log.log(Level.WARNING, "Unable to watch business profile for changes.", e);
+            } finally {
+                if (watchService != null) {
+                    try {
+                        watchService.close();
+                    } catch (final IOException e) {
+                        log.log(Level.WARNING, "Attempt to close watch service failed.", e);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.scg.domain;
 import java.io.Serializable;
 
 import com.scg.util.Address;
+import com.scg.util.Interner;
 import com.scg.util.Name;
 
 /**
@@ -18,6 +19,9 @@ public final class ClientAccount implements Account, Comparable<ClientAccount>,
     /** Factor used in calculating hashCode. */
     private static final int HASH_FACTOR = 37;
 
+    /** The pool of canonical client accounts. */
+    private static final Interner<ClientAccount> INTERNER = new Interner<ClientAccount>();
+
     /**
      * Holds value of property name.
      */
@@ -51,6 +55,19 @@ public final class ClientAccount implements Account, Comparable<ClientAccount>,
         this.hashCode = calcHashCode();
     }
 
+    /**
+     * Gets the canonical instance of a client account, the single shared
+     * instance of the client accounts equal to it.  Canonical instances are
+     * held weakly.
+     *
+     * @param client the client account
+     *
+     * @return the canonical client account.
+     */
+    public static ClientAccount intern(final ClientAccount client) {
+        return INTERNER.intern(client);
+    }
+
     /**
      * Gets the account name.
      *
@@ -165,6 +182,9 @@ public final class ClientAccount implements Account, Comparable<ClientAccount>,
      */
     @Override
     public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
         if (!(other instanceof ClientAccount)) {
             return false;
         }
@@ -172,4 +192,21 @@ public final class ClientAccount implements Account, Comparable<ClientAccount>,
         return compareTo((ClientAccount)other) == 0;
     }
 
+    /**
+     * Resolves a deserialized client account to its canonical instance.  The
+     * hash codes serialized with the account, its contact and address were
+     * computed by the sending VM, so the account is rebuilt before it is
+     * interned.
+     *
+     * @return the canonical client account
+     */
+    private Object readResolve() {
+        final Name localContact = (contact == null) ? null
+            : new Name(contact.getLastName(), contact.getFirstName(), contact.getMiddleName());
+        final Address localAddress = (address == null) ? null
+            : new Address(address.getStreetNumber(), address.getCity(),
+                          address.getState(), address.getPostalCode());
+        return intern(new ClientAccount(name, localContact, localAddress));
+    }
+
 }
@@ -0,0 +1,33 @@
+package com.scg.domain;
+
+/**
+ * A concurrent registry of client accounts, identified by name.
+ *
+ * @author Russ Moul
+ */
+public final class ClientRegistry extends Registry<String, ClientAccount> {
+    /**
+     * Gets the key identifying a client account, its name.
+     *
+     * @param client the client account
+     *
+     * @return the client name
+     */
+    @Override
+    protected String keyOf(final ClientAccount client) {
+        return client.getName();
+    }
+
+    /**
+     * Gets the canonical instance of a client account, so the registered
+     * client is shared with the time cards referencing it.
+     *
+     * @param client the client account
+     *
+     * @return the canonical client account
+     */
+    @Override
+    protected ClientAccount canonical(final ClientAccount client) {
+        return ClientAccount.intern(client);
+    }
+}
@@ -5,6 +5,7 @@ import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.logging.Logger;
 
+import com.scg.util.Interner;
 import com.scg.util.Name;
 
 /**
@@ -23,6 +24,9 @@ public class Consultant implements Comparable<Consultant>, Serializable {
     /** This class' logger. */
     private static final Logger log = Logger.getLogger(Consultant.class.getName());
 
+    /** The pool of canonical consultants. */
+    private static final Interner<Consultant> INTERNER = new Interner<Consultant>();
+
     /** Holds value of property name. */
     private final Name name;
 
@@ -55,14 +59,14 @@ public class Consultant implements Comparable<Consultant>, Serializable {
         }
 
         /**
-         * Create and returns the proxied Consultant.
+         * Returns the canonical instance of the proxied Consultant.
          *
-         * @return a new instance of the proxied Consultant
+         * @return the canonical instance of the proxied Consultant
          */
         private Object readResolve() {
             final String msg = String.format("De-serialized consultant: %s, %s %s", x, y, z);
             log.info(msg);
-            return new Consultant(new Name(x, y, z));
+            return intern(new Consultant(new Name(x, y, z)));
         }
     }
 
@@ -77,6 +81,18 @@ public class Consultant implements Comparable<Consultant>, Serializable {
         this.hashCode = calcHashCode();
     }
 
+    /**
+     * Gets the canonical instance of a consultant, the single shared instance
+     * of the consultants equal to it.  Canonical instances are held weakly.
+     *
+     * @param consultant the consultant
+     *
+     * @return the canonical consultant.
+     */
+    public static Consultant intern(final Consultant consultant) {
+        return INTERNER.intern(consultant);
+    }
+
     /**
      * Getter for property name.
      *
@@ -126,6 +142,9 @@ public class Consultant implements Comparable<Consultant>, Serializable {
      */
     @Override
     public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
         if (other == null) {
             return false;
         }
@@ -0,0 +1,35 @@
+package com.scg.domain;
+
+import com.scg.util.Name;
+
+/**
+ * A concurrent registry of consultants, identified by name.
+ *
+ * @author Russ Moul
+ */
+public final class ConsultantRegistry extends Registry<Name, Consultant> {
+    /**
+     * Gets the key identifying a consultant, its name.
+     *
+     * @param consultant the consultant
+     *
+     * @return the consultant's name
+     */
+    @Override
+    protected Name keyOf(final Consultant consultant) {
+        return consultant.getName();
+    }
+
+    /**
+     * Gets the canonical instance of a consultant, so the registered
+     * consultant is shared with the time cards referencing it.
+     *
+     * @param consultant the consultant
+     *
+     * @return the canonical consultant
+     */
+    @Override
+    protected Consultant canonical(final Consultant consultant) {
+        return Consultant.intern(consultant);
+    }
+}
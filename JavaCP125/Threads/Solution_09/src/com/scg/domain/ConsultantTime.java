@@ -2,20 +2,50 @@ package com.scg.domain;
 
 import java.util.Date;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
+import com.scg.util.EpochDays;
+import com.scg.util.TextTemplate;
+
 /**
  * A consultants time, maintains date, skill, account and hours data.
  *
  * @author Russ Moul
  */
-@SuppressWarnings("serial")
 public final class ConsultantTime implements Serializable {
+    /**
+     * serialVersionUID, the value computed for the class when the date was
+     * held as a Date.
+     */
+    private static final long serialVersionUID = 4988613325748608964L;
+
+    /**
+     * The serialized fields, the date is serialized as a Date so the serial
+     * form is unchanged from when it was held as one.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("date", Date.class),
+        new ObjectStreamField("account", Account.class),
+        new ObjectStreamField("hours", Integer.TYPE),
+        new ObjectStreamField("skill", Skill.class)
+    };
+
     /** Factor used in calculating hashCode. */
     private static final int HASH_FACTOR = 37;
 
-    /** Holds value of property date. */
-    private Date date;
+    /** Compiled format of the string representation. */
+    private static final TextTemplate TO_STRING_TEMPLATE =
+        TextTemplate.compile("%-28s %2$tm/%2$td/%2$tY  %3$5d  %4$s%n");
+
+    /** Epoch day value representing no date. */
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    /** Holds value of property date, as an epoch day. */
+    private long epochDay;
 
     /** Holds value of property account. */
     private Account account;
@@ -26,6 +56,12 @@ public final class ConsultantTime implements Serializable {
     /** Holds value of property skill. */
     private Skill skill;
 
+    /**
+     * The time card this time was added to, notified when the account
+     * changes so it may regroup its billable hours.
+     */
+    private transient TimeCard owner;
+
     /**
      * Creates a new instance of ConsultantTime.
      *
@@ -39,7 +75,7 @@ public final class ConsultantTime implements Serializable {
      */
     public ConsultantTime(final Date date, final Account account, final Skill skillType, final int hours) {
         setHours(hours);
-        this.date = new Date(date.getTime());
+        this.epochDay = toEpochDay(date);
         this.account = account;
         this.skill = skillType;
     }
@@ -50,7 +86,26 @@ public final class ConsultantTime implements Serializable {
      * @return Value of property date
      */
     public Date getDate() {
-        return (date == null) ? (Date)null : new Date(date.getTime());
+        return (epochDay == NO_DATE) ? (Date)null : EpochDays.toDate(epochDay);
+    }
+
+    /**
+     * Gets the date as an epoch day, without allocating a Date.
+     *
+     * @return the epoch day, Long.MIN_VALUE if there is no date
+     */
+    public long getEpochDay() {
+        return epochDay;
+    }
+
+    /**
+     * Gets the date as a TextTemplate date argument, without allocating a
+     * Date.
+     *
+     * @return the epoch day, or null if there is no date
+     */
+    Long getDateArgument() {
+        return (epochDay == NO_DATE) ? (Long)null : Long.valueOf(epochDay);
     }
 
     /**
@@ -59,7 +114,18 @@ public final class ConsultantTime implements Serializable {
      * @param date New value of property date
      */
     public void setDate(final Date date) {
-        this.date = (date != null) ? (new Date(date.getTime())) : (Date)null;
+        this.epochDay = toEpochDay(date);
+    }
+
+    /**
+     * Gets the epoch day of a date.
+     *
+     * @param date the date, may be null
+     *
+     * @return the epoch day, NO_DATE if the date is null
+     */
+    private static long toEpochDay(final Date date) {
+        return (date != null) ? EpochDays.fromDate(date) : NO_DATE;
     }
 
     /**
@@ -78,6 +144,19 @@ public final class ConsultantTime implements Serializable {
      */
     public void setAccount(final Account account) {
         this.account = account;
+        if (owner != null) {
+            owner.accountChanged();
+        }
+    }
+
+    /**
+     * Sets the time card this time has been added to.  A ConsultantTime
+     * belongs to one time card, the last it was added to.
+     *
+     * @param owner the time card
+     */
+    void setOwner(final TimeCard owner) {
+        this.owner = owner;
     }
 
     /**
@@ -129,7 +208,7 @@ public final class ConsultantTime implements Serializable {
     public int hashCode() {
         int result = 1;
         result = HASH_FACTOR * result + ((account == null) ? 0 : account.hashCode());
-        result = HASH_FACTOR * result + ((date == null) ? 0 : date.hashCode());
+        result = HASH_FACTOR * result + (int)(epochDay ^ (epochDay >>> 32));
         result = HASH_FACTOR * result + hours;
         result = HASH_FACTOR * result + ((skill == null) ? 0 : skill.hashCode());
 
@@ -147,7 +226,7 @@ public final class ConsultantTime implements Serializable {
         } else if (obj != null && getClass() == obj.getClass()) {
             final ConsultantTime other = (ConsultantTime) obj;
             if (account.equals(other.account) &&
-                date.equals(other.date) &&
+                epochDay == other.epochDay &&
                 skill.equals(other.skill) &&
                 hours == other.hours) {
                 isEqual = true;
@@ -156,6 +235,39 @@ public final class ConsultantTime implements Serializable {
         return isEqual;
     }
 
+    /**
+     * Write the serialized fields, the date as a Date.
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the write fails
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("date", getDate());
+        fields.put("account", account);
+        fields.put("hours", hours);
+        fields.put("skill", skill);
+        out.writeFields();
+    }
+
+    /**
+     * Read the serialized fields, converting the date to an epoch day.
+     *
+     * @param in the stream to read from
+     *
+     * @throws IOException if the read fails
+     * @throws ClassNotFoundException if a class can't be found
+     */
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        epochDay = toEpochDay((Date)fields.get("date", null));
+        account = (Account)fields.get("account", null);
+        hours = fields.get("hours", 0);
+        skill = (Skill)fields.get("skill", null);
+    }
+
     /**
      * Creates a string representation of the consultant time.
      *
@@ -163,7 +275,6 @@ public final class ConsultantTime implements Serializable {
      */
     @Override
     public String toString() {
-        return String.format("%-28s %2$tm/%2$td/%2$tY  %3$5d  %4$s%n",
-                account.getName(), date, hours, skill.getName());
+        return TO_STRING_TEMPLATE.format(account.getName(), getDateArgument(), hours, skill.getName());
     }
 }
@@ -1,28 +1,27 @@
 package com.scg.domain;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
-import java.util.Formatter;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
-import java.util.Properties;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.NoSuchElementException;
 
-import com.scg.util.Address;
 import com.scg.util.DateRange;
-import com.scg.util.StateCode;
 
 /**
  * Invoice encapsulates the attributes and behavior to create client invoices
  * for a given time period from time cards.  The invoicing business' name and
- * address are obtained from a properties file. The name of the property file
- * is specified by the PROP_FILE_NAME static member.
+ * address are obtained from the shared BusinessProfile, loaded from a
+ * properties file. The name of the property file is specified by the
+ * PROP_FILE_NAME static member.
  *
  * @author Russ Moul
  */
@@ -48,9 +47,6 @@ public final class Invoice {
     /** String constant for "N/A". */
     public static final String NA = "N/A";
 
-    /** This class' logger. */
-    private static final Logger log = Logger.getLogger(Invoice.class.getName());
-
     /** Items per page. */
     private static final int ITEMS_PER_PAGE = 5;
 
@@ -72,11 +68,8 @@ public final class Invoice {
     /** Container for line items. */
     private final List<InvoiceLineItem> lineItems;
 
-    /** This business' name. */
-    private final String bizName;
-
-    /** This business' address. */
-    private final Address bizAddress;
+    /** The invoicing business' profile. */
+    private final BusinessProfile businessProfile;
 
     /**
      * Construct an Invoice for a client. The time period is set from the
@@ -91,8 +84,23 @@ public final class Invoice {
      */
     public Invoice(final ClientAccount client, final int invoiceMonth,
                    final int invoiceYear) {
+        this(client, invoiceMonth, invoiceYear, BusinessProfile.getInstance());
+    }
+
+    /**
+     * Construct an Invoice for a client, issued by a specific business.
+     *
+     * @param client Client for this Invoice.
+     * @param invoiceMonth Month for which this Invoice is being created, the
+     *                     0-based month number.
+     * @param invoiceYear Year for which this Invoice is being created.
+     * @param businessProfile the invoicing business' profile.
+     */
+    public Invoice(final ClientAccount client, final int invoiceMonth,
+                   final int invoiceYear, final BusinessProfile businessProfile) {
         this.client = client;
         this.lineItems = new ArrayList<InvoiceLineItem>();
+        this.businessProfile = businessProfile;
 
         // Create a calendar with today's date.
         final Calendar calendar = Calendar.getInstance();
@@ -100,33 +108,6 @@ public final class Invoice {
 
         // Set the date range for the invoice
         dateRange = new DateRange(invoiceMonth, invoiceYear);
-
-        final Properties invoiceProps = new Properties();
-        final File propFile = new File(PROP_FILE_NAME);
-        FileInputStream in = null;
-        try {
-            in = new FileInputStream(propFile);
-            invoiceProps.load(in);
-        } catch (final FileNotFoundException e) {
-            log.log(Level.WARNING, "Unable to locate properties file, " + propFile.getAbsolutePath(), e);
-        } catch (final IOException e) {
-            log.log(Level.WARNING, "Unable to read properties file.", e);
-        } finally {
-            try {
-                if (in != null) {
-                    in.close();
-                }
-            } catch (final IOException e) {
-                log.log(Level.WARNING, "Attempt to close properties file failed.", e);
-            }
-        }
-        bizName = invoiceProps.getProperty(BUSINESS_NAME_PROP, NA);
-        final String bizStreet = invoiceProps.getProperty(BUSINESS_STREET_PROP, NA);
-        final String bizCity = invoiceProps.getProperty(BUSINESS_CITY_PROP, NA);
-        final String bizState = invoiceProps.getProperty(BUSINESS_STATE_PROP, "WA");
-        final String bizZip = invoiceProps.getProperty(BUSINESS_ZIP_PROP, NA);
-        bizAddress = new Address(
-                bizStreet, bizCity, StateCode.valueOf(bizState), bizZip);
     }
 
     /**
@@ -198,9 +179,8 @@ public final class Invoice {
     public void extractLineItems(final TimeCard timeCard) {
         final List<ConsultantTime> billableHoursList = timeCard.getBillableHoursForClient(client.getName());
         for (final ConsultantTime consultantTime : billableHoursList) {
-            final Date currentDate = consultantTime.getDate();
-            if (dateRange.isInRange(currentDate)) {
-                final InvoiceLineItem currentItem = new InvoiceLineItem(consultantTime.getDate(),
+            if (dateRange.isInRange(consultantTime.getEpochDay())) {
+                final InvoiceLineItem currentItem = new InvoiceLineItem(consultantTime.getEpochDay(),
                                                                         timeCard.getConsultant(),
                                                                         consultantTime.getSkill(),
                                                                         consultantTime.getHours());
@@ -209,6 +189,160 @@ public final class Invoice {
         }
     }
 
+    /**
+     * Extract the billable hours for this Invoice's client and month from a
+     * TimeEntryStore and add them to the line items.  The entries are scanned
+     * in the order they were added to the store, matching accounts by id.
+     *
+     * @param store the TimeEntryStore potentially containing line items for
+     *              this Invoices client.
+     */
+    public void extractLineItems(final TimeEntryStore store) {
+        final Iterator<InvoiceLineItem> items = new StoreLineItems(store);
+        while (items.hasNext()) {
+            addLineItem(items.next());
+        }
+    }
+
+    /**
+     * Gets the printable pages of this Invoice.  The pages are formatted as
+     * they are iterated, a page at a time, from the line items added to this
+     * Invoice.  Line items must not be added while the pages are iterated.
+     *
+     * @return the pages, in page order.
+     */
+    public Iterable<InvoicePage> pages() {
+        return pages(lineItems);
+    }
+
+    /**
+     * Gets the printable pages of the invoice for this Invoice's client and
+     * month from a source of line items.  Each page's line items are taken
+     * from the source as the page is formatted, so if the source produces its
+     * line items on demand a large invoice may be written page by page
+     * without creating all of them.  The line items are not added to this
+     * Invoice, and any which have been are not included.
+     *
+     * @param source the line items, which must be for this Invoice's client
+     *               and month
+     *
+     * @return the pages, in page order.
+     */
+    public Iterable<InvoicePage> pages(final Iterable<InvoiceLineItem> source) {
+        return new Iterable<InvoicePage>() {
+            @Override
+            public Iterator<InvoicePage> iterator() {
+                return new Pages(source.iterator());
+            }
+        };
+    }
+
+    /**
+     * Gets the printable pages of the invoice for this Invoice's client and
+     * month from a TimeEntryStore.  Each page's line items are produced from
+     * the store's entries only as the page is formatted, so a large invoice
+     * may be written page by page without creating all of its line items.
+     * The line items are not added to this Invoice, and any which have been
+     * are not included.
+     *
+     * @param store the TimeEntryStore potentially containing line items for
+     *              this Invoices client.
+     *
+     * @return the pages, in page order.
+     */
+    public Iterable<InvoicePage> pages(final TimeEntryStore store) {
+        return pages(new Iterable<InvoiceLineItem>() {
+            @Override
+            public Iterator<InvoiceLineItem> iterator() {
+                return new StoreLineItems(store);
+            }
+        });
+    }
+
+    /**
+     * Write the printable invoice to a Writer, printing a header and footer
+     * on each page.  The invoice is streamed as it is formatted, a page at a
+     * time, the only memory used beyond the line items and the writer's
+     * buffer is for a single copy of the page header and a page buffer which
+     * is reused.
+     *
+     * @param out the writer to write to, not flushed or closed by this method
+     *
+     * @throws IOException if the write fails
+     */
+    public void write(final Writer out) throws IOException {
+        writePages(out, pages());
+    }
+
+    /**
+     * Write the printable invoice for this Invoice's client and month from a
+     * source of line items, a page at a time, as by pages(source).
+     *
+     * @param out the writer to write to, not flushed or closed by this method
+     * @param source the line items, which must be for this Invoice's client
+     *               and month
+     *
+     * @throws IOException if the write fails
+     */
+    public void write(final Writer out, final Iterable<InvoiceLineItem> source)
+        throws IOException {
+        writePages(out, pages(source));
+    }
+
+    /**
+     * Write pages through a reused page buffer.
+     *
+     * @param out the writer to write to
+     * @param pages the pages to write
+     *
+     * @throws IOException if the write fails
+     */
+    private static void writePages(final Writer out, final Iterable<InvoicePage> pages)
+        throws IOException {
+        final StringBuilder page = new StringBuilder();
+        char[] chars = new char[0];
+        for (final InvoicePage invoicePage : pages) {
+            invoicePage.appendTo(page);
+            chars = writePage(out, page, chars);
+        }
+    }
+
+    /**
+     * Write and clear the page buffer, copying it through a reusable array.
+     *
+     * @param out the writer to write to
+     * @param page the page buffer
+     * @param chars the array to copy through, replaced if too small
+     *
+     * @return the array copied through.
+     *
+     * @throws IOException if the write fails
+     */
+    private static char[] writePage(final Writer out, final StringBuilder page,
+                                    final char[] chars) throws IOException {
+        final char[] buffer = (chars.length < page.length()) ? new char[page.capacity()] : chars;
+        page.getChars(0, page.length(), buffer, 0);
+        out.write(buffer, 0, page.length());
+        page.setLength(0);
+        return buffer;
+    }
+
+    /**
+     * Write the printable invoice to a channel.
+     *
+     * @param channel the channel to write to, not closed by this method
+     * @param charset the character set to encode the invoice with
+     *
+     * @throws IOException if the write fails
+     */
+    public void write(final WritableByteChannel channel, final Charset charset)
+        throws IOException {
+        final Writer out = new BufferedWriter(
+                Channels.newWriter(channel, charset.newEncoder(), -1));
+        write(out);
+        out.flush();
+    }
+
     /**
      * Create a formatted string containing the printable invoice. Prints a
      * header and footer on each page.
@@ -217,29 +351,173 @@ public final class Invoice {
      */
     @Override
     public String toString() {
-        final InvoiceHeader invoiceHeader = new InvoiceHeader(bizName, bizAddress, client,
-                                                              invoiceDate, dateRange.getStartDate());
-        final InvoiceFooter invoiceFooter = new InvoiceFooter(bizName);
-
-        final StringBuffer sb = new StringBuffer();
-        final Formatter formatter = new Formatter(sb, Locale.US);
+        final StringWriter out = new StringWriter();
+        try {
+            write(out);
+        } catch (final IOException ex) {
+            // StringWriter never throws IOException
+            throw new IllegalStateException(ex);
+        }
+        return out.toString();
+    }
 
-        formatter.format("%s", invoiceHeader);
+    /**
+     * Produces the line items for this Invoice's client and month from a
+     * TimeEntryStore, scanning the entries in the order they were added to
+     * the store and matching accounts by id.
+     */
+    private final class StoreLineItems implements Iterator<InvoiceLineItem> {
+        /** The cursor over the store's entries. */
+        private final TimeEntryStore.Cursor cursor;
+
+        /** Whether each account id, known when created, is this client's. */
+        private final boolean[] isClient;
+
+        /** The next line item, null if not yet found. */
+        private InvoiceLineItem nextItem;
+
+        /**
+         * Construct a StoreLineItems.
+         *
+         * @param store the store to produce the line items from
+         */
+        StoreLineItems(final TimeEntryStore store) {
+            cursor = store.cursor();
+            isClient = new boolean[store.getAccountCount()];
+            for (int id = 0; id < isClient.length; id++) {
+                final Account account = store.getAccount(id);
+                isClient[id] = account.isBillable()
+                               && client.getName().equalsIgnoreCase(account.getName());
+            }
+        }
 
-        for (int i = 0, itemsPrinted = 1; i < lineItems.size(); i++, itemsPrinted++) {
-            final InvoiceLineItem invoiceLineItem = lineItems.get(i);
-            formatter.format("%s%n", invoiceLineItem);
+        /**
+         * Whether there is another line item, advances the cursor to it.
+         *
+         * @return true if there is another line item.
+         */
+        @Override
+        public boolean hasNext() {
+            while (nextItem == null && cursor.next()) {
+                final int accountId = cursor.getAccountId();
+                if (accountId < isClient.length && isClient[accountId]
+                    && dateRange.isInRange(cursor.getEpochDay())) {
+                    nextItem = new InvoiceLineItem(cursor.getEpochDay(),
+                                                   cursor.getConsultant(),
+                                                   cursor.getSkill(),
+                                                   cursor.getHours());
+                }
+            }
+            return nextItem != null;
+        }
 
-            if (itemsPrinted % ITEMS_PER_PAGE == 0) {
-                invoiceFooter.incrementPageNumber();
-                formatter.format("%s%n%s", invoiceFooter, invoiceHeader);
+        /**
+         * Gets the next line item.
+         *
+         * @return the next line item.
+         */
+        @Override
+        public InvoiceLineItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
             }
+            final InvoiceLineItem item = nextItem;
+            nextItem = null;
+            return item;
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Formats the pages of this Invoice from a source of line items, taking
+     * each page's items from the source as the page is formatted.  Only the
+     * items of the current page are held; whether the items themselves are
+     * created on demand depends on the source.  Every page but the last holds
+     * ITEMS_PER_PAGE items, the last holds any remaining items, possibly
+     * none, and the invoice totals.
+     */
+    private final class Pages implements Iterator<InvoicePage> {
+        /** The source of the line items. */
+        private final Iterator<InvoiceLineItem> items;
+
+        /** The formatted header, shared by every page. */
+        private final String header;
+
+        /** The page footer. */
+        private final InvoiceFooter invoiceFooter;
+
+        /** The number of the last page produced. */
+        private int pageNumber;
+
+        /** Hours of the line items on the pages produced. */
+        private int hours;
+
+        /** Charges of the line items on the pages produced. */
+        private int charges;
+
+        /** Whether the last page has been produced. */
+        private boolean done;
+
+        /**
+         * Construct a Pages.
+         *
+         * @param items the source of the line items
+         */
+        Pages(final Iterator<InvoiceLineItem> items) {
+            this.items = items;
+            this.header = new InvoiceHeader(businessProfile, client, invoiceDate,
+                                            dateRange.getStartDate()).toString();
+            this.invoiceFooter = new InvoiceFooter(businessProfile.getName());
         }
-        invoiceFooter.incrementPageNumber();
 
-        formatter.format("%nTotal: %60d  %,10.2f", totalHours, (double)totalCharges)
-                 .format("%s", invoiceFooter);
+        /**
+         * Whether there is another page.
+         *
+         * @return true until the last page has been produced.
+         */
+        @Override
+        public boolean hasNext() {
+            return !done;
+        }
+
+        /**
+         * Produces the next page.
+         *
+         * @return the next page.
+         */
+        @Override
+        public InvoicePage next() {
+            if (done) {
+                throw new NoSuchElementException();
+            }
+            final List<InvoiceLineItem> pageItems =
+                new ArrayList<InvoiceLineItem>(ITEMS_PER_PAGE);
+            while (pageItems.size() < ITEMS_PER_PAGE && items.hasNext()) {
+                final InvoiceLineItem lineItem = items.next();
+                pageItems.add(lineItem);
+                hours += lineItem.getHours();
+                charges += lineItem.getCharge();
+            }
+            done = pageItems.size() < ITEMS_PER_PAGE;
+            pageNumber++;
+            invoiceFooter.incrementPageNumber();
+            return new InvoicePage(pageNumber, header, pageItems, hours, charges,
+                                   done, invoiceFooter.toString());
+        }
 
-        return formatter.toString();
+        /**
+         * Not supported.
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 }
@@ -1,6 +1,6 @@
 package com.scg.domain;
 
-import java.util.Locale;
+import com.scg.util.TextTemplate;
 
 /**
  * Footer for Small Consulting Group Invoices.
@@ -12,6 +12,12 @@ final class InvoiceFooter {
     private static final String PAGE_BREAK =
         "===============================================================================";
 
+    /** Footer format string. */
+    private static final String FOOTER_FORMAT = "%n%n%n%-69s Page: %3d%n%s%n";
+
+    /** Compiled footer format. */
+    private static final TextTemplate FOOTER_TEMPLATE = TextTemplate.compile(FOOTER_FORMAT);
+
     /**  The page number. */
     private int pageNumber;
 
@@ -42,8 +48,18 @@ final class InvoiceFooter {
      */
     @Override
     public String toString() {
-        return String.format(Locale.US, "%n%n%n%-69s Page: %3d%n%s%n",
-                             businessName, pageNumber, PAGE_BREAK);
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Append the formatted footer to a buffer.
+     *
+     * @param sb the buffer to append to
+     *
+     * @return the buffer.
+     */
+    StringBuilder appendTo(final StringBuilder sb) {
+        return FOOTER_TEMPLATE.appendTo(sb, businessName, pageNumber, PAGE_BREAK);
     }
 
 }
@@ -1,10 +1,8 @@
 package com.scg.domain;
 
 import java.util.Date;
-import java.util.Formatter;
-import java.util.Locale;
 
-import com.scg.util.Address;
+import com.scg.util.TextTemplate;
 
 /**
  * Header for Small Consulting Group Invoices.
@@ -16,10 +14,14 @@ final class InvoiceHeader {
     private static final String HEADER_FORMAT =
         "%s%n%s%n%nInvoice for:%n%s%nInvoice For Month of: %4$tB %4$tY%nInvoice Date: %5$tB %5$td, %5$tY%n%n";
 
-    /** Format string for a line header on the invoice. */
-    private static final String LINE_HEADER_FORMAT =
+    /** Compiled header format. */
+    private static final TextTemplate HEADER_TEMPLATE = TextTemplate.compile(HEADER_FORMAT);
+
+    /** The line header on the invoice. */
+    private static final String LINE_HEADER = TextTemplate.compile(
           "Date        Consultant                   Skill                Hours  Charge%n"
-        + "----------  ---------------------------  ------------------   -----  ----------%n";
+        + "----------  ---------------------------  ------------------   -----  ----------%n")
+        .format();
 
     /**
      * Client for the invoice with this header.
@@ -36,28 +38,23 @@ final class InvoiceHeader {
      */
     private Date invoiceForMonth;
 
-    /** The business name. */
-    private String businessName;
-
-    /** The business address. */
-    private Address businessAddress;
+    /** The invoicing business' profile. */
+    private BusinessProfile businessProfile;
 
 
     /**
      * Construct an InvoiceHeader.
      *
-     * @param businessName name of business issuing invoice
-     * @param businessAddress address of business issuing invoice
+     * @param businessProfile profile of the business issuing invoice
      * @param client client for the invoice with this header.
      * @param invoiceDate date of the invoice with this header.
      * @param invoiceForMonth month of billable charges for invoice with this header.
      */
-    public InvoiceHeader(final String businessName, final Address businessAddress,
+    public InvoiceHeader(final BusinessProfile businessProfile,
                          final ClientAccount client, final Date invoiceDate,
                          final Date invoiceForMonth) {
 
-        this.businessName = businessName;
-        this.businessAddress = businessAddress;
+        this.businessProfile = businessProfile;
         this.client = client;
         this.invoiceDate = new Date(invoiceDate.getTime());
         this.invoiceForMonth = new Date(invoiceForMonth.getTime());
@@ -71,11 +68,10 @@ final class InvoiceHeader {
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
-        final Formatter formatter = new Formatter(sb, Locale.US);
-        formatter.format(HEADER_FORMAT, businessName, businessAddress,
-                         client, invoiceForMonth, invoiceDate)
-                 .format(LINE_HEADER_FORMAT);
+        HEADER_TEMPLATE.appendTo(sb, businessProfile.getName(), businessProfile.getAddress(),
+                                 client, invoiceForMonth, invoiceDate)
+                       .append(LINE_HEADER);
 
-        return formatter.toString();
+        return sb.toString();
     }
 }
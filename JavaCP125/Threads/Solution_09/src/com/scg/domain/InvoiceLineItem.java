@@ -1,7 +1,9 @@
 package com.scg.domain;
 
 import java.util.Date;
-import java.util.Locale;
+
+import com.scg.util.EpochDays;
+import com.scg.util.TextTemplate;
 
 /**
  * Encapsulates a single billable item to be included in an invoice.
@@ -12,8 +14,11 @@ public final class InvoiceLineItem {
     /** Format string for line item. */
     private static final String LINE_FORMAT = "%1$tm/%1$td/%1$tY  %2$-28s %3$-20s %4$5d    %5$,8.2f";
 
-    /** The date of this line item. */
-    private Date date;
+    /** Compiled line item format. */
+    private static final TextTemplate LINE_TEMPLATE = TextTemplate.compile(LINE_FORMAT);
+
+    /** The date of this line item, as an epoch day. */
+    private long epochDay;
 
     /** The consultant delivering this line item. */
     private Consultant consultant;
@@ -37,11 +42,24 @@ public final class InvoiceLineItem {
      */
     public InvoiceLineItem(final Date date, final Consultant consultant,
                            final Skill skill, final int hours) {
+        this(EpochDays.fromDate(date), consultant, skill, hours);
+    }
+
+    /**
+     * Construct an InvoiceLineItem for a date given as an epoch day.
+     *
+     * @param epochDay The date of this line item, as an epoch day.
+     * @param consultant Consultant for this line item.
+     * @param skill Skill for this line item.
+     * @param hours Hours for this line item.
+     */
+    public InvoiceLineItem(final long epochDay, final Consultant consultant,
+                           final Skill skill, final int hours) {
         if (hours <= 0) {
             throw new IllegalArgumentException(
                     "InvoiceLineItem requires hours > 0");
         }
-        this.date = new Date(date.getTime());
+        this.epochDay = epochDay;
         this.consultant = consultant;
         this.skill = skill;
         this.hours = hours;
@@ -91,8 +109,19 @@ public final class InvoiceLineItem {
      */
     @Override
     public String toString() {
-        return String.format(Locale.US, LINE_FORMAT, date, consultant.getName(),
-                             skill.getName(), hours, (double)charge);
+        return appendTo(new StringBuilder()).toString();
+    }
+
+    /**
+     * Append this line item to a buffer.
+     *
+     * @param sb the buffer to append to
+     *
+     * @return the buffer.
+     */
+    StringBuilder appendTo(final StringBuilder sb) {
+        return LINE_TEMPLATE.appendTo(sb, Long.valueOf(epochDay), consultant.getName(),
+                                      skill.getName(), hours, charge);
     }
 
 }
@@ -0,0 +1,211 @@
+package com.scg.domain;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.List;
+
+import com.scg.util.TextTemplate;
+
+/**
+ * A single printable page of an Invoice.  Each page carries the invoice
+ * header and its own footer, already formatted, the line items printed on
+ * the page and the totals of those items.  The last page of an invoice also
+ * carries the invoice totals.  Pages are produced by Invoice.pages, a page
+ * at a time, so an invoice may be written without holding all of its pages.
+ *
+ * @author Russ Moul
+ */
+public final class InvoicePage {
+    /** The line separator. */
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /** Compiled format of the invoice total line. */
+    private static final TextTemplate TOTAL_TEMPLATE =
+        TextTemplate.compile("%nTotal: %60d  %,10.2f");
+
+    /** The 1-based page number. */
+    private final int pageNumber;
+
+    /** The formatted invoice header. */
+    private final String header;
+
+    /** The line items printed on this page. */
+    private final List<InvoiceLineItem> lineItems;
+
+    /** Hours of the line items on this page. */
+    private final int hours;
+
+    /** Charges of the line items on this page. */
+    private final int charges;
+
+    /** Hours of the line items on this and all preceding pages. */
+    private final int totalHours;
+
+    /** Charges of the line items on this and all preceding pages. */
+    private final int totalCharges;
+
+    /** Whether this is the last page of the invoice. */
+    private final boolean last;
+
+    /** The formatted page footer. */
+    private final String footer;
+
+    /**
+     * Construct an InvoicePage.
+     *
+     * @param pageNumber the 1-based page number
+     * @param header the formatted invoice header
+     * @param lineItems the line items printed on this page
+     * @param totalHours hours of the items on this and all preceding pages
+     * @param totalCharges charges of the items on this and all preceding pages
+     * @param last whether this is the last page of the invoice
+     * @param footer the formatted page footer
+     */
+    InvoicePage(final int pageNumber, final String header,
+                final List<InvoiceLineItem> lineItems,
+                final int totalHours, final int totalCharges,
+                final boolean last, final String footer) {
+        int pageHours = 0;
+        int pageCharges = 0;
+        for (final InvoiceLineItem lineItem : lineItems) {
+            pageHours += lineItem.getHours();
+            pageCharges += lineItem.getCharge();
+        }
+        this.pageNumber = pageNumber;
+        this.header = header;
+        this.lineItems = Collections.unmodifiableList(lineItems);
+        this.hours = pageHours;
+        this.charges = pageCharges;
+        this.totalHours = totalHours;
+        this.totalCharges = totalCharges;
+        this.last = last;
+        this.footer = footer;
+    }
+
+    /**
+     * Gets the page number.
+     *
+     * @return the 1-based page number.
+     */
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    /**
+     * Gets the formatted invoice header printed at the top of the page.
+     *
+     * @return the header.
+     */
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * Gets the line items printed on this page.
+     *
+     * @return unmodifiable list of the line items, may be empty.
+     */
+    public List<InvoiceLineItem> getLineItems() {
+        return lineItems;
+    }
+
+    /**
+     * Gets the hours of the line items on this page.
+     *
+     * @return the page hours.
+     */
+    public int getHours() {
+        return hours;
+    }
+
+    /**
+     * Gets the charges of the line items on this page.
+     *
+     * @return the page charges.
+     */
+    public int getCharges() {
+        return charges;
+    }
+
+    /**
+     * Gets the hours of the line items on this and all preceding pages, on
+     * the last page these are the invoice's total hours.
+     *
+     * @return the running total hours.
+     */
+    public int getTotalHours() {
+        return totalHours;
+    }
+
+    /**
+     * Gets the charges of the line items on this and all preceding pages, on
+     * the last page these are the invoice's total charges.
+     *
+     * @return the running total charges.
+     */
+    public int getTotalCharges() {
+        return totalCharges;
+    }
+
+    /**
+     * Whether this is the last page of the invoice, the page on which the
+     * invoice totals are printed.
+     *
+     * @return true if this is the last page.
+     */
+    public boolean isLast() {
+        return last;
+    }
+
+    /**
+     * Gets the formatted footer printed at the bottom of the page.
+     *
+     * @return the footer.
+     */
+    public String getFooter() {
+        return footer;
+    }
+
+    /**
+     * Append the printable page to a buffer.
+     *
+     * @param sb the buffer to append to
+     *
+     * @return the buffer.
+     */
+    public StringBuilder appendTo(final StringBuilder sb) {
+        sb.append(header);
+        for (final InvoiceLineItem lineItem : lineItems) {
+            lineItem.appendTo(sb).append(LINE_SEPARATOR);
+        }
+        if (last) {
+            TOTAL_TEMPLATE.appendTo(sb, totalHours, totalCharges);
+            sb.append(footer);
+        } else {
+            sb.append(footer).append(LINE_SEPARATOR);
+        }
+        return sb;
+    }
+
+    /**
+     * Write the printable page to a Writer.
+     *
+     * @param out the writer to write to, not flushed or closed by this method
+     *
+     * @throws IOException if the write fails
+     */
+    public void write(final Writer out) throws IOException {
+        out.write(appendTo(new StringBuilder()).toString());
+    }
+
+    /**
+     * Print the formatted page.
+     *
+     * @return the formatted page.
+     */
+    @Override
+    public String toString() {
+        return appendTo(new StringBuilder()).toString();
+    }
+}
@@ -0,0 +1,133 @@
+package com.scg.domain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A concurrent registry of values, each identified by a key derived from the
+ * value.  Registration and lookup are constant time and never block other
+ * threads.  Iteration is in registration order and weakly consistent; it
+ * never throws ConcurrentModificationException and may or may not reflect
+ * values registered after the iterator was created.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ *
+ * @author Russ Moul
+ */
+public abstract class Registry<K, V> implements Iterable<V> {
+    /** The registered values, by key. */
+    private final ConcurrentMap<K, V> byKey = new ConcurrentHashMap<K, V>();
+
+    /** The registered values, in registration order. */
+    private final Queue<V> inOrder = new ConcurrentLinkedQueue<V>();
+
+    /**
+     * Gets the key identifying a value.
+     *
+     * @param value the value
+     *
+     * @return the value's key, never null
+     */
+    protected abstract K keyOf(V value);
+
+    /**
+     * Gets the instance of a value to register, by default the value itself.
+     * Registries of immutable values may override this to register a
+     * canonical instance.
+     *
+     * @param value the value
+     *
+     * @return the instance to register
+     */
+    protected V canonical(final V value) {
+        return value;
+    }
+
+    /**
+     * Register a value, unless a value with the same key is already
+     * registered.  The value's canonical instance is registered.
+     *
+     * @param value the value to register
+     *
+     * @return the value already registered with the same key, or null if
+     *         the value was registered
+     */
+    public V putIfAbsent(final V value) {
+        final V registered = canonical(value);
+        final V existing = byKey.putIfAbsent(keyOf(registered), registered);
+        if (existing == null) {
+            inOrder.add(registered);
+        }
+        return existing;
+    }
+
+    /**
+     * Register each of a collection of values, skipping those whose key is
+     * already registered.
+     *
+     * @param values the values to register
+     */
+    public void putAllAbsent(final Iterable<? extends V> values) {
+        for (final V value : values) {
+            putIfAbsent(value);
+        }
+    }
+
+    /**
+     * Gets the value registered with a key.
+     *
+     * @param key the key
+     *
+     * @return the value, or null if no value is registered with the key
+     */
+    public V get(final K key) {
+        return byKey.get(key);
+    }
+
+    /**
+     * Whether a value with the same key as the value is registered.
+     *
+     * @param value the value
+     *
+     * @return true if registered
+     */
+    public boolean contains(final V value) {
+        return byKey.containsKey(keyOf(value));
+    }
+
+    /**
+     * Gets the number of registered values.
+     *
+     * @return the number of values.
+     */
+    public int size() {
+        return byKey.size();
+    }
+
+    /**
+     * Gets an iterator over the registered values, in registration order.
+     * The iterator does not support removal.
+     *
+     * @return a weakly consistent iterator.
+     */
+    @Override
+    public Iterator<V> iterator() {
+        return Collections.unmodifiableCollection(inOrder).iterator();
+    }
+
+    /**
+     * Gets a snapshot of the registered values, in registration order.
+     *
+     * @return a new list of the values.
+     */
+    public List<V> toList() {
+        return new ArrayList<V>(inOrder);
+    }
+}
@@ -1,12 +1,20 @@
 package com.scg.domain;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Formatter;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+
+import com.scg.util.EpochDays;
+import com.scg.util.TextTemplate;
 
 /**
  * Encapsulates a time card capable of storing a consultant's billable and
@@ -14,42 +22,65 @@ import java.util.Locale;
  *
  * @author Russ Moul
  */
-@SuppressWarnings("serial")
 public final class TimeCard implements Comparable<TimeCard>, Serializable {
+    /**
+     * serialVersionUID, the value computed for the class when the week
+     * starting day was held as a Date.
+     */
+    private static final long serialVersionUID = -21135173788883990L;
+
+    /**
+     * The serialized fields, the week starting day is serialized as a Date so
+     * the serial form is unchanged from when it was held as one.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("weekStartingDay", Date.class),
+        new ObjectStreamField("consultant", Consultant.class),
+        new ObjectStreamField("totalBillableHours", Integer.TYPE),
+        new ObjectStreamField("totalNonBillableHours", Integer.TYPE),
+        new ObjectStreamField("consultingHours", List.class),
+        new ObjectStreamField("totalHours", Integer.TYPE)
+    };
+
     /** Factor used in calculating hashCode. */
     private static final int HASH_FACTOR = 37;
 
-    /** Format string for the time card header. */
-    private static final String TO_STRING_FORMAT = "TimeCard for: %s, Week Starting: %2$tb %2$td,%2$tY\n";
+    /** Format of the time card string representation. */
+    private static final TextTemplate TO_STRING_FORMAT =
+        TextTemplate.compile("TimeCard for: %s, Week Starting: %2$tb %2$td,%2$tY\n");
 
-    /** Format string for the time card header. */
-    private static final String HEADER_FORMAT = "Consultant: %-29s Week Starting: %2$tb %2$td,%2$tY\n";
+    /** Format of the time card header. */
+    private static final TextTemplate HEADER_FORMAT =
+        TextTemplate.compile("Consultant: %-29s Week Starting: %2$tb %2$td,%2$tY\n");
 
-    /** Format string for a line header on the time card. */
-    private static final String LINE_HEADER_FORMAT = String.format("%-28s %-10s  %5s  %s%n"
-            + "---------------------------  ----------  -----  --------------------%n",
-            "Account", "Date", "Hours", "Skill");
+    /** The line header on the time card. */
+    private static final String LINE_HEADER = TextTemplate.compile("%-28s %-10s  %5s  %s%n"
+            + "---------------------------  ----------  -----  --------------------%n")
+            .format("Account", "Date", "Hours", "Skill");
 
     /** A border for the time card */
-    private static final String CARD_BORDER = "====================================================================%n";
+    private static final String CARD_BORDER = TextTemplate.compile(
+            "====================================================================%n").format();
 
-    /** Format string for a line on the time card. */
-    private static final String LINE_FORMAT = "%-28s %2$tm/%2$td/%2$tY  %3$5d  %4$s%n";
+    /** Format of a line on the time card. */
+    private static final TextTemplate LINE_FORMAT =
+        TextTemplate.compile("%-28s %2$tm/%2$td/%2$tY  %3$5d  %4$s%n");
 
-    /** Format string for a summary line on the time card. */
-    private static final String SUMMARY_LINE_FORMAT = "%-39s  %5d%n";
+    /** Format of a summary line on the time card. */
+    private static final TextTemplate SUMMARY_LINE_FORMAT = TextTemplate.compile("%-39s  %5d%n");
 
-    /** Format string for the billable time section header on the time card. */
-    private static final String BILLABLE_TIME_HEADER_FORMAT = "%nBillable Time:%n";
+    /** The billable time section header on the time card. */
+    private static final String BILLABLE_TIME_HEADER = TextTemplate.compile("%nBillable Time:%n").format();
 
-    /** Format string for the non-billable time section header on the time card. */
-    private static final String NON_BILLABLE_TIME_HEADER_FORMAT = "%nNon-billable Time:%n";
+    /** The non-billable time section header on the time card. */
+    private static final String NON_BILLABLE_TIME_HEADER =
+        TextTemplate.compile("%nNon-billable Time:%n").format();
 
-    /** Format string for the summary section header on the time card. */
-    private static final String SUMMARY_HEADER_FORMAT = "%nSummary:%n";
+    /** The summary section header on the time card. */
+    private static final String SUMMARY_HEADER = TextTemplate.compile("%nSummary:%n").format();
 
-    /** Holds value of property weekStartingDay. */
-    private Date weekStartingDay;
+    /** Holds value of property weekStartingDay, as an epoch day. */
+    private long weekStartingEpochDay;
 
     /** Holds value of property consultant. */
     private Consultant consultant;
@@ -66,6 +97,12 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
     /** Holds value of property totalHours. */
     private int totalHours;
 
+    /**
+     * The billable consulting hours grouped by client, keyed by the canonical
+     * form of the account name, in the order they were added.
+     */
+    private transient Map<String, List<ConsultantTime>> billableHoursByClient;
+
 
     /**
      * Creates a new instance of TimeCard
@@ -77,11 +114,12 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
      */
     public TimeCard(final Consultant consultant, final Date weekStartingDay) {
         this.consultant = consultant;
-        this.weekStartingDay = new Date(weekStartingDay.getTime());
+        this.weekStartingEpochDay = EpochDays.fromDate(weekStartingDay);
         this.totalHours = 0;
         this.totalBillableHours = 0;
         this.totalNonBillableHours = 0;
         this.consultingHours = new ArrayList<ConsultantTime>();
+        this.billableHoursByClient = new HashMap<String, List<ConsultantTime>>();
     }
 
     /**
@@ -127,9 +165,11 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
      */
     public void addConsultantTime(final ConsultantTime consultantTime) {
         consultingHours.add(consultantTime);
+        consultantTime.setOwner(this);
         final int addedHours = consultantTime.getHours();
         if (consultantTime.isBillable()) {
             totalBillableHours += addedHours;
+            groupBillableHours(consultantTime);
         } else {
             totalNonBillableHours += addedHours;
         }
@@ -151,45 +191,140 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
      * @return Value of property weekStartingDay.
      */
     public Date getWeekStartingDay() {
-        return new Date(weekStartingDay.getTime());
+        return EpochDays.toDate(weekStartingEpochDay);
+    }
+
+    /**
+     * Gets the epoch day of the first work day of the week.
+     *
+     * @return the week starting day as an epoch day.
+     */
+    public long getWeekStartingEpochDay() {
+        return weekStartingEpochDay;
     }
 
     /**
      * Returns the billable hours (if any) in this TimeCard for the specified
-     * Client.
+     * Client.  The client name is matched ignoring case.
      *
      * @param clientName
      *            name of the client to extract hours for.
-     * @return list of billable hours for the client.
+     * @return read-only list of billable hours for the client.
      */
     public List<ConsultantTime> getBillableHoursForClient(final String clientName) {
-        final ArrayList<ConsultantTime> billableConsultingHours = new ArrayList<ConsultantTime>();
-        for (ConsultantTime currentTime : consultingHours) {
-            if (clientName.equalsIgnoreCase(currentTime.getAccount().getName())) {
-                if (currentTime.isBillable()) {
-                    billableConsultingHours.add(currentTime);
-                }
+        final List<ConsultantTime> billableConsultingHours =
+            billableHoursByClient.get(canonicalName(clientName));
+        if (billableConsultingHours == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(billableConsultingHours);
+    }
+
+    /**
+     * Add billable hours to the group for their client.
+     *
+     * @param consultantTime the billable hours
+     */
+    private void groupBillableHours(final ConsultantTime consultantTime) {
+        final String key = canonicalName(consultantTime.getAccount().getName());
+        List<ConsultantTime> hours = billableHoursByClient.get(key);
+        if (hours == null) {
+            hours = new ArrayList<ConsultantTime>();
+            billableHoursByClient.put(key, hours);
+        }
+        hours.add(consultantTime);
+    }
+
+    /**
+     * Regroup all of the billable hours by client.
+     */
+    private void regroupBillableHours() {
+        billableHoursByClient = new HashMap<String, List<ConsultantTime>>();
+        for (final ConsultantTime consultantTime : consultingHours) {
+            if (consultantTime.isBillable()) {
+                groupBillableHours(consultantTime);
             }
         }
+    }
 
-        return billableConsultingHours;
+    /**
+     * Called when the account of hours on this time card is changed, the
+     * billable hours are regrouped so the hours are found under their new
+     * client and each group stays in the order the hours were added.
+     */
+    void accountChanged() {
+        regroupBillableHours();
+    }
+
+    /**
+     * Gets the canonical, case-insensitive, form of an account name.
+     *
+     * @param name the account name
+     *
+     * @return the canonical name.
+     */
+    private static String canonicalName(final String name) {
+        return name.toUpperCase(Locale.US).toLowerCase(Locale.US);
+    }
+
+    /**
+     * Write the serialized fields, the week starting day as a Date.
+     *
+     * @param out the stream to write to
+     *
+     * @throws IOException if the write fails
+     */
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("weekStartingDay", getWeekStartingDay());
+        fields.put("consultant", consultant);
+        fields.put("totalBillableHours", totalBillableHours);
+        fields.put("totalNonBillableHours", totalNonBillableHours);
+        fields.put("consultingHours", consultingHours);
+        fields.put("totalHours", totalHours);
+        out.writeFields();
+    }
+
+    /**
+     * Read the serialized fields, converting the week starting day to an
+     * epoch day, and group the billable hours by client.
+     *
+     * @param in the stream to read from
+     *
+     * @throws IOException if the read fails
+     * @throws ClassNotFoundException if a class can't be found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        weekStartingEpochDay = EpochDays.fromDate((Date)fields.get("weekStartingDay", null));
+        consultant = (Consultant)fields.get("consultant", null);
+        totalBillableHours = fields.get("totalBillableHours", 0);
+        totalNonBillableHours = fields.get("totalNonBillableHours", 0);
+        consultingHours = (List<ConsultantTime>)fields.get("consultingHours", null);
+        totalHours = fields.get("totalHours", 0);
+        for (final ConsultantTime consultantTime : consultingHours) {
+            consultantTime.setOwner(this);
+        }
+        regroupBillableHours();
     }
 
     /**
      * Add the consulting hours lines to the invoice.
      *
-     * @param formatter the formatter to add the lines to
+     * @param sb the buffer to add the lines to
      * @param hours the list of consulting hours
      * @param billable if true billable hours will be added otherwise non-billable
      */
-    private void appendTime(final Formatter formatter, final List<ConsultantTime> hours,
+    private void appendTime(final StringBuilder sb, final List<ConsultantTime> hours,
                             final boolean billable) {
         for (ConsultantTime currentTime : hours) {
             if (currentTime.isBillable() == billable) {
-                formatter.format(LINE_FORMAT, currentTime.getAccount().getName(),
-                                              currentTime.getDate(),
-                                              currentTime.getHours(),
-                                              currentTime.getSkill().getName());
+                LINE_FORMAT.appendTo(sb, currentTime.getAccount().getName(),
+                                         currentTime.getDateArgument(),
+                                         currentTime.getHours(),
+                                         currentTime.getSkill().getName());
             }
         }
     }
@@ -201,7 +336,7 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
      */
     @Override
     public String toString() {
-        return String.format(TO_STRING_FORMAT, consultant.getName(), weekStartingDay);
+        return TO_STRING_FORMAT.format(consultant.getName(), Long.valueOf(weekStartingEpochDay));
     }
 
     /**
@@ -212,27 +347,26 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
      */
     public String toReportString() {
         final StringBuilder sb = new StringBuilder();
-        final Formatter formatter = new Formatter(sb, Locale.US);
         // Put on a header.
-        formatter.format(CARD_BORDER)
-                 .format(HEADER_FORMAT, consultant.getName(), weekStartingDay)
-                 .format(BILLABLE_TIME_HEADER_FORMAT)
-                 .format(LINE_HEADER_FORMAT);
+        sb.append(CARD_BORDER);
+        HEADER_FORMAT.appendTo(sb, consultant.getName(), Long.valueOf(weekStartingEpochDay))
+                     .append(BILLABLE_TIME_HEADER)
+                     .append(LINE_HEADER);
 
-        appendTime(formatter, consultingHours, true);
+        appendTime(sb, consultingHours, true);
 
-        formatter.format(NON_BILLABLE_TIME_HEADER_FORMAT)
-                 .format(LINE_HEADER_FORMAT);
+        sb.append(NON_BILLABLE_TIME_HEADER)
+          .append(LINE_HEADER);
 
-        appendTime(formatter, consultingHours, false);
+        appendTime(sb, consultingHours, false);
 
-        formatter.format(SUMMARY_HEADER_FORMAT)
-                 .format(SUMMARY_LINE_FORMAT, "Total Billable:", totalBillableHours)
-                 .format(SUMMARY_LINE_FORMAT, "Total Non-Billable:", totalNonBillableHours)
-                 .format(SUMMARY_LINE_FORMAT, "Total Hours:", totalHours)
-                 .format(CARD_BORDER);
+        sb.append(SUMMARY_HEADER);
+        SUMMARY_LINE_FORMAT.appendTo(sb, "Total Billable:", totalBillableHours);
+        SUMMARY_LINE_FORMAT.appendTo(sb, "Total Non-Billable:", totalNonBillableHours);
+        SUMMARY_LINE_FORMAT.appendTo(sb, "Total Hours:", totalHours);
+        sb.append(CARD_BORDER);
 
-        return formatter.toString();
+        return sb.toString();
     }
 
     /**
@@ -248,7 +382,8 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
     public int compareTo(final TimeCard other) {
         int returnValue;
         
-        returnValue = weekStartingDay.compareTo(other.getWeekStartingDay());
+        returnValue = (weekStartingEpochDay < other.weekStartingEpochDay) ? -1
+                    : ((weekStartingEpochDay == other.weekStartingEpochDay) ? 0 : 1);
 
         if (returnValue == 0) {
             returnValue = consultant.compareTo(other.getConsultant());
@@ -267,7 +402,7 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
         result = HASH_FACTOR * result + totalBillableHours;
         result = HASH_FACTOR * result + totalHours;
         result = HASH_FACTOR * result + totalNonBillableHours;
-        result = HASH_FACTOR * result + ((weekStartingDay == null) ? 0 : weekStartingDay.hashCode());
+        result = HASH_FACTOR * result + (int)(weekStartingEpochDay ^ (weekStartingEpochDay >>> 32));
         return result;
     }
 
@@ -309,11 +444,7 @@ public final class TimeCard implements Comparable<TimeCard>, Serializable {
         if (totalNonBillableHours != other.totalNonBillableHours) {
             return false;
         }
-        if (weekStartingDay == null) {
-            if (other.weekStartingDay != null) {
-                return false;
-            }
-        } else if (!weekStartingDay.equals(other.weekStartingDay)) {
+        if (weekStartingEpochDay != other.weekStartingEpochDay) {
             return false;
         }
         return true;
@@ -0,0 +1,465 @@
+package com.scg.domain;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A columnar store of time entries.  Each field of the entries is held in
+ * its own column of ints, on or off heap: the epoch day, hours, skill
+ * ordinal and the dictionary encoded ids of the account and consultant.  An
+ * entry costs ENTRY_SIZE bytes rather than the several objects of a
+ * ConsultantTime, and entries are scanned through a reusable Cursor, a
+ * flyweight reading the columns directly, without allocating.
+ * <p>
+ * Entries are only ever appended, and are numbered from zero in the order
+ * they were added.  Adding is synchronized, a Cursor sees the entries added
+ * before it was created and may be used concurrently with further adds.
+ *
+ * @author Russ Moul
+ */
+public final class TimeEntryStore {
+    /** The size of an entry, in bytes. */
+    public static final int ENTRY_SIZE = 20;
+
+    /** The largest number of entries, limited by the size of a direct column. */
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / (Integer.SIZE / Byte.SIZE);
+
+    /** Default initial capacity, in entries. */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /** The skills, by ordinal. */
+    private static final Skill[] SKILLS = Skill.values();
+
+    /** If true the columns are stored in direct, off heap, buffers. */
+    private final boolean direct;
+
+    /** The account dictionary. */
+    private final Dictionary<Account> accounts = new Dictionary<Account>();
+
+    /** The consultant dictionary. */
+    private final Dictionary<Consultant> consultants = new Dictionary<Consultant>();
+
+    /** The columns, replaced by larger copies when full. */
+    private volatile Columns columns;
+
+    /** The number of entries, written after the entries' columns. */
+    private volatile int size;
+
+    /**
+     * Construct an empty heap backed TimeEntryStore.
+     */
+    public TimeEntryStore() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * Construct an empty TimeEntryStore.
+     *
+     * @param initialCapacity the initial capacity, in entries
+     * @param direct if true the columns are stored off heap in direct buffers
+     *
+     * @throws IllegalArgumentException if the capacity is not positive or is
+     *         greater than MAX_CAPACITY
+     */
+    public TimeEntryStore(final int initialCapacity, final boolean direct) {
+        if (initialCapacity <= 0 || initialCapacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("Invalid capacity: " + initialCapacity);
+        }
+        this.direct = direct;
+        columns = new Columns(initialCapacity, direct);
+    }
+
+    /**
+     * Add the entries of a time card.
+     *
+     * @param timeCard the time card
+     *
+     * @return the number of the first entry added.
+     */
+    public int add(final TimeCard timeCard) {
+        return add(timeCard.getConsultant(), timeCard.getConsultingHours());
+    }
+
+    /**
+     * Add entries of a consultant.  The entries are numbered consecutively,
+     * in list order.
+     *
+     * @param consultant the consultant the time is for
+     * @param consultantTimes the time, each of which must have a date
+     *
+     * @return the number of the first entry added.
+     *
+     * @throws IllegalArgumentException if a time has no date, no entries are
+     *         added
+     * @throws IllegalStateException if the store is full
+     */
+    public synchronized int add(final Consultant consultant,
+                                final List<ConsultantTime> consultantTimes) {
+        for (final ConsultantTime consultantTime : consultantTimes) {
+            final long epochDay = consultantTime.getEpochDay();
+            if (epochDay < Integer.MIN_VALUE || epochDay > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Time entry has no date: " + consultantTime);
+            }
+        }
+        final int first = size;
+        if (consultantTimes.size() > MAX_CAPACITY - first) {
+            throw new IllegalStateException("TimeEntryStore is full");
+        }
+        ensureCapacity(first + consultantTimes.size());
+        final Columns current = columns;
+        final int consultantId = consultants.idOf(consultant);
+        int index = first;
+        for (final ConsultantTime consultantTime : consultantTimes) {
+            current.epochDays.put(index, (int)consultantTime.getEpochDay());
+            current.hours.put(index, consultantTime.getHours());
+            current.skills.put(index, consultantTime.getSkill().ordinal());
+            current.accountIds.put(index, accounts.idOf(consultantTime.getAccount()));
+            current.consultantIds.put(index, consultantId);
+            index++;
+        }
+        size = index;
+        return first;
+    }
+
+    /**
+     * Gets the number of entries.
+     *
+     * @return the number of entries.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the number of distinct accounts.  Account ids range from zero to
+     * one less than this count.
+     *
+     * @return the number of accounts.
+     */
+    public int getAccountCount() {
+        return accounts.size();
+    }
+
+    /**
+     * Gets an account by id.
+     *
+     * @param id the account id
+     *
+     * @return the account.
+     */
+    public Account getAccount(final int id) {
+        return accounts.get(id);
+    }
+
+    /**
+     * Gets a consultant by id.
+     *
+     * @param id the consultant id
+     *
+     * @return the consultant.
+     */
+    public Consultant getConsultant(final int id) {
+        return consultants.get(id);
+    }
+
+    /**
+     * Creates a cursor over the entries currently in the store.
+     *
+     * @return a new cursor, positioned before the first entry.
+     */
+    public Cursor cursor() {
+        final int limit = size;
+        return new Cursor(columns, 0, limit);
+    }
+
+    /**
+     * Creates a cursor over a range of the entries in the store.
+     *
+     * @param start the number of the first entry
+     * @param end the number of the entry after the last
+     *
+     * @return a new cursor, positioned before the first entry of the range.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within the
+     *         entries in the store
+     */
+    public Cursor cursor(final int start, final int end) {
+        final int limit = size;
+        if (start < 0 || start > end || end > limit) {
+            throw new IndexOutOfBoundsException("Invalid range: " + start + " to " + end);
+        }
+        return new Cursor(columns, start, end);
+    }
+
+    /**
+     * Ensure the columns can hold a number of entries, replacing them with
+     * copies of at least twice the capacity if not.
+     *
+     * @param required the number of entries
+     */
+    private void ensureCapacity(final int required) {
+        final Columns current = columns;
+        final int capacity = current.epochDays.capacity();
+        if (required > capacity) {
+            final int doubled = (capacity > MAX_CAPACITY / 2) ? MAX_CAPACITY : capacity * 2;
+            final Columns larger = new Columns(Math.max(doubled, required), direct);
+            larger.copy(current, size);
+            columns = larger;
+        }
+    }
+
+    /**
+     * The columns of the entries, one int per entry in each.
+     */
+    private static final class Columns {
+        /** The epoch days. */
+        private final IntBuffer epochDays;
+
+        /** The hours. */
+        private final IntBuffer hours;
+
+        /** The skill ordinals. */
+        private final IntBuffer skills;
+
+        /** The account ids. */
+        private final IntBuffer accountIds;
+
+        /** The consultant ids. */
+        private final IntBuffer consultantIds;
+
+        /**
+         * Construct the Columns.
+         *
+         * @param capacity the capacity, in entries
+         * @param direct if true the columns are stored off heap
+         */
+        Columns(final int capacity, final boolean direct) {
+            epochDays = allocate(capacity, direct);
+            hours = allocate(capacity, direct);
+            skills = allocate(capacity, direct);
+            accountIds = allocate(capacity, direct);
+            consultantIds = allocate(capacity, direct);
+        }
+
+        /**
+         * Copy entries from other columns.
+         *
+         * @param from the columns to copy from
+         * @param count the number of entries to copy
+         */
+        void copy(final Columns from, final int count) {
+            copy(from.epochDays, epochDays, count);
+            copy(from.hours, hours, count);
+            copy(from.skills, skills, count);
+            copy(from.accountIds, accountIds, count);
+            copy(from.consultantIds, consultantIds, count);
+        }
+
+        /**
+         * Copy the start of a column.
+         *
+         * @param from the column to copy from
+         * @param to the column to copy to
+         * @param count the number of entries to copy
+         */
+        private static void copy(final IntBuffer from, final IntBuffer to, final int count) {
+            final IntBuffer used = from.duplicate();
+            used.position(0);
+            used.limit(count);
+            to.put(used);
+            to.clear();
+        }
+
+        /**
+         * Allocate a column.
+         *
+         * @param capacity the capacity, in entries
+         * @param direct if true the column is stored off heap
+         *
+         * @return the column.
+         */
+        private static IntBuffer allocate(final int capacity, final boolean direct) {
+            if (direct) {
+                return ByteBuffer.allocateDirect(capacity * (Integer.SIZE / Byte.SIZE))
+                                 .order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+            return IntBuffer.allocate(capacity);
+        }
+    }
+
+    /**
+     * A flyweight view of the store's entries.  The cursor is advanced through
+     * the entries with next, the accessors reading the fields of the current
+     * entry directly from the columns.  A cursor is not safe for use by
+     * multiple threads.
+     */
+    public final class Cursor {
+        /** The columns when the cursor was created. */
+        private final Columns entries;
+
+        /** The number of the entry after the last. */
+        private final int end;
+
+        /** The number of the current entry, one less than the first before it. */
+        private int index;
+
+        /**
+         * Construct a Cursor.
+         *
+         * @param entries the columns
+         * @param start the number of the first entry
+         * @param end the number of the entry after the last
+         */
+        private Cursor(final Columns entries, final int start, final int end) {
+            this.entries = entries;
+            this.index = start - 1;
+            this.end = end;
+        }
+
+        /**
+         * Advance to the next entry.
+         *
+         * @return false if there are no more entries.
+         */
+        public boolean next() {
+            if (index + 1 >= end) {
+                return false;
+            }
+            index++;
+            return true;
+        }
+
+        /**
+         * Gets the epoch day of the current entry.
+         *
+         * @return the epoch day.
+         */
+        public long getEpochDay() {
+            return entries.epochDays.get(index);
+        }
+
+        /**
+         * Gets the hours of the current entry.
+         *
+         * @return the hours.
+         */
+        public int getHours() {
+            return entries.hours.get(index);
+        }
+
+        /**
+         * Gets the skill of the current entry.
+         *
+         * @return the skill.
+         */
+        public Skill getSkill() {
+            return SKILLS[entries.skills.get(index)];
+        }
+
+        /**
+         * Gets the account id of the current entry.
+         *
+         * @return the account id.
+         */
+        public int getAccountId() {
+            return entries.accountIds.get(index);
+        }
+
+        /**
+         * Gets the account of the current entry.
+         *
+         * @return the account.
+         */
+        public Account getAccount() {
+            return accounts.get(getAccountId());
+        }
+
+        /**
+         * Gets the consultant id of the current entry.
+         *
+         * @return the consultant id.
+         */
+        public int getConsultantId() {
+            return entries.consultantIds.get(index);
+        }
+
+        /**
+         * Gets the consultant of the current entry.
+         *
+         * @return the consultant.
+         */
+        public Consultant getConsultant() {
+            return consultants.get(getConsultantId());
+        }
+    }
+
+    /**
+     * Assigns dense integer ids to values, in order of first use.  Ids are
+     * assigned under the store's lock, lookups by id may be concurrent; an id
+     * is published to other threads through the store's size.
+     *
+     * @param <T> the value type
+     */
+    private static final class Dictionary<T> {
+        /** Initial capacity of the values array. */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /** The ids, by value. */
+        private final Map<T, Integer> ids = new HashMap<T, Integer>();
+
+        /** The values, by id, replaced by a larger copy when full. */
+        private volatile Object[] values = new Object[INITIAL_CAPACITY];
+
+        /** The number of values. */
+        private volatile int count;
+
+        /**
+         * Gets the id of a value, assigning one if it has none.
+         *
+         * @param value the value
+         *
+         * @return the id.
+         */
+        int idOf(final T value) {
+            Integer id = ids.get(value);
+            if (id == null) {
+                Object[] current = values;
+                if (count == current.length) {
+                    current = Arrays.copyOf(current, current.length * 2);
+                }
+                current[count] = value;
+                values = current;
+                id = Integer.valueOf(count);
+                ids.put(value, id);
+                count = count + 1;
+            }
+            return id.intValue();
+        }
+
+        /**
+         * Gets the value with an id.
+         *
+         * @param id the id
+         *
+         * @return the value.
+         */
+        @SuppressWarnings("unchecked")
+        T get(final int id) {
+            return (T)values[id];
+        }
+
+        /**
+         * Gets the number of values.
+         *
+         * @return the number of values.
+         */
+        int size() {
+            return count;
+        }
+    }
+}
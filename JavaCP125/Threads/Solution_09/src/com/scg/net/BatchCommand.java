@@ -0,0 +1,44 @@
+package com.scg.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Command carrying a batch of sub-commands, sent in a single frame to save
+ * round trips.  The server executes the sub-commands in order, each as if it
+ * had been sent on its own; the batch is not atomic, commands from other
+ * connections may be executed between them.
+ *
+ * @author Russ Moul
+ */
+@SuppressWarnings("serial")
+public final class BatchCommand extends Command<List<Command<?>>> {
+
+    /**
+     * Construct a BatchCommand with a list of sub-commands.
+     *
+     * @param target the sub-commands, in the order to be executed.
+     */
+    public BatchCommand(final List<? extends Command<?>> target) {
+        super(Collections.unmodifiableList(new ArrayList<Command<?>>(target)));
+    }
+
+    /**
+     * Execute this command by calling receiver.execute(this).
+     */
+    @Override
+    public void execute() {
+        this.getReceiver().execute(this);
+    }
+
+    /**
+     * A string representation of this command.
+     *
+     * @return the command name and number of sub-commands.
+     */
+    @Override
+    public String toString() {
+        return this.getClass().getSimpleName() + ", " + getTarget().size() + " commands";
+    }
+}
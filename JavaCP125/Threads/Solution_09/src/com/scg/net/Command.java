@@ -12,14 +12,25 @@ import com.scg.net.server.CommandProcessor;
  *
  * @author Russ Moul
  */
-@SuppressWarnings("serial")
 public abstract class Command<T> implements Serializable {
+    /**
+     * serialVersionUID, the value computed for the class before the sequence
+     * number was added, so earlier clients remain compatible.
+     */
+    private static final long serialVersionUID = 5398423461240356060L;
+
     /** The CommandProcessor that will execute this command. */
     private transient CommandProcessor receiver;
 
     /** The Consultant to be added. */
     private T target;
 
+    /**
+     * The sequence number assigned by the client, used to match responses to
+     * commands; 0 if the command is not sequenced.
+     */
+    private long sequenceNumber;
+
     /**
      * Construct an AbstractCommand without a target; called from subclasses.
      */
@@ -62,6 +73,24 @@ public abstract class Command<T> implements Serializable {
         return target;
     }
 
+    /**
+     * Gets the sequence number of this Command.
+     *
+     * @return the sequence number, 0 if the command is not sequenced.
+     */
+    public final long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Set the sequence number of this Command.
+     *
+     * @param sequenceNumber the sequence number.
+     */
+    public final void setSequenceNumber(final long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
     /**
      * A string representation of this command.
      *
@@ -0,0 +1,117 @@
+package com.scg.net;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+
+/**
+ * An ObjectInputStream that reads objects from a framed command stream, as
+ * written by CommandFrameOutputStream.
+ *
+ * @author Russ Moul
+ */
+public final class CommandFrameInputStream extends ObjectInputStream {
+    /** The underlying input stream. */
+    private final DataInputStream in;
+
+    /** The format negotiated with the client. */
+    private final WireFormat format;
+
+    /** The options accepted from those requested by the client. */
+    private final int options;
+
+    /**
+     * Construct a CommandFrameInputStream, reads and verifies the stream magic
+     * value and negotiates the payload format with the client.
+     *
+     * @param in the stream to read frames from
+     * @param out the stream the negotiation reply is written to
+     *
+     * @throws IOException if the stream magic can't be read or is invalid, or
+     *         none of the offered formats are supported
+     */
+    public CommandFrameInputStream(final InputStream in, final OutputStream out)
+        throws IOException {
+        super();
+        this.in = new DataInputStream(new BufferedInputStream(in));
+        final int magic = this.in.readInt();
+        if (magic != CommandFrames.FRAME_MAGIC) {
+            throw new StreamCorruptedException(
+                    String.format("Invalid frame stream header: %08x", magic));
+        }
+        final int[] offered = new int[this.in.readUnsignedByte()];
+        for (int i = 0; i < offered.length; i++) {
+            offered[i] = this.in.readUnsignedByte();
+        }
+        options = this.in.readUnsignedByte() & CommandFrames.SUPPORTED_OPTIONS;
+        format = CommandFrames.selectFormat(offered);
+        out.write((format == null) ? CommandFrames.NO_FORMAT : format.getId());
+        out.write(options);
+        out.flush();
+        if (format == null) {
+            throw new StreamCorruptedException("None of the offered formats are supported.");
+        }
+    }
+
+    /**
+     * Gets the format negotiated with the client.
+     *
+     * @return the wire format.
+     */
+    public WireFormat getWireFormat() {
+        return format;
+    }
+
+    /**
+     * Whether the client has requested a response for each object sent.
+     *
+     * @return true if responses are to be sent.
+     */
+    public boolean isAcknowledged() {
+        return (options & CommandFrames.ACK_OPTION) != 0;
+    }
+
+    /**
+     * Gets the number of bytes that can be read without blocking.
+     *
+     * @return the number of bytes available
+     *
+     * @throws IOException if the underlying stream fails
+     */
+    @Override
+    public int available() throws IOException {
+        return in.available();
+    }
+
+    /**
+     * Reads the next frame and decodes its payload.
+     *
+     * @return the object read
+     *
+     * @throws IOException if the frame can't be read, EOFException at the end
+     *         of the stream
+     * @throws ClassNotFoundException if the class of the object is unknown
+     */
+    @Override
+    protected Object readObjectOverride() throws IOException, ClassNotFoundException {
+        final int length = in.readInt();
+        CommandFrames.checkLength(length);
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        return format.decode(payload, 0, length);
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException if the close fails
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,197 @@
+package com.scg.net;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An ObjectOutputStream that writes each object as a self contained,
+ * length-prefixed frame.  This allows a framed stream to be used anywhere a
+ * plain ObjectOutputStream is expected while producing a stream the
+ * non-blocking InvoiceServer can decode frame by frame.  The payload format
+ * is negotiated with the server when the stream is constructed.
+ * <p>
+ * If constructed with a response window the stream requests acknowledgements
+ * from the server.  Each Command written is assigned a sequence number and up
+ * to window commands may be in flight before a write waits for a response.
+ *
+ * @author Russ Moul
+ */
+public final class CommandFrameOutputStream extends ObjectOutputStream {
+    /** The underlying output stream. */
+    private final DataOutputStream out;
+
+    /** The format negotiated with the server. */
+    private final WireFormat format;
+
+    /** Tracks commands awaiting a response, null if not acknowledged. */
+    private final ResponseTracker tracker;
+
+    /**
+     * Construct a CommandFrameOutputStream, writes the stream magic value and
+     * negotiates the payload format with the server.
+     *
+     * @param out the stream to write frames to
+     * @param in the stream the server's negotiation reply is read from
+     * @param offered the formats to offer, in order of preference
+     *
+     * @throws IOException if the negotiation fails or the server supports
+     *         none of the offered formats
+     */
+    public CommandFrameOutputStream(final OutputStream out, final InputStream in,
+                                    final WireFormat... offered) throws IOException {
+        this(out, in, 0, offered);
+    }
+
+    /**
+     * Construct a CommandFrameOutputStream, writes the stream magic value and
+     * negotiates the payload format and acknowledgements with the server.
+     *
+     * @param out the stream to write frames to
+     * @param in the stream the server's negotiation reply and responses are
+     *        read from
+     * @param window the maximum number of commands awaiting a response, 0 to
+     *        not request responses
+     * @param offered the formats to offer, in order of preference
+     *
+     * @throws IOException if the negotiation fails, the server supports
+     *         none of the offered formats or won't acknowledge commands
+     */
+    public CommandFrameOutputStream(final OutputStream out, final InputStream in,
+                                    final int window, final WireFormat... offered)
+        throws IOException {
+        super();
+        if (window < 0) {
+            throw new IllegalArgumentException("Invalid response window: " + window);
+        }
+        final int requested = (window > 0) ? CommandFrames.ACK_OPTION : 0;
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(CommandFrames.FRAME_MAGIC);
+        this.out.writeByte(offered.length);
+        for (final WireFormat format : offered) {
+            this.out.writeByte(format.getId());
+        }
+        this.out.writeByte(requested);
+        this.out.flush();
+
+        final int selected = in.read();
+        final int accepted = in.read();
+        if (selected < 0 || accepted < 0) {
+            throw new EOFException("Connection closed during format negotiation.");
+        }
+        format = WireFormat.forId(selected);
+        if (format == null) {
+            throw new IOException("Server supports none of the offered formats.");
+        }
+        if ((accepted & requested) != requested) {
+            throw new IOException("Server does not support acknowledgements.");
+        }
+        if (window > 0) {
+            tracker = new ResponseTracker(new DataInputStream(new BufferedInputStream(in)), window);
+            final Thread reader = new Thread(tracker, "ResponseReader");
+            reader.setDaemon(true);
+            reader.start();
+        } else {
+            tracker = null;
+        }
+    }
+
+    /**
+     * Gets the format negotiated with the server.
+     *
+     * @return the wire format.
+     */
+    public WireFormat getWireFormat() {
+        return format;
+    }
+
+    /**
+     * Whether the server acknowledges the commands written to this stream.
+     *
+     * @return true if commands are acknowledged.
+     */
+    public boolean isAcknowledged() {
+        return tracker != null;
+    }
+
+    /**
+     * Flush and wait until every command written has been responded to, or
+     * the connection has been closed.  Returns immediately if commands are
+     * not acknowledged.
+     *
+     * @throws IOException if the flush fails or the wait is interrupted
+     */
+    public void awaitResponses() throws IOException {
+        out.flush();
+        if (tracker != null) {
+            tracker.awaitResponses();
+        }
+    }
+
+    /**
+     * Gets the commands the server reported as failed or did not acknowledge
+     * before the connection closed.  These may be resent on a new connection.
+     *
+     * @return the failed commands, empty if commands are not acknowledged.
+     */
+    public List<Command<?>> getFailedCommands() {
+        if (tracker == null) {
+            return Collections.emptyList();
+        }
+        return tracker.getFailedCommands();
+    }
+
+    /**
+     * Writes the object as a single frame.  If commands are acknowledged a
+     * Command is assigned a sequence number, which may wait for space in the
+     * response window; the stream is flushed before waiting.
+     *
+     * @param obj the object to write
+     *
+     * @throws IOException if the object can't be written
+     */
+    @Override
+    protected void writeObjectOverride(final Object obj) throws IOException {
+        if (tracker != null && obj instanceof Command<?>) {
+            final Command<?> command = (Command<?>)obj;
+            if (!tracker.tryBegin(command)) {
+                out.flush();
+                tracker.begin(command);
+            }
+        }
+        final byte[] payload = format.encode(obj);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    /**
+     * Flushes the underlying stream.
+     *
+     * @throws IOException if the flush fails
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Closes the underlying stream.
+     *
+     * @throws IOException if the close fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (tracker != null) {
+            tracker.close();
+        }
+        out.close();
+    }
+}
@@ -0,0 +1,254 @@
+package com.scg.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * Utility methods for the framed command stream.  A framed stream begins with
+ * the four byte FRAME_MAGIC value, followed by a one byte count and that many
+ * WireFormat ids, the formats the client offers in order of preference, and a
+ * one byte set of requested options.  The server replies with two bytes, the
+ * id of the format selected or NO_FORMAT if it supports none of them, and the
+ * options it has accepted.  Any number of frames follow.  Each
+ * frame is a four byte big-endian length followed by that many bytes of
+ * payload, the payload being a complete, self contained object encoded in the
+ * selected format.  Because every frame is self contained a frame may be
+ * decoded as soon as all of its bytes have arrived, which is what allows the
+ * non-blocking server to decode commands without dedicating a thread to each
+ * connection.
+ * <p>
+ * If the ACK_OPTION is accepted the server writes a response frame back to the
+ * client for each object received, in the order received.  A response frame
+ * payload is the command's eight byte sequence number, a one byte status and
+ * an optional message.
+ *
+ * @author Russ Moul
+ */
+public final class CommandFrames {
+    /** Magic value identifying a framed command stream, "SCGF". */
+    public static final int FRAME_MAGIC = 0x53434746;
+
+    /** Format id sent by the server when it supports none of those offered. */
+    public static final int NO_FORMAT = 0;
+
+    /** Option requesting a response for each object sent. */
+    public static final int ACK_OPTION = 0x01;
+
+    /** The options supported by this implementation. */
+    public static final int SUPPORTED_OPTIONS = ACK_OPTION;
+
+    /** Number of bytes in the frame length prefix. */
+    public static final int HEADER_LENGTH = 4;
+
+    /** The largest frame payload accepted, 16MB. */
+    public static final int MAX_FRAME_LENGTH = 16 * 1024 * 1024;
+
+    /** The longest error message sent in a response. */
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    /** First byte of a Java serialization stream header. */
+    private static final int SERIAL_MAGIC_HI = 0xAC;
+
+    /** Second byte of a Java serialization stream header. */
+    private static final int SERIAL_MAGIC_LO = 0xED;
+
+    /**
+     * Prevent instantiation.
+     */
+    private CommandFrames() {
+    }
+
+    /**
+     * Serialize an object into a frame payload.
+     *
+     * @param obj the object to serialize
+     *
+     * @return the serialized bytes
+     *
+     * @throws IOException if the object can't be serialized
+     */
+    public static byte[] toPayload(final Object obj) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(obj);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize a frame payload.
+     *
+     * @param payload buffer containing the payload
+     * @param offset offset of the payload within the buffer
+     * @param length length of the payload
+     *
+     * @return the deserialized object
+     *
+     * @throws IOException if the payload is corrupt
+     * @throws ClassNotFoundException if the class of the object is unknown
+     */
+    public static Object fromPayload(final byte[] payload, final int offset, final int length)
+        throws IOException, ClassNotFoundException {
+        final ObjectInputStream in =
+            new ObjectInputStream(new ByteArrayInputStream(payload, offset, length));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Encode a response as a complete frame, including the length prefix.
+     *
+     * @param response the response to encode
+     *
+     * @return the frame bytes
+     *
+     * @throws IOException if the response can't be encoded
+     */
+    public static byte[] toResponseFrame(final CommandResponse response) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0);
+        out.writeLong(response.getSequenceNumber());
+        out.writeByte(response.getStatus().ordinal());
+        String message = response.getMessage();
+        out.writeBoolean(message != null);
+        if (message != null) {
+            if (message.length() > MAX_MESSAGE_LENGTH) {
+                message = message.substring(0, MAX_MESSAGE_LENGTH);
+            }
+            out.writeUTF(message);
+        }
+        out.flush();
+        final byte[] frame = bytes.toByteArray();
+        ByteBuffer.wrap(frame).putInt(frame.length - HEADER_LENGTH);
+        return frame;
+    }
+
+    /**
+     * Read a response frame.
+     *
+     * @param in the stream to read from
+     *
+     * @return the response
+     *
+     * @throws IOException if the frame can't be read or is corrupt,
+     *         EOFException at the end of the stream
+     */
+    public static CommandResponse readResponse(final DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        checkLength(length);
+        final byte[] payload = new byte[length];
+        in.readFully(payload);
+        final DataInputStream frame = new DataInputStream(new ByteArrayInputStream(payload));
+        final long sequenceNumber = frame.readLong();
+        final int status = frame.readUnsignedByte();
+        if (status >= CommandResponse.Status.values().length) {
+            throw new StreamCorruptedException("Invalid response status: " + status);
+        }
+        final String message = frame.readBoolean() ? frame.readUTF() : null;
+        return new CommandResponse(sequenceNumber, CommandResponse.Status.values()[status],
+                                   message);
+    }
+
+    /**
+     * Attempts to decode the next frame from a buffer.  The buffer is expected
+     * to be in read mode (flipped).  If a complete frame is available it is
+     * consumed and its payload returned, otherwise the buffer position is left
+     * unchanged and null is returned.
+     *
+     * @param buffer the buffer containing received bytes
+     *
+     * @return the payload of the next frame or null if the frame is incomplete
+     *
+     * @throws StreamCorruptedException if the frame length is invalid
+     */
+    public static byte[] nextPayload(final ByteBuffer buffer)
+        throws StreamCorruptedException {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            return null;
+        }
+        final int length = buffer.getInt(buffer.position());
+        checkLength(length);
+        if (buffer.remaining() < HEADER_LENGTH + length) {
+            return null;
+        }
+        buffer.position(buffer.position() + HEADER_LENGTH);
+        final byte[] payload = new byte[length];
+        buffer.get(payload);
+        return payload;
+    }
+
+    /**
+     * Validate a frame length.
+     *
+     * @param length the length to validate
+     *
+     * @throws StreamCorruptedException if the length is negative or too large
+     */
+    public static void checkLength(final int length) throws StreamCorruptedException {
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new StreamCorruptedException("Invalid frame length: " + length);
+        }
+    }
+
+    /**
+     * Select the format to use from those offered by a client, the first
+     * offered format supported is selected.
+     *
+     * @param offeredIds the ids of the formats offered
+     *
+     * @return the selected format, or null if none are supported
+     */
+    public static WireFormat selectFormat(final int[] offeredIds) {
+        for (final int id : offeredIds) {
+            final WireFormat format = WireFormat.forId(id);
+            if (format != null) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Opens an ObjectInputStream on a connection's input stream, accepting
+     * either a plain Java serialization stream or a framed command stream.
+     * For a framed stream the format negotiation reply is written to the
+     * connection's output stream.
+     *
+     * @param in the connection's input stream
+     * @param out the connection's output stream
+     *
+     * @return an ObjectInputStream appropriate to the stream type
+     *
+     * @throws IOException if the stream header can't be read
+     */
+    public static ObjectInputStream newObjectInputStream(final InputStream in,
+                                                         final OutputStream out)
+        throws IOException {
+        final PushbackInputStream pushback = new PushbackInputStream(in, HEADER_LENGTH);
+        final int hi = pushback.read();
+        final int lo = pushback.read();
+        if (hi < 0 || lo < 0) {
+            throw new StreamCorruptedException("Connection closed before stream header.");
+        }
+        pushback.unread(lo);
+        pushback.unread(hi);
+        if (hi == SERIAL_MAGIC_HI && lo == SERIAL_MAGIC_LO) {
+            return new ObjectInputStream(pushback);
+        }
+        return new CommandFrameInputStream(pushback, out);
+    }
+}
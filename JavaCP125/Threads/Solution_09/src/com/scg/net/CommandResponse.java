@@ -0,0 +1,78 @@
+package com.scg.net;
+
+/**
+ * The server's response to a sequenced command, sent when the client requests
+ * acknowledgements on a framed command stream.
+ *
+ * @author Russ Moul
+ */
+public final class CommandResponse {
+    /** The completion status of a command. */
+    public enum Status {
+        /** The command was executed. */
+        OK,
+        /** The command failed, or the object received was not a command. */
+        ERROR
+    }
+
+    /** The sequence number of the command responded to, 0 if unsequenced. */
+    private final long sequenceNumber;
+
+    /** The completion status. */
+    private final Status status;
+
+    /** Description of the error, null for OK responses. */
+    private final String message;
+
+    /**
+     * Construct a CommandResponse.
+     *
+     * @param sequenceNumber the sequence number of the command responded to
+     * @param status the completion status
+     * @param message description of the error, may be null
+     */
+    public CommandResponse(final long sequenceNumber, final Status status,
+                           final String message) {
+        this.sequenceNumber = sequenceNumber;
+        this.status = status;
+        this.message = message;
+    }
+
+    /**
+     * Gets the sequence number of the command responded to.
+     *
+     * @return the sequence number, 0 if the command was not sequenced.
+     */
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    /**
+     * Gets the completion status.
+     *
+     * @return the status.
+     */
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Gets the description of the error.
+     *
+     * @return the message, may be null.
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * A string representation of this response.
+     *
+     * @return the sequence number, status and message.
+     */
+    @Override
+    public String toString() {
+        return String.format("%d %s%s", sequenceNumber, status,
+                             (message == null) ? "" : ": " + message);
+    }
+}
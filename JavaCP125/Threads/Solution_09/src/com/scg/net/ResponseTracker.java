@@ -0,0 +1,189 @@
+package com.scg.net;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the commands in flight on an acknowledged command stream.  Commands
+ * are assigned sequence numbers as they are written, and at most window
+ * commands may be awaiting a response at once.  Responses are read on a
+ * separate thread so the writer never waits for a response unless the window
+ * is full.
+ *
+ * @author Russ Moul
+ */
+final class ResponseTracker implements Runnable {
+    /** This class' logger. */
+    private static final Logger logger =
+                         Logger.getLogger(ResponseTracker.class.getName());
+
+    /** The stream responses are read from. */
+    private final DataInputStream in;
+
+    /** The maximum number of commands awaiting a response. */
+    private final int window;
+
+    /** The commands awaiting a response, by sequence number. */
+    private final Map<Long, Command<?>> inFlight = new LinkedHashMap<Long, Command<?>>();
+
+    /** Commands which failed or were never acknowledged. */
+    private final List<Command<?>> failed = new ArrayList<Command<?>>();
+
+    /** The next sequence number to assign. */
+    private long nextSequenceNumber = 1;
+
+    /** Whether the response stream has ended. */
+    private boolean closed;
+
+    /**
+     * Construct a ResponseTracker.
+     *
+     * @param in the stream responses are read from
+     * @param window the maximum number of commands awaiting a response
+     */
+    ResponseTracker(final DataInputStream in, final int window) {
+        this.in = in;
+        this.window = window;
+    }
+
+    /**
+     * Assign a command the next sequence number and record it as in flight,
+     * if there is space in the window.
+     *
+     * @param command the command about to be written
+     *
+     * @return false if the window is full
+     *
+     * @throws IOException if the response stream has ended
+     */
+    synchronized boolean tryBegin(final Command<?> command) throws IOException {
+        if (closed) {
+            throw new IOException("Response stream closed.");
+        }
+        if (inFlight.size() >= window) {
+            return false;
+        }
+        final long sequenceNumber = nextSequenceNumber++;
+        command.setSequenceNumber(sequenceNumber);
+        inFlight.put(sequenceNumber, command);
+        return true;
+    }
+
+    /**
+     * Assign a command the next sequence number and record it as in flight,
+     * waiting for space in the window if necessary.
+     *
+     * @param command the command about to be written
+     *
+     * @throws IOException if the response stream has ended or the wait is
+     *         interrupted
+     */
+    synchronized void begin(final Command<?> command) throws IOException {
+        try {
+            while (!tryBegin(command)) {
+                wait();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for command window.");
+        }
+    }
+
+    /**
+     * Wait until every command written has been responded to, or the response
+     * stream has ended.
+     *
+     * @throws InterruptedIOException if the wait is interrupted
+     */
+    synchronized void awaitResponses() throws InterruptedIOException {
+        try {
+            while (!closed && !inFlight.isEmpty()) {
+                wait();
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for responses.");
+        }
+    }
+
+    /**
+     * Gets the commands which failed, or were unacknowledged when the response
+     * stream ended.
+     *
+     * @return a copy of the failed commands.
+     */
+    synchronized List<Command<?>> getFailedCommands() {
+        return new ArrayList<Command<?>>(failed);
+    }
+
+    /**
+     * Read responses until the stream ends.
+     */
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                complete(CommandFrames.readResponse(in));
+            }
+        } catch (final EOFException ex) {
+            logger.fine("Response stream ended.");
+        } catch (final IOException ex) {
+            if (!isClosed()) {
+                logger.log(Level.SEVERE, "Attempt to read response failed.", ex);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * Record a response.
+     *
+     * @param response the response received
+     */
+    private synchronized void complete(final CommandResponse response) {
+        final Command<?> command = inFlight.remove(response.getSequenceNumber());
+        if (response.getStatus() != CommandResponse.Status.OK) {
+            logger.warning(String.format("Command %s failed: %s",
+                           (command == null) ? "(unsequenced)" : command, response.getMessage()));
+            if (command != null) {
+                failed.add(command);
+            }
+        }
+        notifyAll();
+    }
+
+    /**
+     * Whether the response stream has ended.
+     *
+     * @return true if closed
+     */
+    private synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Mark the response stream as ended, any commands still in flight are
+     * recorded as failed.
+     */
+    synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (!inFlight.isEmpty()) {
+            logger.warning(String.format("%d commands unacknowledged.", inFlight.size()));
+            failed.addAll(inFlight.values());
+            inFlight.clear();
+        }
+        notifyAll();
+    }
+}
@@ -0,0 +1,110 @@
+package com.scg.net;
+
+import java.io.IOException;
+
+import com.scg.net.codec.CodecRegistry;
+
+/**
+ * The payload encodings supported on a framed command stream.  The client
+ * offers the formats it supports, in order of preference, when it connects
+ * and the server selects the first of them it supports.
+ *
+ * @author Russ Moul
+ */
+public enum WireFormat {
+    /** Each payload is a Java serialized object. */
+    SERIALIZATION(1) {
+        @Override
+        public byte[] encode(final Object obj) throws IOException {
+            return CommandFrames.toPayload(obj);
+        }
+
+        @Override
+        public Object decode(final byte[] payload, final int offset, final int length)
+            throws IOException, ClassNotFoundException {
+            return CommandFrames.fromPayload(payload, offset, length);
+        }
+    },
+
+    /**
+     * Each payload is a command type id followed by the command's compact
+     * binary encoding, using Java serialization for any object without a
+     * registered codec.
+     */
+    BINARY(2) {
+        @Override
+        public byte[] encode(final Object obj) throws IOException {
+            return CodecRegistry.getDefault().encode(obj);
+        }
+
+        @Override
+        public Object decode(final byte[] payload, final int offset, final int length)
+            throws IOException, ClassNotFoundException {
+            return CodecRegistry.getDefault().decode(payload, offset, length);
+        }
+    };
+
+    /** The id identifying this format during negotiation. */
+    private final int id;
+
+    /**
+     * Construct a WireFormat.
+     *
+     * @param id the id identifying this format during negotiation
+     */
+    private WireFormat(final int id) {
+        this.id = id;
+    }
+
+    /**
+     * Gets the id identifying this format during negotiation.
+     *
+     * @return the format id.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the format with the specified id.
+     *
+     * @param id the format id
+     *
+     * @return the format, or null if no format has the id
+     */
+    public static WireFormat forId(final int id) {
+        for (final WireFormat format : values()) {
+            if (format.id == id) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Encode an object into a frame payload.
+     *
+     * @param obj the object to encode
+     *
+     * @return the payload
+     *
+     * @throws IOException if the object can't be encoded
+     */
+    public abstract byte[] encode(Object obj) throws IOException;
+
+    /**
+     * Decode a frame payload.
+     *
+     * @param payload buffer containing the payload
+     * @param offset offset of the payload within the buffer
+     * @param length length of the payload
+     *
+     * @return the decoded object
+     *
+     * @throws IOException if the payload is corrupt
+     * @throws ClassNotFoundException if the class of a serialized object is
+     *         unknown
+     */
+    public abstract Object decode(byte[] payload, int offset, int length)
+        throws IOException, ClassNotFoundException;
+}
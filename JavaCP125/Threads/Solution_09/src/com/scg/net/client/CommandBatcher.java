@@ -0,0 +1,148 @@
+package com.scg.net.client;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.scg.net.BatchCommand;
+import com.scg.net.Command;
+
+/**
+ * Accumulates commands and sends them to the server as BatchCommands.  A
+ * batch is sent when it reaches the maximum batch size, when the oldest
+ * command in it has waited for the linger time, or when the batcher is
+ * flushed or closed.
+ *
+ * @author Russ Moul
+ */
+public final class CommandBatcher {
+    /** This class' logger. */
+    private static final Logger logger =
+                         Logger.getLogger(CommandBatcher.class.getName());
+
+    /** The stream batches are written to. */
+    private final ObjectOutputStream out;
+
+    /** The maximum number of commands in a batch. */
+    private final int maxBatchSize;
+
+    /** The longest time, in milliseconds, a command waits to be sent. */
+    private final long lingerMillis;
+
+    /** Timer used to send batches that have lingered, null if not lingering. */
+    private final Timer timer;
+
+    /** The commands waiting to be sent. */
+    private List<Command<?>> pending;
+
+    /** The scheduled linger flush for the pending batch, if any. */
+    private TimerTask lingerTask;
+
+    /**
+     * Construct a CommandBatcher.
+     *
+     * @param out the stream batches are written to
+     * @param maxBatchSize the maximum number of commands in a batch
+     * @param lingerMillis the longest time, in milliseconds, a command waits
+     *        before its batch is sent, zero to only send full batches and
+     *        batches sent by flush or close
+     */
+    public CommandBatcher(final ObjectOutputStream out, final int maxBatchSize,
+                          final long lingerMillis) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + maxBatchSize);
+        }
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("Invalid linger time: " + lingerMillis);
+        }
+        this.out = out;
+        this.maxBatchSize = maxBatchSize;
+        this.lingerMillis = lingerMillis;
+        this.timer = (lingerMillis > 0) ? new Timer("CommandBatcher", true) : null;
+        this.pending = new ArrayList<Command<?>>(maxBatchSize);
+    }
+
+    /**
+     * Add a command to the current batch, sending the batch if it is full.
+     *
+     * @param command the command to add
+     *
+     * @throws IOException if a full batch can't be sent
+     */
+    public synchronized void add(final Command<?> command) throws IOException {
+        pending.add(command);
+        if (pending.size() >= maxBatchSize) {
+            flush();
+        } else if (pending.size() == 1 && timer != null) {
+            lingerTask = new TimerTask() {
+                @Override
+                public void run() {
+                    lingerExpired(this);
+                }
+            };
+            timer.schedule(lingerTask, lingerMillis);
+        }
+    }
+
+    /**
+     * Send the current batch, if any commands are pending.  A batch of a
+     * single command is sent as the command itself.
+     *
+     * @throws IOException if the batch can't be sent
+     */
+    public synchronized void flush() throws IOException {
+        if (lingerTask != null) {
+            lingerTask.cancel();
+            lingerTask = null;
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        final List<Command<?>> batch = pending;
+        pending = new ArrayList<Command<?>>(maxBatchSize);
+        if (batch.size() == 1) {
+            out.writeObject(batch.get(0));
+        } else {
+            out.writeObject(new BatchCommand(batch));
+        }
+        out.flush();
+    }
+
+    /**
+     * Send any pending commands and stop the linger timer.  The underlying
+     * stream is not closed.
+     *
+     * @throws IOException if the pending commands can't be sent
+     */
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            if (timer != null) {
+                timer.cancel();
+            }
+        }
+    }
+
+    /**
+     * Called from the timer when a batch has lingered, sends the batch unless
+     * it has already been sent.
+     *
+     * @param task the expired linger task
+     */
+    private synchronized void lingerExpired(final TimerTask task) {
+        if (task != lingerTask) {
+            return;
+        }
+        try {
+            flush();
+        } catch (final IOException ex) {
+            logger.log(Level.SEVERE, "Unable to send lingering batch.", ex);
+        }
+    }
+}
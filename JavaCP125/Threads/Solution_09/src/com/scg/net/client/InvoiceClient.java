@@ -15,9 +15,11 @@ import com.scg.net.AddClientCommand;
 import com.scg.net.AddConsultantCommand;
 import com.scg.net.AddTimeCardCommand;
 import com.scg.net.Command;
+import com.scg.net.CommandFrameOutputStream;
 import com.scg.net.CreateInvoicesCommand;
 import com.scg.net.DisconnectCommand;
 import com.scg.net.ShutdownCommand;
+import com.scg.net.WireFormat;
 import com.scg.util.Address;
 import com.scg.util.Name;
 import com.scg.util.StateCode;
@@ -47,6 +49,21 @@ public final class InvoiceClient extends Thread {
     /** The list of time cards. */
     private final List<TimeCard> timeCardList;
 
+    /** Whether commands are sent as a framed command stream. */
+    private boolean framed;
+
+    /** The wire formats offered to the server, in order of preference. */
+    private WireFormat[] wireFormats = {WireFormat.BINARY, WireFormat.SERIALIZATION};
+
+    /** The maximum number of time cards sent in a batch, 1 disables batching. */
+    private int batchSize = 1;
+
+    /** The longest time, in milliseconds, a time card waits to be batched. */
+    private long lingerMillis;
+
+    /** The maximum number of unacknowledged commands, 0 disables acknowledgement. */
+    private int responseWindow;
+
     /**
      * Construct an InvoiceClient with a host and port for the server.
      *
@@ -60,6 +77,73 @@ public final class InvoiceClient extends Thread {
         this.timeCardList = timeCardList;
     }
 
+    /**
+     * Set whether commands are sent as a framed command stream, framed
+     * streams are required by servers running in NON_BLOCKING mode and are
+     * accepted by servers in either mode.
+     *
+     * @param framed if true commands are sent as a framed command stream
+     */
+    public void setFramed(final boolean framed) {
+        this.framed = framed;
+    }
+
+    /**
+     * Set the wire formats offered to the server when using a framed command
+     * stream, in order of preference.  By default the binary format is
+     * preferred, falling back to Java serialization.
+     *
+     * @param wireFormats the formats to offer
+     */
+    public void setWireFormats(final WireFormat... wireFormats) {
+        if (wireFormats.length == 0) {
+            throw new IllegalArgumentException("At least one wire format is required.");
+        }
+        this.wireFormats = wireFormats.clone();
+    }
+
+    /**
+     * Set the maximum number of time cards sent to the server in a single
+     * BatchCommand.  By default batching is disabled and each time card is
+     * sent as its own command.
+     *
+     * @param batchSize the maximum batch size, 1 to disable batching
+     */
+    public void setBatchSize(final int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Invalid batch size: " + batchSize);
+        }
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Set the longest time a time card waits for its batch to fill before the
+     * batch is sent.
+     *
+     * @param lingerMillis the linger time in milliseconds, 0 to only send full
+     *        batches
+     */
+    public void setLingerMillis(final long lingerMillis) {
+        if (lingerMillis < 0) {
+            throw new IllegalArgumentException("Invalid linger time: " + lingerMillis);
+        }
+        this.lingerMillis = lingerMillis;
+    }
+
+    /**
+     * Set the maximum number of commands which may be awaiting acknowledgement
+     * from the server.  Acknowledgements require a framed command stream.  By
+     * default commands are not acknowledged.
+     *
+     * @param responseWindow the response window, 0 to disable acknowledgement
+     */
+    public void setResponseWindow(final int responseWindow) {
+        if (responseWindow < 0) {
+            throw new IllegalArgumentException("Invalid response window: " + responseWindow);
+        }
+        this.responseWindow = responseWindow;
+    }
+
     /**
      * Runs this InvoiceClient, sending clients, consultants, and time cards to
      * the server, then sending the command to create invoices for a specified
@@ -74,9 +158,11 @@ public final class InvoiceClient extends Thread {
             System.out.println(String.format("Connected to server at: %s/%s:%d",
                     server.getInetAddress().getHostName(),
                     server.getInetAddress().getHostAddress(), server.getPort()));
-            // We don't expect to get any input so shut it down.
-            server.shutdownInput();
-            out = new ObjectOutputStream(server.getOutputStream());
+            out = newOutputStream(server);
+            if (!isAcknowledged(out)) {
+                // We don't expect to get any more input so shut it down.
+                server.shutdownInput();
+            }
             sendClients(out);
             sendConsultants(out);
             // make sure we can handle unknown commands
@@ -84,6 +170,9 @@ public final class InvoiceClient extends Thread {
             sendTimeCards(out);
             createInvoices(out, INVOICE_MONTH, INVOICE_YEAR);
             sendDisconnect(out);
+            if (isAcknowledged(out)) {
+                awaitResponses((CommandFrameOutputStream)out);
+            }
             server.shutdownOutput();
         } catch (final IOException ex) {
             logger.log(Level.SEVERE, "Unable to connect to server.", ex);
@@ -146,15 +235,29 @@ public final class InvoiceClient extends Thread {
     }
 
     /**
-     * Send the time cards to the server.
+     * Send the time cards to the server, in batches if a batch size greater
+     * than 1 has been set.
      *
      * @param out the output stream connecting this client to the server.
      */
     public void sendTimeCards(final ObjectOutputStream out) {
-        AddTimeCardCommand command = null;
-        for (final TimeCard timeCard : timeCardList) {
-            command = new AddTimeCardCommand(timeCard);
-            sendCommand(out, command);
+        if (batchSize == 1) {
+            for (final TimeCard timeCard : timeCardList) {
+                sendCommand(out, new AddTimeCardCommand(timeCard));
+            }
+            return;
+        }
+        final CommandBatcher batcher = new CommandBatcher(out, batchSize, lingerMillis);
+        try {
+            try {
+                for (final TimeCard timeCard : timeCardList) {
+                    batcher.add(new AddTimeCardCommand(timeCard));
+                }
+            } finally {
+                batcher.close();
+            }
+        } catch (final IOException ex) {
+            logger.log(Level.SEVERE, "Unable to write time card batch.", ex);
         }
     }
 
@@ -194,8 +297,10 @@ public final class InvoiceClient extends Thread {
             System.out.println(String.format("Quit connected to server at: %s/%s:%d",
                     server.getInetAddress().getHostName(),
                     server.getInetAddress().getHostAddress(), server.getPort()));
-            out = new ObjectOutputStream(server.getOutputStream());
-            server.shutdownInput();
+            out = newOutputStream(server);
+            if (!isAcknowledged(out)) {
+                server.shutdownInput();
+            }
             final ShutdownCommand command = new ShutdownCommand();
             sendCommand(out, command);
             server.close();
@@ -204,6 +309,53 @@ public final class InvoiceClient extends Thread {
         }
     }
 
+    /**
+     * Wait for the server to respond to every command sent, logging any which
+     * failed.
+     *
+     * @param out the acknowledged output stream
+     *
+     * @throws IOException if the wait fails
+     */
+    private void awaitResponses(final CommandFrameOutputStream out) throws IOException {
+        out.awaitResponses();
+        final List<Command<?>> failed = out.getFailedCommands();
+        if (!failed.isEmpty()) {
+            logger.severe(String.format("%d commands failed: %s", failed.size(), failed));
+        }
+    }
+
+    /**
+     * Whether the server acknowledges the commands written to a stream.
+     *
+     * @param out the stream
+     *
+     * @return true if commands are acknowledged
+     */
+    private static boolean isAcknowledged(final ObjectOutputStream out) {
+        return out instanceof CommandFrameOutputStream
+               && ((CommandFrameOutputStream)out).isAcknowledged();
+    }
+
+    /**
+     * Create the stream commands are written to, negotiating the wire format
+     * and acknowledgement if framed.
+     *
+     * @param server the connection to the server
+     *
+     * @return a framed or plain object output stream
+     *
+     * @throws IOException if the stream can't be created
+     */
+    private ObjectOutputStream newOutputStream(final Socket server) throws IOException {
+        if (framed) {
+            return new CommandFrameOutputStream(server.getOutputStream(),
+                                                server.getInputStream(), responseWindow,
+                                                wireFormats);
+        }
+        return new ObjectOutputStream(server.getOutputStream());
+    }
+
     /**
      * Send a command to the server.
      *
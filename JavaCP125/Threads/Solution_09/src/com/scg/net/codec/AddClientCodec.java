@@ -0,0 +1,39 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.scg.net.AddClientCommand;
+
+/**
+ * Codec for the AddClientCommand.
+ *
+ * @author Russ Moul
+ */
+final class AddClientCodec implements CommandCodec<AddClientCommand> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final AddClientCommand command) {
+        return DomainCodec.canEncode(command.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final AddClientCommand command, final DataOutputStream out)
+        throws IOException {
+        DomainCodec.writeClient(out, command.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AddClientCommand decode(final DataInputStream in) throws IOException {
+        return new AddClientCommand(DomainCodec.readClient(in));
+    }
+}
@@ -0,0 +1,39 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.scg.net.AddConsultantCommand;
+
+/**
+ * Codec for the AddConsultantCommand.
+ *
+ * @author Russ Moul
+ */
+final class AddConsultantCodec implements CommandCodec<AddConsultantCommand> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final AddConsultantCommand command) {
+        return DomainCodec.canEncode(command.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final AddConsultantCommand command, final DataOutputStream out)
+        throws IOException {
+        DomainCodec.writeConsultant(out, command.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AddConsultantCommand decode(final DataInputStream in) throws IOException {
+        return new AddConsultantCommand(DomainCodec.readConsultant(in));
+    }
+}
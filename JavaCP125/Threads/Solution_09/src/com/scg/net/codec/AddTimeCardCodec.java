@@ -0,0 +1,39 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.scg.net.AddTimeCardCommand;
+
+/**
+ * Codec for the AddTimeCardCommand.
+ *
+ * @author Russ Moul
+ */
+final class AddTimeCardCodec implements CommandCodec<AddTimeCardCommand> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final AddTimeCardCommand command) {
+        return DomainCodec.canEncode(command.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final AddTimeCardCommand command, final DataOutputStream out)
+        throws IOException {
+        DomainCodec.writeTimeCard(out, command.getTarget());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AddTimeCardCommand decode(final DataInputStream in) throws IOException {
+        return new AddTimeCardCommand(DomainCodec.readTimeCard(in));
+    }
+}
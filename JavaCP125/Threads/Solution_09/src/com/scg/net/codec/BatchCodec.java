@@ -0,0 +1,85 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.scg.net.BatchCommand;
+import com.scg.net.Command;
+import com.scg.net.CommandFrames;
+
+/**
+ * Codec for the BatchCommand.  Each sub-command is encoded by the registry,
+ * as a length-prefixed payload.
+ *
+ * @author Russ Moul
+ */
+final class BatchCodec implements CommandCodec<BatchCommand> {
+    /** The registry used for the sub-commands. */
+    private final CodecRegistry registry;
+
+    /**
+     * Construct a BatchCodec.
+     *
+     * @param registry the registry used for the sub-commands
+     */
+    BatchCodec(final CodecRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final BatchCommand command) {
+        return command.getTarget() != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final BatchCommand command, final DataOutputStream out)
+        throws IOException {
+        final List<Command<?>> commands = command.getTarget();
+        out.writeInt(commands.size());
+        for (final Command<?> subCommand : commands) {
+            final byte[] payload = registry.encode(subCommand);
+            out.writeInt(payload.length);
+            out.write(payload);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BatchCommand decode(final DataInputStream in) throws IOException {
+        final int count = in.readInt();
+        if (count < 0) {
+            throw new StreamCorruptedException("Invalid batch size: " + count);
+        }
+        final List<Command<?>> commands = new ArrayList<Command<?>>(Math.min(count, in.available()));
+        for (int i = 0; i < count; i++) {
+            final int length = in.readInt();
+            CommandFrames.checkLength(length);
+            final byte[] payload = new byte[length];
+            in.readFully(payload);
+            final Object obj;
+            try {
+                obj = registry.decode(payload, 0, length);
+            } catch (final ClassNotFoundException ex) {
+                throw new StreamCorruptedException("Batched command of an unknown type: "
+                                                   + ex.getMessage());
+            }
+            if (!(obj instanceof Command<?>)) {
+                throw new StreamCorruptedException("Batch contains a non command object.");
+            }
+            commands.add((Command<?>)obj);
+        }
+        return new BatchCommand(commands);
+    }
+}
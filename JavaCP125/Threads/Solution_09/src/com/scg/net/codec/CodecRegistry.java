@@ -0,0 +1,180 @@
+package com.scg.net.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.scg.net.AddClientCommand;
+import com.scg.net.AddConsultantCommand;
+import com.scg.net.AddTimeCardCommand;
+import com.scg.net.BatchCommand;
+import com.scg.net.Command;
+import com.scg.net.CommandFrames;
+import com.scg.net.CreateInvoicesCommand;
+import com.scg.net.DisconnectCommand;
+import com.scg.net.ShutdownCommand;
+
+/**
+ * The registry of command codecs used by the binary wire format.  Each
+ * payload begins with a one byte type id identifying the codec used to
+ * encode it.  Objects without a registered codec, or which their codec can't
+ * encode, are written with type id SERIALIZED_TYPE followed by their Java
+ * serialized form.  Commands encoded by a codec have their sequence number
+ * written between the type id and the codec's encoding.
+ *
+ * @author Russ Moul
+ */
+public final class CodecRegistry {
+    /** Type id for payloads encoded with Java serialization. */
+    public static final int SERIALIZED_TYPE = 0;
+
+    /** The largest type id. */
+    private static final int MAX_TYPE_ID = 0xFF;
+
+    /** The registry of the standard commands. */
+    private static final CodecRegistry DEFAULT_REGISTRY = createDefault();
+
+    /** Registrations by command class. */
+    private final Map<Class<?>, Registration> byClass = new HashMap<Class<?>, Registration>();
+
+    /** Registrations by type id. */
+    private final Registration[] byTypeId = new Registration[MAX_TYPE_ID + 1];
+
+    /**
+     * Create the registry of the standard commands.
+     *
+     * @return the registry
+     */
+    private static CodecRegistry createDefault() {
+        final CodecRegistry registry = new CodecRegistry();
+        registry.register(1, AddClientCommand.class, new AddClientCodec());
+        registry.register(2, AddConsultantCommand.class, new AddConsultantCodec());
+        registry.register(3, AddTimeCardCommand.class, new AddTimeCardCodec());
+        registry.register(4, CreateInvoicesCommand.class, new CreateInvoicesCodec());
+        registry.register(5, DisconnectCommand.class, new DisconnectCodec());
+        registry.register(6, ShutdownCommand.class, new ShutdownCodec());
+        registry.register(7, BatchCommand.class, new BatchCodec(registry));
+        return registry;
+    }
+
+    /**
+     * Gets the registry of the standard commands.
+     *
+     * @return the default registry
+     */
+    public static CodecRegistry getDefault() {
+        return DEFAULT_REGISTRY;
+    }
+
+    /**
+     * Register a codec.  All codecs must be registered before the registry is
+     * used.
+     *
+     * @param <C> the command type
+     * @param typeId the type id written ahead of the encoded command
+     * @param type the command class
+     * @param codec the codec for the command class
+     */
+    public <C extends Command<?>> void register(final int typeId, final Class<C> type,
+                                                final CommandCodec<C> codec) {
+        if (typeId <= SERIALIZED_TYPE || typeId > MAX_TYPE_ID) {
+            throw new IllegalArgumentException("Invalid type id: " + typeId);
+        }
+        if (byTypeId[typeId] != null || byClass.containsKey(type)) {
+            throw new IllegalArgumentException("Codec already registered for: " + type.getName());
+        }
+        final Registration registration = new Registration(typeId, codec);
+        byTypeId[typeId] = registration;
+        byClass.put(type, registration);
+    }
+
+    /**
+     * Encode an object into a payload.
+     *
+     * @param obj the object to encode
+     *
+     * @return the encoded bytes
+     *
+     * @throws IOException if the object can't be encoded
+     */
+    public byte[] encode(final Object obj) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final Registration registration = (obj == null) ? null : byClass.get(obj.getClass());
+        final Command<?> command = (Command<?>)((registration == null) ? null : obj);
+        if (registration != null && registration.codec.canEncode(command)) {
+            out.writeByte(registration.typeId);
+            out.writeLong(command.getSequenceNumber());
+            registration.codec.encode(command, out);
+        } else {
+            out.writeByte(SERIALIZED_TYPE);
+            out.write(CommandFrames.toPayload(obj));
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a payload.
+     *
+     * @param payload buffer containing the payload
+     * @param offset offset of the payload within the buffer
+     * @param length length of the payload
+     *
+     * @return the decoded object
+     *
+     * @throws IOException if the payload is corrupt
+     * @throws ClassNotFoundException if a serialized object's class is unknown
+     */
+    public Object decode(final byte[] payload, final int offset, final int length)
+        throws IOException, ClassNotFoundException {
+        if (length < 1) {
+            throw new StreamCorruptedException("Empty payload.");
+        }
+        final int typeId = payload[offset] & MAX_TYPE_ID;
+        if (typeId == SERIALIZED_TYPE) {
+            return CommandFrames.fromPayload(payload, offset + 1, length - 1);
+        }
+        final Registration registration = byTypeId[typeId];
+        if (registration == null) {
+            throw new StreamCorruptedException("Unknown command type id: " + typeId);
+        }
+        final DataInputStream in =
+            new DataInputStream(new ByteArrayInputStream(payload, offset + 1, length - 1));
+        final long sequenceNumber = in.readLong();
+        final Command<?> command = registration.codec.decode(in);
+        command.setSequenceNumber(sequenceNumber);
+        if (in.available() != 0) {
+            throw new StreamCorruptedException("Unexpected data after command, type id: " + typeId);
+        }
+        return command;
+    }
+
+    /**
+     * A registered codec.
+     */
+    private static final class Registration {
+        /** The type id of the codec. */
+        private final int typeId;
+
+        /** The codec. */
+        private final CommandCodec<Command<?>> codec;
+
+        /**
+         * Construct a Registration.
+         *
+         * @param typeId the type id
+         * @param codec the codec
+         */
+        @SuppressWarnings("unchecked")
+        Registration(final int typeId, final CommandCodec<? extends Command<?>> codec) {
+            this.typeId = typeId;
+            this.codec = (CommandCodec<Command<?>>)codec;
+        }
+    }
+}
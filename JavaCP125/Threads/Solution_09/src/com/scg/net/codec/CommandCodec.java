@@ -0,0 +1,49 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import com.scg.net.Command;
+
+/**
+ * Encodes and decodes a single Command type to and from the compact binary
+ * wire format.
+ *
+ * @param <C> the command type
+ *
+ * @author Russ Moul
+ */
+public interface CommandCodec<C extends Command<?>> {
+    /**
+     * Determines if this codec can encode the command; commands it can't
+     * encode, such as those with a target subclass this codec doesn't know,
+     * are sent using Java serialization.
+     *
+     * @param command the command to check
+     *
+     * @return true if the command can be encoded
+     */
+    boolean canEncode(C command);
+
+    /**
+     * Write the command's content.
+     *
+     * @param command the command to encode
+     * @param out the stream to write to
+     *
+     * @throws IOException if the command can't be written
+     */
+    void encode(C command, DataOutputStream out) throws IOException;
+
+    /**
+     * Read a command's content and create the command.
+     *
+     * @param in the stream to read from
+     *
+     * @return the decoded command
+     *
+     * @throws IOException if the command can't be read
+     */
+    C decode(DataInputStream in) throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+
+import com.scg.net.CreateInvoicesCommand;
+
+/**
+ * Codec for the CreateInvoicesCommand.
+ *
+ * @author Russ Moul
+ */
+final class CreateInvoicesCodec implements CommandCodec<CreateInvoicesCommand> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final CreateInvoicesCommand command) {
+        return command.getTarget() != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final CreateInvoicesCommand command, final DataOutputStream out)
+        throws IOException {
+        out.writeLong(command.getTarget().getTime());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CreateInvoicesCommand decode(final DataInputStream in) throws IOException {
+        return new CreateInvoicesCommand(new Date(in.readLong()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import com.scg.net.DisconnectCommand;
+
+/**
+ * Codec for the DisconnectCommand, which has no content.
+ *
+ * @author Russ Moul
+ */
+final class DisconnectCodec implements CommandCodec<DisconnectCommand> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final DisconnectCommand command) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final DisconnectCommand command, final DataOutputStream out) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DisconnectCommand decode(final DataInputStream in) {
+        return new DisconnectCommand();
+    }
+}
@@ -0,0 +1,355 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.scg.domain.Account;
+import com.scg.domain.ClientAccount;
+import com.scg.domain.Consultant;
+import com.scg.domain.ConsultantTime;
+import com.scg.domain.NonBillableAccount;
+import com.scg.domain.Skill;
+import com.scg.domain.TimeCard;
+import com.scg.util.Address;
+import com.scg.util.Name;
+import com.scg.util.StateCode;
+
+/**
+ * Binary encoding of the domain objects carried by commands.
+ *
+ * @author Russ Moul
+ */
+final class DomainCodec {
+    /** Marker for a null string. */
+    private static final byte NULL_STRING = 0;
+
+    /** Marker for a non-null string. */
+    private static final byte PRESENT_STRING = 1;
+
+    /** Account tag for a ClientAccount. */
+    private static final byte CLIENT_ACCOUNT = 0;
+
+    /** Account tag for a NonBillableAccount. */
+    private static final byte NON_BILLABLE_ACCOUNT = 1;
+
+    /** The largest count that may be written as an unsigned short. */
+    static final int MAX_COUNT = 0xFFFF;
+
+    /** All skills, indexed by ordinal. */
+    private static final Skill[] SKILLS = Skill.values();
+
+    /** All non-billable accounts, indexed by ordinal. */
+    private static final NonBillableAccount[] NON_BILLABLE_ACCOUNTS = NonBillableAccount.values();
+
+    /** All state codes, indexed by ordinal. */
+    private static final StateCode[] STATE_CODES = StateCode.values();
+
+    /**
+     * Prevent instantiation.
+     */
+    private DomainCodec() {
+    }
+
+    /**
+     * Write a possibly null string.
+     *
+     * @param out the stream to write to
+     * @param str the string
+     *
+     * @throws IOException if the write fails
+     */
+    static void writeString(final DataOutputStream out, final String str) throws IOException {
+        if (str == null) {
+            out.writeByte(NULL_STRING);
+        } else {
+            out.writeByte(PRESENT_STRING);
+            out.writeUTF(str);
+        }
+    }
+
+    /**
+     * Read a possibly null string.
+     *
+     * @param in the stream to read from
+     *
+     * @return the string
+     *
+     * @throws IOException if the read fails
+     */
+    static String readString(final DataInputStream in) throws IOException {
+        return (in.readByte() == NULL_STRING) ? null : in.readUTF();
+    }
+
+    /**
+     * Write a name.
+     *
+     * @param out the stream to write to
+     * @param name the name
+     *
+     * @throws IOException if the write fails
+     */
+    static void writeName(final DataOutputStream out, final Name name) throws IOException {
+        writeString(out, name.getLastName());
+        writeString(out, name.getFirstName());
+        writeString(out, name.getMiddleName());
+    }
+
+    /**
+     * Read a name.
+     *
+     * @param in the stream to read from
+     *
+     * @return the name
+     *
+     * @throws IOException if the read fails
+     */
+    static Name readName(final DataInputStream in) throws IOException {
+        final String lastName = readString(in);
+        final String firstName = readString(in);
+        final String middleName = readString(in);
+        return new Name(lastName, firstName, middleName);
+    }
+
+    /**
+     * Write an address.
+     *
+     * @param out the stream to write to
+     * @param address the address
+     *
+     * @throws IOException if the write fails
+     */
+    static void writeAddress(final DataOutputStream out, final Address address) throws IOException {
+        writeString(out, address.getStreetNumber());
+        writeString(out, address.getCity());
+        out.writeByte(address.getState().ordinal());
+        writeString(out, address.getPostalCode());
+    }
+
+    /**
+     * Read an address.
+     *
+     * @param in the stream to read from
+     *
+     * @return the address
+     *
+     * @throws IOException if the read fails
+     */
+    static Address readAddress(final DataInputStream in) throws IOException {
+        final String street = readString(in);
+        final String city = readString(in);
+        final StateCode state = STATE_CODES[checkIndex(in.readUnsignedByte(), STATE_CODES.length)];
+        final String postalCode = readString(in);
+        return new Address(street, city, state, postalCode);
+    }
+
+    /**
+     * Determines if a client account can be encoded, the contact, address
+     * and state must all be present.
+     *
+     * @param client the client
+     *
+     * @return true if the client can be encoded
+     */
+    static boolean canEncode(final ClientAccount client) {
+        return client != null && client.getContact() != null
+            && client.getAddress() != null && client.getAddress().getState() != null;
+    }
+
+    /**
+     * Write a client account.
+     *
+     * @param out the stream to write to
+     * @param client the client
+     *
+     * @throws IOException if the write fails
+     */
+    static void writeClient(final DataOutputStream out, final ClientAccount client) throws IOException {
+        writeString(out, client.getName());
+        writeName(out, client.getContact());
+        writeAddress(out, client.getAddress());
+    }
+
+    /**
+     * Read a client account.
+     *
+     * @param in the stream to read from
+     *
+     * @return the canonical instance of the client
+     *
+     * @throws IOException if the read fails
+     */
+    static ClientAccount readClient(final DataInputStream in) throws IOException {
+        final String name = readString(in);
+        final Name contact = readName(in);
+        final Address address = readAddress(in);
+        return ClientAccount.intern(new ClientAccount(name, contact, address));
+    }
+
+    /**
+     * Determines if a consultant can be encoded, only Consultant itself, not
+     * its subclasses, is supported.
+     *
+     * @param consultant the consultant
+     *
+     * @return true if the consultant can be encoded
+     */
+    static boolean canEncode(final Consultant consultant) {
+        return consultant != null && consultant.getClass() == Consultant.class
+            && consultant.getName() != null;
+    }
+
+    /**
+     * Write a consultant.
+     *
+     * @param out the stream to write to
+     * @param consultant the consultant
+     *
+     * @throws IOException if the write fails
+     */
+    static void writeConsultant(final DataOutputStream out, final Consultant consultant) throws IOException {
+        writeName(out, consultant.getName());
+    }
+
+    /**
+     * Read a consultant.
+     *
+     * @param in the stream to read from
+     *
+     * @return the canonical instance of the consultant
+     *
+     * @throws IOException if the read fails
+     */
+    static Consultant readConsultant(final DataInputStream in) throws IOException {
+        return Consultant.intern(new Consultant(readName(in)));
+    }
+
+    /**
+     * Determines if a time card can be encoded.
+     *
+     * @param timeCard the time card
+     *
+     * @return true if the time card can be encoded
+     */
+    static boolean canEncode(final TimeCard timeCard) {
+        if (timeCard == null || !canEncode(timeCard.getConsultant())
+            || timeCard.getConsultingHours().size() > MAX_COUNT) {
+            return false;
+        }
+        for (final ConsultantTime time : timeCard.getConsultingHours()) {
+            final Account account = time.getAccount();
+            final boolean accountEncodable = (account instanceof ClientAccount)
+                ? canEncode((ClientAccount)account) : account instanceof NonBillableAccount;
+            if (!accountEncodable || time.getSkill() == null || time.getDate() == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Write a time card.  The distinct client accounts are written once, ahead
+     * of the time entries, which refer to them by index.
+     *
+     * @param out the stream to write to
+     * @param timeCard the time card
+     *
+     * @throws IOException if the write fails
+     */
+    static void writeTimeCard(final DataOutputStream out, final TimeCard timeCard) throws IOException {
+        writeConsultant(out, timeCard.getConsultant());
+        out.writeLong(timeCard.getWeekStartingDay().getTime());
+
+        final List<ConsultantTime> hours = timeCard.getConsultingHours();
+        final List<ClientAccount> clients = new ArrayList<ClientAccount>();
+        for (final ConsultantTime time : hours) {
+            final Account account = time.getAccount();
+            if (account instanceof ClientAccount && !clients.contains(account)) {
+                clients.add((ClientAccount)account);
+            }
+        }
+        out.writeShort(clients.size());
+        for (final ClientAccount client : clients) {
+            writeClient(out, client);
+        }
+
+        out.writeShort(hours.size());
+        for (final ConsultantTime time : hours) {
+            out.writeLong(time.getDate().getTime());
+            final Account account = time.getAccount();
+            if (account instanceof ClientAccount) {
+                out.writeByte(CLIENT_ACCOUNT);
+                out.writeShort(clients.indexOf(account));
+            } else {
+                out.writeByte(NON_BILLABLE_ACCOUNT);
+                out.writeByte(((NonBillableAccount)account).ordinal());
+            }
+            out.writeByte(time.getSkill().ordinal());
+            out.writeInt(time.getHours());
+        }
+    }
+
+    /**
+     * Read a time card.
+     *
+     * @param in the stream to read from
+     *
+     * @return the time card
+     *
+     * @throws IOException if the read fails
+     */
+    static TimeCard readTimeCard(final DataInputStream in) throws IOException {
+        final Consultant consultant = readConsultant(in);
+        final TimeCard timeCard = new TimeCard(consultant, new Date(in.readLong()));
+
+        final int clientCount = in.readUnsignedShort();
+        final ClientAccount[] clients = new ClientAccount[clientCount];
+        for (int i = 0; i < clientCount; i++) {
+            clients[i] = readClient(in);
+        }
+
+        final int entryCount = in.readUnsignedShort();
+        for (int i = 0; i < entryCount; i++) {
+            final Date date = new Date(in.readLong());
+            final Account account;
+            final byte accountTag = in.readByte();
+            if (accountTag == CLIENT_ACCOUNT) {
+                account = clients[checkIndex(in.readUnsignedShort(), clientCount)];
+            } else if (accountTag == NON_BILLABLE_ACCOUNT) {
+                account = NON_BILLABLE_ACCOUNTS[checkIndex(in.readUnsignedByte(),
+                                                           NON_BILLABLE_ACCOUNTS.length)];
+            } else {
+                throw new StreamCorruptedException("Invalid account tag: " + accountTag);
+            }
+            final Skill skill = SKILLS[checkIndex(in.readUnsignedByte(), SKILLS.length)];
+            final int hours = in.readInt();
+            try {
+                timeCard.addConsultantTime(new ConsultantTime(date, account, skill, hours));
+            } catch (final IllegalArgumentException ex) {
+                throw new StreamCorruptedException(ex.getMessage());
+            }
+        }
+        return timeCard;
+    }
+
+    /**
+     * Validate an index read from the stream.
+     *
+     * @param index the index
+     * @param length the length of the indexed table
+     *
+     * @return the index
+     *
+     * @throws StreamCorruptedException if the index is out of range
+     */
+    private static int checkIndex(final int index, final int length) throws StreamCorruptedException {
+        if (index >= length) {
+            throw new StreamCorruptedException("Invalid index: " + index);
+        }
+        return index;
+    }
+}
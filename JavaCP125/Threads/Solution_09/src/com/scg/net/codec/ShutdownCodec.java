@@ -0,0 +1,36 @@
+package com.scg.net.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+
+import com.scg.net.ShutdownCommand;
+
+/**
+ * Codec for the ShutdownCommand, which has no content.
+ *
+ * @author Russ Moul
+ */
+final class ShutdownCodec implements CommandCodec<ShutdownCommand> {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean canEncode(final ShutdownCommand command) {
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final ShutdownCommand command, final DataOutputStream out) {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ShutdownCommand decode(final DataInputStream in) {
+        return new ShutdownCommand();
+    }
+}
@@ -0,0 +1,384 @@
+package com.scg.net.server;
+
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.scg.net.CommandFrames;
+import com.scg.net.CommandResponse;
+import com.scg.net.WireFormat;
+
+/**
+ * The state of a single client connection served by an EventLoop.  Bytes are
+ * accumulated as they arrive and each complete frame is decoded, on the event
+ * loop thread, and queued for the connection's CommandProcessor.  The queued
+ * commands are executed in order on a worker executor, never more than one at
+ * a time for a connection, so a long running command doesn't hold up the
+ * event loop's other connections.  Reading is suspended while
+ * MAX_QUEUED_COMMANDS commands are waiting to be executed.
+ * <p>
+ * If the client requests acknowledgements this connection is also the
+ * processor's ResponseChannel; responses are queued while commands are
+ * executed and written once the queued commands have been executed, any not
+ * written immediately being written by the event loop when the channel
+ * becomes writable.
+ *
+ * @author Russ Moul
+ */
+final class ChannelConnection implements ResponseChannel {
+    /** This class' logger. */
+    private static final Logger logger =
+                         Logger.getLogger(ChannelConnection.class.getName());
+
+    /** Mask for a single byte. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** Initial size of the receive buffer. */
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+
+    /** The number of queued commands at which reading is suspended. */
+    private static final int MAX_QUEUED_COMMANDS = 64;
+
+    /** The client channel. */
+    private final SocketChannel channel;
+
+    /** The command processor commands are dispatched to. */
+    private final CommandProcessor processor;
+
+    /** The executor commands are executed on. */
+    private final Executor workers;
+
+    /** Decoded commands waiting to be executed. */
+    private final Queue<Object> queued = new ConcurrentLinkedQueue<Object>();
+
+    /** The number of decoded commands waiting to be executed. */
+    private final AtomicInteger queuedCount = new AtomicInteger();
+
+    /** Whether a task executing the queued commands has been submitted. */
+    private final AtomicBoolean executing = new AtomicBoolean();
+
+    /** Executes the queued commands, submitted to the worker executor. */
+    private final Runnable executeQueued = new Runnable() {
+        @Override
+        public void run() {
+            executeQueued();
+        }
+    };
+
+    /** Received bytes not yet decoded, kept in write mode between reads. */
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    /** Responses not yet written, kept in write mode, null until needed. */
+    private ByteBuffer outbound;
+
+    /** The selection key of the channel, set when registered. */
+    private SelectionKey key;
+
+    /** The format negotiated with the client, null until negotiated. */
+    private WireFormat format;
+
+    /** Whether reading is suspended, guarded by this connection's lock. */
+    private boolean readSuspended;
+
+    /**
+     * Construct a ChannelConnection.
+     *
+     * @param channel the client channel
+     * @param processor the command processor for this connection
+     * @param workers the executor commands are executed on
+     */
+    ChannelConnection(final SocketChannel channel, final CommandProcessor processor,
+                      final Executor workers) {
+        this.channel = channel;
+        this.processor = processor;
+        this.workers = workers;
+    }
+
+    /**
+     * Gets the client channel.
+     *
+     * @return the channel.
+     */
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Set the selection key of the channel.
+     *
+     * @param key the selection key
+     */
+    synchronized void setKey(final SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Read the available bytes from the channel and queue each complete
+     * command received for execution.
+     *
+     * @return false if the connection has been closed, by either end
+     *
+     * @throws IOException if the read fails or the stream is corrupt
+     */
+    boolean read() throws IOException {
+        if (channel.read(buffer) < 0) {
+            return false;
+        }
+        buffer.flip();
+        try {
+            if (format == null && !negotiate()) {
+                return true;
+            }
+            byte[] payload;
+            while ((payload = CommandFrames.nextPayload(buffer)) != null) {
+                dispatch(payload);
+                if (!channel.isOpen()) {
+                    return false;
+                }
+            }
+        } finally {
+            if (channel.isOpen()) {
+                buffer.compact();
+            }
+        }
+        ensureCapacity();
+        if (queuedCount.get() >= MAX_QUEUED_COMMANDS) {
+            synchronized (this) {
+                if (queuedCount.get() >= MAX_QUEUED_COMMANDS) {
+                    readSuspended = true;
+                    updateInterestOps();
+                }
+            }
+        }
+        return channel.isOpen();
+    }
+
+    /**
+     * Read the stream header and reply with the selected format, once the
+     * complete header has been received.
+     *
+     * @return true if the format has been negotiated, false if more of the
+     *         header is needed
+     *
+     * @throws IOException if the header is invalid, none of the offered
+     *         formats are supported or the reply can't be sent
+     */
+    private boolean negotiate() throws IOException {
+        final int start = buffer.position();
+        if (buffer.remaining() < CommandFrames.HEADER_LENGTH + 1) {
+            return false;
+        }
+        final int magic = buffer.getInt(start);
+        if (magic != CommandFrames.FRAME_MAGIC) {
+            throw new StreamCorruptedException(
+                    String.format("Invalid frame stream header: %08x", magic));
+        }
+        final int count = buffer.get(start + CommandFrames.HEADER_LENGTH) & BYTE_MASK;
+        if (buffer.remaining() < CommandFrames.HEADER_LENGTH + 1 + count + 1) {
+            return false;
+        }
+        buffer.position(start + CommandFrames.HEADER_LENGTH + 1);
+        final int[] offered = new int[count];
+        for (int i = 0; i < count; i++) {
+            offered[i] = buffer.get() & BYTE_MASK;
+        }
+        final int options = buffer.get() & CommandFrames.SUPPORTED_OPTIONS;
+        final WireFormat selected = CommandFrames.selectFormat(offered);
+        final ByteBuffer reply = ByteBuffer.allocate(2);
+        reply.put((byte)((selected == null) ? CommandFrames.NO_FORMAT : selected.getId()));
+        reply.put((byte)options);
+        reply.flip();
+        channel.write(reply);
+        if (reply.hasRemaining()) {
+            throw new IOException("Unable to send format negotiation reply.");
+        }
+        if (selected == null) {
+            throw new StreamCorruptedException("None of the offered formats are supported.");
+        }
+        format = selected;
+        if ((options & CommandFrames.ACK_OPTION) != 0) {
+            processor.setResponseChannel(this);
+        }
+        return true;
+    }
+
+    /**
+     * Queue a response, written once the commands currently queued have been
+     * executed.  Called from the worker executing the commands.
+     *
+     * @param response the response
+     *
+     * @throws IOException if the response can't be encoded
+     */
+    @Override
+    public synchronized void send(final CommandResponse response) throws IOException {
+        final byte[] frame = CommandFrames.toResponseFrame(response);
+        if (outbound == null) {
+            outbound = ByteBuffer.allocate(Math.max(INITIAL_BUFFER_SIZE, frame.length));
+        } else if (outbound.remaining() < frame.length) {
+            final ByteBuffer larger =
+                ByteBuffer.allocate(Math.max(outbound.capacity() * 2,
+                                             outbound.position() + frame.length));
+            outbound.flip();
+            larger.put(outbound);
+            outbound = larger;
+        }
+        outbound.put(frame);
+    }
+
+    /**
+     * Write as many queued responses as the channel will accept, registering
+     * interest in writability if any remain.  Called from both the worker
+     * executing commands and the event loop.
+     *
+     * @throws IOException if the write fails
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (outbound == null || !channel.isOpen()) {
+            return;
+        }
+        outbound.flip();
+        try {
+            channel.write(outbound);
+        } finally {
+            outbound.compact();
+        }
+        updateInterestOps();
+    }
+
+    /**
+     * Set the interest operations of the channel's key from the state of the
+     * connection, waking the selector if they change.  Must be called holding
+     * this connection's lock.
+     */
+    private void updateInterestOps() {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = readSuspended ? 0 : SelectionKey.OP_READ;
+        if (outbound != null && outbound.position() > 0) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+        if (key.interestOps() != ops) {
+            key.interestOps(ops);
+            key.selector().wakeup();
+        }
+    }
+
+    /**
+     * Decode a frame payload and queue it for execution.
+     *
+     * @param payload the frame payload
+     *
+     * @throws IOException if the payload is corrupt
+     */
+    private void dispatch(final byte[] payload) throws IOException {
+        final Object obj;
+        try {
+            obj = format.decode(payload, 0, payload.length);
+        } catch (final ClassNotFoundException ex) {
+            logger.log(Level.SEVERE, "Read command of an unknown type.", ex);
+            return;
+        }
+        queued.add(obj);
+        queuedCount.incrementAndGet();
+        scheduleExecution();
+    }
+
+    /**
+     * Submit a task executing the queued commands, unless one has already
+     * been submitted.  The connection is closed if the executor refuses the
+     * task, as it does once the server has been shut down.
+     */
+    private void scheduleExecution() {
+        if (executing.compareAndSet(false, true)) {
+            try {
+                workers.execute(executeQueued);
+            } catch (final RejectedExecutionException ex) {
+                executing.set(false);
+                logger.log(Level.WARNING, "Unable to execute commands, closing connection.", ex);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Execute the queued commands in order, then send their responses.  Run
+     * on the worker executor.
+     */
+    private void executeQueued() {
+        try {
+            Object obj;
+            while (channel.isOpen() && (obj = queued.poll()) != null) {
+                queuedCount.decrementAndGet();
+                processor.process(obj);
+            }
+            flush();
+        } catch (final IOException ex) {
+            logger.log(Level.SEVERE, "Attempt to send response failed.", ex);
+            close();
+        } catch (final RuntimeException ex) {
+            logger.log(Level.SEVERE, "Command processing failed, closing connection.", ex);
+            close();
+        } finally {
+            executing.set(false);
+        }
+        if (!channel.isOpen()) {
+            queued.clear();
+            return;
+        }
+        synchronized (this) {
+            if (readSuspended && queuedCount.get() < MAX_QUEUED_COMMANDS) {
+                readSuspended = false;
+                updateInterestOps();
+            }
+        }
+        if (!queued.isEmpty()) {
+            scheduleExecution();
+        }
+    }
+
+    /**
+     * Grows the receive buffer if it is full and a partial frame, larger than
+     * the buffer, is pending.
+     *
+     * @throws StreamCorruptedException if the pending frame length is invalid
+     */
+    private void ensureCapacity() throws StreamCorruptedException {
+        if (buffer.hasRemaining()) {
+            return;
+        }
+        int required = buffer.capacity() * 2;
+        if (format != null && buffer.position() >= CommandFrames.HEADER_LENGTH) {
+            final int length = buffer.getInt(0);
+            CommandFrames.checkLength(length);
+            required = Math.max(required, CommandFrames.HEADER_LENGTH + length);
+        }
+        final ByteBuffer larger = ByteBuffer.allocate(required);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    /**
+     * Close the connection.
+     */
+    void close() {
+        try {
+            channel.close();
+        } catch (final IOException ex) {
+            logger.log(Level.WARNING, "Attempt to close connection failed.", ex);
+        }
+    }
+}
@@ -1,31 +1,39 @@
 package com.scg.net.server;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.PrintStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.Socket;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.scg.domain.ClientAccount;
-import com.scg.domain.Consultant;
+import com.scg.domain.ClientRegistry;
+import com.scg.domain.ConsultantRegistry;
 import com.scg.domain.Invoice;
-import com.scg.domain.TimeCard;
+import com.scg.domain.InvoiceLineItem;
 import com.scg.net.AddClientCommand;
 import com.scg.net.AddConsultantCommand;
 import com.scg.net.AddTimeCardCommand;
+import com.scg.net.BatchCommand;
 import com.scg.net.Command;
+import com.scg.net.CommandFrameInputStream;
+import com.scg.net.CommandFrames;
+import com.scg.net.CommandResponse;
 import com.scg.net.CreateInvoicesCommand;
 import com.scg.net.DisconnectCommand;
 import com.scg.net.ShutdownCommand;
-import com.scg.util.DateRange;
-import com.scg.util.TimeCardListUtil;
 
 /**
  * The command processor for the invoice server. Implements the receiver role in
@@ -38,17 +46,20 @@ public final class CommandProcessor implements Runnable {
     private static final Logger logger =
                          Logger.getLogger(CommandProcessor.class.getName());
 
+    /** The platform line separator, written after each invoice. */
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
     /** The socket connection. */
     private final Socket connection;
 
-    /** The client list to be maintained by this CommandProcessor. */
-    private final List<ClientAccount> clientList;
+    /** The client registry to be maintained by this CommandProcessor. */
+    private final ClientRegistry clientRegistry;
 
-    /** The consultant list to be maintained by this CommandProcessor. */
-    private final List<Consultant> consultantList;
+    /** The consultant registry to be maintained by this CommandProcessor. */
+    private final ConsultantRegistry consultantRegistry;
 
-    /** The time card list to be maintained by this CommandProcessor. */
-    private final List<TimeCard> timeCardList = new ArrayList<TimeCard>();
+    /** The server wide time card store. */
+    private final TimeCardStore timeCardStore;
 
     /** The name of the directory to be used for files output by commands. */
     private String outputDirectoryName = "server/";
@@ -59,25 +70,31 @@ public final class CommandProcessor implements Runnable {
     /** The server this command processor is spawned from. */
     private final InvoiceServer server;
 
+    /** The channel responses are sent on, null if not acknowledging. */
+    private ResponseChannel responses;
+
     /**
      * Construct a CommandProcessor to run in a networked environment.
      *
      * @param connection the Socket connecting the server to the client.
      * @param name the name assigned to this CommandProcessor by the server;
      *             mostly for logging.
-     * @param clientList the ClientList to add Clients to.
-     * @param consultantList the ConsultantList to add Consultants to.
+     * @param clientRegistry the ClientRegistry to add Clients to.
+     * @param consultantRegistry the ConsultantRegistry to add Consultants to.
+     * @param timeCardStore the TimeCardStore to add TimeCards to.
      * @param server the server that created this command processor
      */
     public CommandProcessor(final Socket connection,
                             final String name,
-                            final List<ClientAccount> clientList,
-                            final List<Consultant> consultantList,
+                            final ClientRegistry clientRegistry,
+                            final ConsultantRegistry consultantRegistry,
+                            final TimeCardStore timeCardStore,
                             final InvoiceServer server) {
         this.connection = connection;
         this.name = name;
-        this.clientList = clientList;
-        this.consultantList = consultantList;
+        this.clientRegistry = clientRegistry;
+        this.consultantRegistry = consultantRegistry;
+        this.timeCardStore = timeCardStore;
         this.server = server;
     }
 
@@ -90,6 +107,15 @@ public final class CommandProcessor implements Runnable {
         this.outputDirectoryName = outPutDirectoryName;
     }
 
+    /**
+     * Set the channel responses are sent on.
+     *
+     * @param responses the response channel, null to not send responses
+     */
+    void setResponseChannel(final ResponseChannel responses) {
+        this.responses = responses;
+    }
+
     /**
      * Execute and AddTimeCardCommand.
      *
@@ -98,7 +124,10 @@ public final class CommandProcessor implements Runnable {
     public void execute(final AddTimeCardCommand command) {
         logger.info(String.format("Processor %s executing add time card command: %s",
                                   name, command.getTarget().getConsultant().getName()));
-        timeCardList.add(command.getTarget());
+        if (timeCardStore.add(command.getTarget()) != null) {
+            logger.fine(String.format("Processor %s replaced time card: %s",
+                                      name, command.getTarget()));
+        }
     }
 
     /**
@@ -109,12 +138,7 @@ public final class CommandProcessor implements Runnable {
     public void execute(final AddClientCommand command) {
         logger.info(String.format("Processor %s executing add client command: %s",
                                   name, command.getTarget().getName()));
-        final ClientAccount newAccount = command.getTarget();
-        synchronized (clientList) {
-            if (!clientList.contains(newAccount)) {
-                clientList.add(newAccount);
-            }
-        }
+        clientRegistry.putIfAbsent(command.getTarget());
     }
 
     /**
@@ -125,53 +149,103 @@ public final class CommandProcessor implements Runnable {
     public void execute(final AddConsultantCommand command) {
         logger.info(String.format("Processor %s executing add consultant command: %s",
                                   name, command.getTarget().getName()));
-        final Consultant newConsultant = command.getTarget();
-        synchronized (consultantList) {
-            if (!consultantList.contains(newConsultant)) {
-                consultantList.add(newConsultant);
+        consultantRegistry.putIfAbsent(command.getTarget());
+    }
+
+    /**
+     * Execute a BatchCommand, executing each of its sub-commands in order.
+     * The registries and time card store are concurrent so no lock is held
+     * for the batch, or acquired per sub-command.  Execution stops if a
+     * sub-command closes the connection.
+     *
+     * @param command the command to execute.
+     */
+    public void execute(final BatchCommand command) {
+        logger.info(String.format("Processor %s executing batch command: %d commands",
+                                  name, command.getTarget().size()));
+        for (final Command<?> subCommand : command.getTarget()) {
+            if (connection.isClosed()) {
+                break;
             }
+            subCommand.setReceiver(this);
+            subCommand.execute();
         }
     }
 
     /**
-     * Execute a CreateInvoicesCommand.
+     * Execute a CreateInvoicesCommand.  Each client's invoice is generated,
+     * from the line items the time card store maintains as time cards are
+     * added, and written as a separate task on the server's invoice executor.
+     * This command completes when every invoice has been written.
      *
      * @param command the command to execute.
      */
     public void execute(final CreateInvoicesCommand command) {
         logger.info(String.format("Processor %s executing invoices command: %s",
                                   name, command));
-        Invoice invoice = null;
         final Calendar calendar = Calendar.getInstance();
         calendar.setTime(command.getTarget());
+        final int month = calendar.get(Calendar.MONTH);
+        final int year = calendar.get(Calendar.YEAR);
         final SimpleDateFormat formatter = new SimpleDateFormat("MMMMyyyy");
         final String monthString = formatter.format(calendar.getTime());
-        synchronized (clientList) {
-            for (final ClientAccount client : clientList) {
-                invoice = new Invoice(client, calendar.get(Calendar.MONTH),
-                                              calendar.get(Calendar.YEAR));
-                List<TimeCard> timeCardListForClient;
-                timeCardListForClient = TimeCardListUtil.getTimeCardsForDateRange(
-                        timeCardList, new DateRange(calendar.get(Calendar.MONTH),
-                                                    calendar.get(Calendar.YEAR)));
 
-                for (final TimeCard currentTimeCard : timeCardListForClient) {
-                    invoice.extractLineItems(currentTimeCard);
+        final List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+        for (final ClientAccount client : clientRegistry) {
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    writeInvoice(client, month, year, monthString);
+                    return null;
                 }
+            });
+        }
+        try {
+            for (final Future<Void> result : server.getInvoiceExecutor().invokeAll(tasks)) {
+                try {
+                    result.get();
+                } catch (final ExecutionException ex) {
+                    logger.log(Level.SEVERE, "Invoice generation failed.", ex.getCause());
+                }
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            logger.warning(String.format("Processor %s interrupted creating invoices.", name));
+        }
+    }
+
+    /**
+     * Generate a client's invoice and write it to a file.
+     *
+     * @param client the client to invoice
+     * @param month the invoice month
+     * @param year the invoice year
+     * @param monthString the month and year, as used in the file name
+     */
+    private void writeInvoice(final ClientAccount client, final int month, final int year,
+                              final String monthString) {
+        final Invoice invoice = new Invoice(client, month, year);
+        final Iterable<InvoiceLineItem> lineItems =
+            timeCardStore.getInvoiceLineItems(client.getName(), month, year);
 
-                final String outFileName = String.format("%s%s%sInvoice-%d.txt",
-                        outputDirectoryName, client.getName().replaceAll(" ", ""),
-                        monthString, connection.getPort());
-                PrintStream printOut = null;
+        final String outFileName = String.format("%s%s%sInvoice-%d.txt",
+                outputDirectoryName, client.getName().replaceAll(" ", ""),
+                monthString, connection.getPort());
+        Writer out = null;
+        try {
+            out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outFileName)));
+            invoice.write(out, lineItems);
+            out.write(LINE_SEPARATOR);
+        } catch (final FileNotFoundException e) {
+            logger.log(Level.SEVERE, "Can't open file " + outFileName, e);
+        } catch (final IOException e) {
+            logger.log(Level.SEVERE, "Unable to write invoice to " + outFileName, e);
+        } finally {
+            if (out != null) {
                 try {
-                    printOut = new PrintStream(new FileOutputStream(outFileName), true);
-                    printInvoice(invoice, printOut);
-                } catch (final FileNotFoundException e) {
-                    logger.log(Level.SEVERE, "Can't open file " + outFileName, e);
-                } finally {
-                    if (printOut != null) {
-                        printOut.close();
-                    }
+                    out.close();
+                } catch (final IOException e) {
+                    logger.log(Level.SEVERE, "Unable to close " + outFileName, e);
                 }
             }
         }
@@ -186,6 +260,7 @@ public final class CommandProcessor implements Runnable {
         logger.info(String.format("Processor %s executing disconnect command: %s",
                                   name, command));
         try {
+            acknowledge(command);
             connection.close();
         } catch (final IOException e) {
             logger.log(Level.WARNING, "Disconnect unable to close client connection.", e);
@@ -201,6 +276,7 @@ public final class CommandProcessor implements Runnable {
         logger.info(String.format("Processor %s executing shutdown command: %s",
                                   name, command));
         try {
+            acknowledge(command);
             connection.close();
         } catch (final IOException e) {
             logger.log(Level.WARNING, "Shutdown unable to close client connection.", e);
@@ -209,13 +285,57 @@ public final class CommandProcessor implements Runnable {
     }
 
     /**
-     * Print the invoice to a PrintStream.
+     * Send a command's OK response immediately, used by commands which close
+     * the connection.
+     *
+     * @param command the command executed
      *
-     * @param invoice the invoice to print.
-     * @param printOut The output stream; can be System.out or a text file.
+     * @throws IOException if the response can't be sent
      */
-    private void printInvoice(final Invoice invoice, final PrintStream printOut) {
-        printOut.println(invoice.toString());
+    private void acknowledge(final Command<?> command) throws IOException {
+        if (responses != null) {
+            responses.send(new CommandResponse(command.getSequenceNumber(),
+                                               CommandResponse.Status.OK, null));
+            responses.flush();
+        }
+    }
+
+    /**
+     * Process an object received from the client, executing it if it is a
+     * Command and discarding it otherwise.  If the client has requested
+     * acknowledgements a response is queued, unless the command closed the
+     * connection.
+     *
+     * @param obj the object received.
+     *
+     * @throws IOException if the response can't be sent
+     */
+    void process(final Object obj) throws IOException {
+        CommandResponse response;
+        if (obj instanceof Command<?>) {
+            final Command<?> command = (Command<?>)obj;
+            logger.info(String.format("Received command: %s",
+                        command.getClass().getSimpleName()));
+            command.setReceiver(this);
+            try {
+                command.execute();
+                response = new CommandResponse(command.getSequenceNumber(),
+                                               CommandResponse.Status.OK, null);
+            } catch (final RuntimeException ex) {
+                logger.log(Level.SEVERE, String.format("Processor %s command %s failed.",
+                                                       name, command), ex);
+                response = new CommandResponse(command.getSequenceNumber(),
+                                               CommandResponse.Status.ERROR, ex.toString());
+            }
+        } else {
+            logger.warning(String.format("Received non command object, %s, discarding.",
+                                         obj.getClass().getSimpleName()));
+            response = new CommandResponse(0, CommandResponse.Status.ERROR,
+                                           "Not a command: " + obj.getClass().getName());
+        }
+        if (responses != null && !connection.isClosed()) {
+            responses.send(response);
+        }
     }
 
     /**
@@ -227,29 +347,27 @@ public final class CommandProcessor implements Runnable {
         logger.info("Connection made.");
         ObjectInputStream in = null;
         try {
-            in = new ObjectInputStream(connection.getInputStream());
-            connection.shutdownOutput();
+            in = CommandFrames.newObjectInputStream(connection.getInputStream(),
+                                                    connection.getOutputStream());
+            if (in instanceof CommandFrameInputStream
+                && ((CommandFrameInputStream)in).isAcknowledged()) {
+                responses = new StreamResponseChannel(connection.getOutputStream());
+            } else {
+                connection.shutdownOutput();
+            }
         } catch (final IOException ex) {
             logger.log(Level.SEVERE, "Attempt to get input stream from socket.", ex);
             return;
         }
         try {
-                        
             while (!connection.isClosed()) {
-                final Object obj = in.readObject();
-                if (obj instanceof Command<?>) {
-                    final Command<?> command = (Command<?>)obj;
-                    logger.info(String.format("Received command: %s",
-                                command.getClass().getSimpleName()));
-                    command.setReceiver(this);
-                    command.execute();
-                } else {
-                    logger.warning(String.format("Received non command object, %s, discarding.",
-                                                 obj.getClass().getSimpleName()));
+                process(in.readObject());
+                if (responses != null && !connection.isClosed() && in.available() == 0) {
+                    responses.flush();
                 }
             }
         } catch (final IOException ex) {
-            logger.log(Level.SEVERE, "Attempt to read command failed.", ex);
+            logger.log(Level.SEVERE, "Attempt to read command or send response failed.", ex);
         } catch (final ClassNotFoundException ex) {
             logger.log(Level.SEVERE, "Read command of an unknown type.", ex);
 
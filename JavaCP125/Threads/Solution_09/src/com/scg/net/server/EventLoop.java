@@ -0,0 +1,178 @@
+package com.scg.net.server;
+
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A selector based event loop serving any number of client connections on a
+ * single thread.  The loop only reads commands and writes responses, the
+ * commands are executed on a worker executor.  Used by the InvoiceServer in
+ * NON_BLOCKING mode.
+ *
+ * @author Russ Moul
+ */
+final class EventLoop implements Runnable {
+    /** This class' logger. */
+    private static final Logger logger =
+                         Logger.getLogger(EventLoop.class.getName());
+
+    /** The selector for this loop's connections. */
+    private final Selector selector;
+
+    /** Connections waiting to be registered with the selector. */
+    private final Queue<ChannelConnection> pending =
+        new ConcurrentLinkedQueue<ChannelConnection>();
+
+    /** The name of this event loop, mostly for logging purposes. */
+    private final String name;
+
+    /** The executor the commands received are executed on. */
+    private final Executor workers;
+
+    /** Whether this loop should continue running. */
+    private volatile boolean running = true;
+
+    /**
+     * Construct an EventLoop.
+     *
+     * @param name the name of this event loop
+     * @param workers the executor the commands received are executed on
+     *
+     * @throws IOException if the selector can't be opened
+     */
+    EventLoop(final String name, final Executor workers) throws IOException {
+        this.name = name;
+        this.workers = workers;
+        selector = Selector.open();
+    }
+
+    /**
+     * Hand a new connection to this event loop.  May be called from any
+     * thread.
+     *
+     * @param channel the client channel, in non-blocking mode
+     * @param processor the command processor for the connection
+     */
+    void register(final SocketChannel channel, final CommandProcessor processor) {
+        pending.add(new ChannelConnection(channel, processor, workers));
+        selector.wakeup();
+    }
+
+    /**
+     * Stop this event loop, closing all of its connections.  May be called
+     * from any thread.
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Run this event loop until stopped.
+     */
+    @Override
+    public void run() {
+        logger.info(String.format("Event loop %s running.", name));
+        try {
+            while (running) {
+                selector.select();
+                registerPending();
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isWritable()) {
+                        write(key);
+                    }
+                    if (key.isValid() && key.isReadable()) {
+                        read(key);
+                    }
+                }
+            }
+        } catch (final IOException ex) {
+            logger.log(Level.SEVERE, "Event loop select failed.", ex);
+        } finally {
+            closeAll();
+        }
+    }
+
+    /**
+     * Register the connections handed to this loop since the last select.
+     */
+    private void registerPending() {
+        ChannelConnection connection;
+        while ((connection = pending.poll()) != null) {
+            try {
+                connection.setKey(connection.getChannel().register(selector,
+                                  SelectionKey.OP_READ, connection));
+            } catch (final ClosedChannelException ex) {
+                logger.log(Level.WARNING, "Connection closed before registration.", ex);
+            }
+        }
+    }
+
+    /**
+     * Read from a connection that is ready, closing it on end of stream or
+     * error.
+     *
+     * @param key the selection key of the ready connection
+     */
+    private void read(final SelectionKey key) {
+        final ChannelConnection connection = (ChannelConnection)key.attachment();
+        boolean open = false;
+        try {
+            open = connection.read();
+        } catch (final IOException ex) {
+            logger.log(Level.SEVERE, "Attempt to read command failed.", ex);
+        }
+        if (!open) {
+            key.cancel();
+            connection.close();
+        }
+    }
+
+    /**
+     * Write queued responses to a connection that has become writable,
+     * closing it on error.
+     *
+     * @param key the selection key of the ready connection
+     */
+    private void write(final SelectionKey key) {
+        final ChannelConnection connection = (ChannelConnection)key.attachment();
+        try {
+            connection.flush();
+        } catch (final IOException ex) {
+            logger.log(Level.SEVERE, "Attempt to send response failed.", ex);
+            key.cancel();
+            connection.close();
+        }
+    }
+
+    /**
+     * Close all connections and the selector.
+     */
+    private void closeAll() {
+        for (final SelectionKey key : selector.keys()) {
+            ((ChannelConnection)key.attachment()).close();
+        }
+        ChannelConnection connection;
+        while ((connection = pending.poll()) != null) {
+            connection.close();
+        }
+        try {
+            selector.close();
+        } catch (final IOException ex) {
+            logger.log(Level.WARNING, "Attempt to close selector failed.", ex);
+        }
+        logger.info(String.format("Event loop %s stopped.", name));
+    }
+}
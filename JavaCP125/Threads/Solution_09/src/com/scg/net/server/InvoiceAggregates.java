@@ -0,0 +1,316 @@
+package com.scg.net.server;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.scg.domain.ConsultantTime;
+import com.scg.domain.InvoiceLineItem;
+import com.scg.domain.TimeCard;
+import com.scg.domain.TimeEntryStore;
+import com.scg.util.EpochDays;
+
+/**
+ * The invoice line items of every client and month, maintained as time cards
+ * are added.  Each billable entry of a time card is routed to the client and
+ * month of its date when the time card is added, so generating an invoice
+ * only reads the entries already routed.  The entries are kept in a columnar
+ * TimeEntryStore, a time card's entries for a client and month appended as
+ * one contiguous segment, and line items are created from them one at a time
+ * as they are iterated.  A time card's segments are kept under the submission
+ * sequence number of its consultant and week, replacing a time card replaces
+ * its segments in every month either time card touched; the store is append
+ * only, so the replaced entries remain in it, unreferenced.  Line items are
+ * returned in submission order, the order they would be extracted from the
+ * time cards.
+ *
+ * @author Russ Moul
+ */
+final class InvoiceAggregates {
+    /** Months per year. */
+    private static final int MONTHS_PER_YEAR = 12;
+
+    /** The billable entries of the time cards. */
+    private final TimeEntryStore store = new TimeEntryStore();
+
+    /** The segments of the store, by client and month. */
+    private final ConcurrentMap<MonthKey, ClientMonth> months =
+        new ConcurrentHashMap<MonthKey, ClientMonth>();
+
+    /**
+     * Apply an added time card.  Callers must serialize updates for the same
+     * consultant and week.
+     *
+     * @param sequence the submission sequence number of the time card's
+     *        consultant and week
+     * @param replaced the time card replaced, or null if there was none
+     * @param timeCard the time card added
+     */
+    void update(final long sequence, final TimeCard replaced, final TimeCard timeCard) {
+        final Map<MonthKey, List<ConsultantTime>> added = groupByMonth(timeCard);
+        if (replaced != null) {
+            for (final MonthKey key : groupByMonth(replaced).keySet()) {
+                if (!added.containsKey(key)) {
+                    months.get(key).remove(sequence);
+                }
+            }
+        }
+        for (final Map.Entry<MonthKey, List<ConsultantTime>> entry : added.entrySet()) {
+            ClientMonth clientMonth = months.get(entry.getKey());
+            if (clientMonth == null) {
+                final ClientMonth created = new ClientMonth();
+                clientMonth = months.putIfAbsent(entry.getKey(), created);
+                if (clientMonth == null) {
+                    clientMonth = created;
+                }
+            }
+            final List<ConsultantTime> entries = entry.getValue();
+            final int start = store.add(timeCard.getConsultant(), entries);
+            clientMonth.put(sequence, new Segment(start, entries.size()));
+        }
+    }
+
+    /**
+     * Gets the line items of a client for a month, as of this call.  The line
+     * items are created from the stored entries as they are iterated, and may
+     * be iterated more than once.
+     *
+     * @param clientName the client name, matched ignoring case
+     * @param month the 0-based month number
+     * @param year the year
+     *
+     * @return the line items, in submission order.
+     */
+    Iterable<InvoiceLineItem> getLineItems(final String clientName, final int month, final int year) {
+        final ClientMonth clientMonth = months.get(new MonthKey(clientName, year * MONTHS_PER_YEAR + month));
+        if (clientMonth == null) {
+            return Collections.<InvoiceLineItem>emptyList();
+        }
+        final Segment[] segments = clientMonth.getSegments();
+        return new Iterable<InvoiceLineItem>() {
+            @Override
+            public Iterator<InvoiceLineItem> iterator() {
+                return new SegmentLineItems(store, segments);
+            }
+        };
+    }
+
+    /**
+     * Group the billable entries of a time card by client and month.
+     *
+     * @param timeCard the time card
+     *
+     * @return the billable entries, by client and month.
+     */
+    private static Map<MonthKey, List<ConsultantTime>> groupByMonth(final TimeCard timeCard) {
+        final Map<MonthKey, List<ConsultantTime>> groups =
+            new HashMap<MonthKey, List<ConsultantTime>>();
+        final Calendar calendar = Calendar.getInstance();
+        for (final ConsultantTime consultantTime : timeCard.getConsultingHours()) {
+            if (!consultantTime.isBillable()) {
+                continue;
+            }
+            calendar.setTimeInMillis(EpochDays.toMillis(consultantTime.getEpochDay()));
+            final MonthKey key = new MonthKey(consultantTime.getAccount().getName(),
+                    calendar.get(Calendar.YEAR) * MONTHS_PER_YEAR + calendar.get(Calendar.MONTH));
+            List<ConsultantTime> group = groups.get(key);
+            if (group == null) {
+                group = new ArrayList<ConsultantTime>();
+                groups.put(key, group);
+            }
+            group.add(consultantTime);
+        }
+        return groups;
+    }
+
+    /**
+     * The identity of a client month, the canonical client name and the
+     * month number counted from year zero.
+     */
+    private static final class MonthKey {
+        /** Factor used in calculating hashCode. */
+        private static final int HASH_FACTOR = 37;
+
+        /** The canonical, case-insensitive, client name. */
+        private final String clientName;
+
+        /** The month, year * 12 + the 0-based month number. */
+        private final int month;
+
+        /**
+         * Construct a MonthKey.
+         *
+         * @param clientName the client name
+         * @param month the month, year * 12 + the 0-based month number
+         */
+        MonthKey(final String clientName, final int month) {
+            this.clientName = clientName.toUpperCase(Locale.US).toLowerCase(Locale.US);
+            this.month = month;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return HASH_FACTOR * clientName.hashCode() + month;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MonthKey)) {
+                return false;
+            }
+            final MonthKey other = (MonthKey)obj;
+            return month == other.month && clientName.equals(other.clientName);
+        }
+    }
+
+    /**
+     * A contiguous range of entries in the store.
+     */
+    private static final class Segment {
+        /** The number of the first entry. */
+        private final int start;
+
+        /** The number of entries. */
+        private final int count;
+
+        /**
+         * Construct a Segment.
+         *
+         * @param start the number of the first entry
+         * @param count the number of entries
+         */
+        Segment(final int start, final int count) {
+            this.start = start;
+            this.count = count;
+        }
+    }
+
+    /**
+     * The entries of a client for a month, by submission sequence number.
+     */
+    private static final class ClientMonth {
+        /** The segment of each time card, by submission sequence number. */
+        private final SortedMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+
+        /**
+         * Set the segment of a time card, replacing any it had.
+         *
+         * @param sequence the submission sequence number
+         * @param segment the segment
+         */
+        synchronized void put(final long sequence, final Segment segment) {
+            segments.put(Long.valueOf(sequence), segment);
+        }
+
+        /**
+         * Remove the segment of a time card.
+         *
+         * @param sequence the submission sequence number
+         */
+        synchronized void remove(final long sequence) {
+            segments.remove(Long.valueOf(sequence));
+        }
+
+        /**
+         * Gets a snapshot of the segments.
+         *
+         * @return the segments, in submission order.
+         */
+        synchronized Segment[] getSegments() {
+            return segments.values().toArray(new Segment[segments.size()]);
+        }
+    }
+
+    /**
+     * Produces line items from segments of the store, one entry at a time.
+     */
+    private static final class SegmentLineItems implements Iterator<InvoiceLineItem> {
+        /** The store holding the entries. */
+        private final TimeEntryStore store;
+
+        /** The segments. */
+        private final Segment[] segments;
+
+        /** The index of the next segment. */
+        private int nextSegment;
+
+        /** The cursor over the current segment, null before the first. */
+        private TimeEntryStore.Cursor cursor;
+
+        /** Whether the cursor is on an entry not yet returned. */
+        private boolean pending;
+
+        /**
+         * Construct a SegmentLineItems.
+         *
+         * @param store the store holding the entries
+         * @param segments the segments, in the order to produce their entries
+         */
+        SegmentLineItems(final TimeEntryStore store, final Segment[] segments) {
+            this.store = store;
+            this.segments = segments;
+        }
+
+        /**
+         * Whether there is another line item, advances the cursor to it.
+         *
+         * @return true if there is another line item.
+         */
+        @Override
+        public boolean hasNext() {
+            while (!pending) {
+                if (cursor != null && cursor.next()) {
+                    pending = true;
+                } else if (nextSegment < segments.length) {
+                    final Segment segment = segments[nextSegment++];
+                    cursor = store.cursor(segment.start, segment.start + segment.count);
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Gets the next line item.
+         *
+         * @return the next line item.
+         */
+        @Override
+        public InvoiceLineItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            pending = false;
+            return new InvoiceLineItem(cursor.getEpochDay(), cursor.getConsultant(),
+                                       cursor.getSkill(), cursor.getHours());
+        }
+
+        /**
+         * Not supported.
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
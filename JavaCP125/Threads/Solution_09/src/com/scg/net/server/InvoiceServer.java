@@ -2,14 +2,26 @@ package com.scg.net.server;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.scg.domain.ClientAccount;
+import com.scg.domain.ClientRegistry;
 import com.scg.domain.Consultant;
+import com.scg.domain.ConsultantRegistry;
 
 /**
  * The server for creation of client invoices based on time cards sent from the
@@ -25,14 +37,61 @@ public final class InvoiceServer {
     /** The server directory name. */
     private static final String SERVER_DIR_NAME = "server/";
 
+    /** The number of event loops used in NON_BLOCKING mode. */
+    private static final int EVENT_LOOP_COUNT =
+        Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** The number of threads used to generate invoices. */
+    private static final int INVOICE_THREAD_COUNT = Runtime.getRuntime().availableProcessors();
+
+    /** The number of threads executing commands in NON_BLOCKING mode. */
+    private static final int COMMAND_THREAD_COUNT =
+        Math.max(2, Runtime.getRuntime().availableProcessors());
+
     /** The server socket created for each connection. */
     private final ServerSocket serverSocket;
 
-    /** The list of clients maintained by this server. */
-    private final List<ClientAccount> clientList;
+    /** The server socket channel, only used in NON_BLOCKING mode. */
+    private final ServerSocketChannel serverChannel;
+
+    /** The connection handling mode of this server. */
+    private final ServerMode mode;
+
+    /** The selector used to accept connections in NON_BLOCKING mode. */
+    private volatile Selector acceptSelector;
+
+    /** The event loops serving connections in NON_BLOCKING mode. */
+    private EventLoop[] eventLoops;
+
+    /**
+     * The executor the commands received by the event loops are executed on,
+     * only used in NON_BLOCKING mode.  Kept apart from the invoice executor
+     * so commands waiting on invoices can't starve the invoice writers.
+     */
+    private ExecutorService commandExecutor;
+
+    /**
+     * The pool running CommandProcessors in BLOCKING mode, if null a thread
+     * is started for each connection.
+     */
+    private ProcessorPool processorPool;
+
+    /** The clients maintained by this server. */
+    private final ClientRegistry clientRegistry = new ClientRegistry();
+
+    /** The consultants maintained by this server. */
+    private final ConsultantRegistry consultantRegistry = new ConsultantRegistry();
 
-    /** The list of consultants maintained by this server. */
-    private final List<Consultant> consultantList;
+    /** The time cards received by this server, shared by all connections. */
+    private final TimeCardStore timeCardStore = new TimeCardStore();
+
+    /**
+     * The executor invoices are generated on, shared by all connections.  It
+     * isn't shut down with the server as connections still being processed
+     * may yet create invoices; its threads are daemon threads.
+     */
+    private final ExecutorService invoiceExecutor =
+        Executors.newFixedThreadPool(INVOICE_THREAD_COUNT, new DaemonThreadFactory("InvoiceWriter_"));
 
     /** The socket encapsulating a client connection. */
     private Socket client;
@@ -44,7 +103,7 @@ public final class InvoiceServer {
     private int processorNumber = 1;
 
     /**
-     * Construct an InvoiceServer with a port.
+     * Construct an InvoiceServer with a port, using BLOCKING mode.
      *
      * @param port The port for this server to listen on
      * @param clientList the initial list of clients
@@ -56,16 +115,99 @@ public final class InvoiceServer {
                          final List<ClientAccount> clientList,
                          final List<Consultant> consultantList)
         throws IOException {
-        this.clientList = clientList;
-        this.consultantList = consultantList;
-        serverSocket = new ServerSocket(port);
+        this(port, clientList, consultantList, ServerMode.BLOCKING);
+    }
+
+    /**
+     * Construct an InvoiceServer with a port and connection handling mode.
+     *
+     * @param port The port for this server to listen on
+     * @param clientList the initial list of clients
+     * @param consultantList the initial list of consultants
+     * @param mode the connection handling mode
+     *
+     * @throws IOException if an IO error occurs
+     */
+    public InvoiceServer(final int port,
+                         final List<ClientAccount> clientList,
+                         final List<Consultant> consultantList,
+                         final ServerMode mode)
+        throws IOException {
+        clientRegistry.putAllAbsent(clientList);
+        consultantRegistry.putAllAbsent(consultantList);
+        this.mode = mode;
+        if (mode == ServerMode.NON_BLOCKING) {
+            serverChannel = ServerSocketChannel.open();
+            serverSocket = serverChannel.socket();
+            serverSocket.bind(new InetSocketAddress(port));
+        } else {
+            serverChannel = null;
+            serverSocket = new ServerSocket(port);
+        }
         logger.info("InvoiceServer started on: "
                 + serverSocket.getInetAddress().getHostName() + ":"
-                + serverSocket.getLocalPort());
+                + serverSocket.getLocalPort() + " in " + mode + " mode");
 
         Runtime.getRuntime().addShutdownHook(
-                        new InvoiceServerShutdownHook(clientList,
-                                                      consultantList));
+                        new InvoiceServerShutdownHook(clientRegistry,
+                                                      consultantRegistry));
+    }
+
+    /**
+     * Gets the clients maintained by this server.
+     *
+     * @return the client registry.
+     */
+    public ClientRegistry getClientRegistry() {
+        return clientRegistry;
+    }
+
+    /**
+     * Gets the consultants maintained by this server.
+     *
+     * @return the consultant registry.
+     */
+    public ConsultantRegistry getConsultantRegistry() {
+        return consultantRegistry;
+    }
+
+    /**
+     * Gets the time cards received by this server.
+     *
+     * @return the time card store.
+     */
+    public TimeCardStore getTimeCardStore() {
+        return timeCardStore;
+    }
+
+    /**
+     * Gets the executor invoices are generated on.
+     *
+     * @return the invoice executor.
+     */
+    ExecutorService getInvoiceExecutor() {
+        return invoiceExecutor;
+    }
+
+    /**
+     * Set the pool used to run CommandProcessors in BLOCKING mode.  Must be
+     * set before the server is run, if not set a thread is started for each
+     * connection.
+     *
+     * @param processorPool the pool to run CommandProcessors with
+     */
+    public void setProcessorPool(final ProcessorPool processorPool) {
+        this.processorPool = processorPool;
+    }
+
+    /**
+     * Get the pool used to run CommandProcessors, providing access to its
+     * gauges.
+     *
+     * @return the processor pool, or null if none has been set
+     */
+    public ProcessorPool getProcessorPool() {
+        return processorPool;
     }
 
     /**
@@ -73,6 +215,17 @@ public final class InvoiceServer {
      * sending them to the CommandProcesser.
      */
     public void run() {
+        if (mode == ServerMode.NON_BLOCKING) {
+            runNonBlocking();
+        } else {
+            runBlocking();
+        }
+    }
+
+    /**
+     * Run this server in BLOCKING mode, starting a thread for each connection.
+     */
+    private void runBlocking() {
         while (!serverSocket.isClosed()) {
             try {
                 logger.info("InvoiceServer waiting for connection.");
@@ -80,13 +233,18 @@ public final class InvoiceServer {
                 final CommandProcessor commandProcessor =
                     new CommandProcessor(client,
                                          "command processor " + processorNumber,
-                                         clientList, consultantList, this);
+                                         clientRegistry, consultantRegistry, timeCardStore, this);
                 final File serverDir = new File(SERVER_DIR_NAME);
                 if (serverDir.exists() || serverDir.mkdir()) {
                     commandProcessor.setOutPutDirectoryName(SERVER_DIR_NAME);
-                    final Thread thread = new Thread(commandProcessor,
-                                "CommandProcessor_" + processorNumber++);
-                    thread.start();
+                    if (processorPool != null) {
+                        processorNumber++;
+                        processorPool.execute(commandProcessor, client);
+                    } else {
+                        final Thread thread = new Thread(commandProcessor,
+                                    "CommandProcessor_" + processorNumber++);
+                        thread.start();
+                    }
                 } else {
                     logger.severe("Unable to create output directory, "
                                 + serverDir.getAbsolutePath());
@@ -106,6 +264,92 @@ public final class InvoiceServer {
         }
     }
 
+    /**
+     * Run this server in NON_BLOCKING mode, accepting connections and handing
+     * them to the event loops in turn.
+     */
+    private void runNonBlocking() {
+        final File serverDir = new File(SERVER_DIR_NAME);
+        if (!(serverDir.exists() || serverDir.mkdir())) {
+            logger.severe("Unable to create output directory, "
+                        + serverDir.getAbsolutePath());
+            shutdown();
+            return;
+        }
+        try {
+            startEventLoops();
+            acceptSelector = Selector.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+            logger.info("InvoiceServer waiting for connections.");
+            while (serverChannel.isOpen()) {
+                acceptSelector.select();
+                final Iterator<SelectionKey> keys = acceptSelector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                    }
+                }
+            }
+        } catch (final IOException ex) {
+            if (serverChannel.isOpen()) {
+                logger.log(Level.SEVERE, "Connection accept failed.", ex);
+            }
+        } finally {
+            shutdown();
+            try {
+                if (acceptSelector != null) {
+                    acceptSelector.close();
+                }
+            } catch (final IOException e) {
+                logger.log(Level.SEVERE, "Unable to close accept selector.", e);
+            }
+            logger.log(Level.INFO, "Shuting down due to quit command from client.");
+        }
+    }
+
+    /**
+     * Create and start the event loops.
+     *
+     * @throws IOException if an event loop selector can't be opened
+     */
+    private void startEventLoops() throws IOException {
+        final ExecutorService workers = Executors.newFixedThreadPool(COMMAND_THREAD_COUNT,
+                                            new DaemonThreadFactory("CommandWorker_"));
+        final EventLoop[] loops = new EventLoop[EVENT_LOOP_COUNT];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop("event loop " + i, workers);
+            final Thread thread = new Thread(loops[i], "EventLoop_" + i);
+            thread.start();
+        }
+        synchronized (this) {
+            commandExecutor = workers;
+            eventLoops = loops;
+        }
+    }
+
+    /**
+     * Accept a pending connection and hand it to the next event loop.
+     *
+     * @throws IOException if the connection can't be configured
+     */
+    private void accept() throws IOException {
+        final SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        logger.info("Connection made.");
+        final CommandProcessor commandProcessor =
+            new CommandProcessor(channel.socket(),
+                                 "command processor " + processorNumber,
+                                 clientRegistry, consultantRegistry, timeCardStore, this);
+        commandProcessor.setOutPutDirectoryName(SERVER_DIR_NAME);
+        eventLoops[processorNumber++ % eventLoops.length].register(channel, commandProcessor);
+    }
+
     /**
      * Shutdown the server.
      */
@@ -117,5 +361,58 @@ public final class InvoiceServer {
         } catch (final IOException e) {
             logger.log(Level.SEVERE, "Shutdown unable to close listening socket.", e);
         }
+        if (processorPool != null) {
+            processorPool.shutdown();
+        }
+        final Selector selector = acceptSelector;
+        if (selector != null) {
+            selector.wakeup();
+        }
+        synchronized (this) {
+            if (eventLoops != null) {
+                for (final EventLoop loop : eventLoops) {
+                    loop.stop();
+                }
+            }
+            if (commandExecutor != null) {
+                commandExecutor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Thread factory for the invoice and command executors, creating daemon
+     * threads so an idle executor doesn't keep the server alive after
+     * shutdown.
+     */
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        /** The number assigned to the next thread. */
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        /** The prefix of the thread names. */
+        private final String namePrefix;
+
+        /**
+         * Construct a DaemonThreadFactory.
+         *
+         * @param namePrefix the prefix of the thread names
+         */
+        DaemonThreadFactory(final String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        /**
+         * Create a new thread.
+         *
+         * @param runnable the runnable for the thread
+         *
+         * @return the new thread
+         */
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
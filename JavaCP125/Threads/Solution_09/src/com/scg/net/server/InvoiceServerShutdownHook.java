@@ -3,12 +3,13 @@ package com.scg.net.server;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.scg.domain.ClientAccount;
+import com.scg.domain.ClientRegistry;
 import com.scg.domain.Consultant;
+import com.scg.domain.ConsultantRegistry;
 
 /**
  * ShutdownHook for the InvoiceServer.
@@ -26,11 +27,11 @@ public final class InvoiceServerShutdownHook extends Thread {
     private static final Logger logger =
                          Logger.getLogger(InvoiceServerShutdownHook.class.getName());
 
-    /** ClientList to save. */
-    private final List<ClientAccount> clientList;
+    /** ClientRegistry to save. */
+    private final ClientRegistry clientRegistry;
 
-    /** ConsultantList to save. */
-    private final List<Consultant> consultantList;
+    /** ConsultantRegistry to save. */
+    private final ConsultantRegistry consultantRegistry;
 
     /** The file where the client list is saved. */
     private final String clientFile = "server/ClientList.txt";
@@ -41,13 +42,13 @@ public final class InvoiceServerShutdownHook extends Thread {
     /**
      * Construct an InvoiceServerShutDownHook.
      *
-     * @param clientList the ClientList to serialize.
-     * @param consultantList the ConsultantList to serialize.
+     * @param clientRegistry the ClientRegistry to serialize.
+     * @param consultantRegistry the ConsultantRegistry to serialize.
      */
-    public InvoiceServerShutdownHook(final List<ClientAccount> clientList,
-                                     final List<Consultant> consultantList) {
-        this.clientList = clientList;
-        this.consultantList = consultantList;
+    public InvoiceServerShutdownHook(final ClientRegistry clientRegistry,
+                                     final ConsultantRegistry consultantRegistry) {
+        this.clientRegistry = clientRegistry;
+        this.consultantRegistry = consultantRegistry;
     }
 
     /**
@@ -63,15 +64,11 @@ public final class InvoiceServerShutdownHook extends Thread {
             clientOut = new PrintStream(new FileOutputStream(clientFile));
             consultantOut = new PrintStream(new FileOutputStream(consultantFile));
             System.err.println("Saving lists.");
-            synchronized (clientList) {
-                for (final ClientAccount client : clientList) {
-                    clientOut.println(client);
-                }
+            for (final ClientAccount client : clientRegistry) {
+                clientOut.println(client);
             }
-            synchronized (consultantList) {
-                for (final Consultant consultant : consultantList) {
-                    consultantOut.println(consultant);
-                }
+            for (final Consultant consultant : consultantRegistry) {
+                consultantOut.println(consultant);
             }
         } catch (final IOException ex) {
             logger.log(Level.SEVERE, "Attempt to write lists failed.", ex);
@@ -0,0 +1,17 @@
+package com.scg.net.server;
+
+/**
+ * The kinds of worker pool a ProcessorPool may use to run CommandProcessors.
+ *
+ * @author Russ Moul
+ */
+public enum PoolType {
+    /** A fixed number of platform threads sharing a single queue. */
+    FIXED,
+    /**
+     * A virtual thread per processor, with the number running at once capped
+     * at the worker count.  Falls back to platform threads on runtimes without
+     * virtual thread support.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,291 @@
+package com.scg.net.server;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.net.Socket;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A bounded execution layer for CommandProcessors.  At most workers
+ * processors run at once and at most queueCapacity more wait to run, any
+ * further connections are refused by closing them.  Gauges for the queue
+ * depth, active workers and rejected connections are provided for
+ * monitoring.
+ * <p>
+ * A processor blocks reading its socket and holds its worker for the life of
+ * its connection, so the pool bounds the number of connections served at
+ * once rather than the number of commands executed at once; a connection
+ * queued behind workers long-lived clients hold waits until one of them
+ * disconnects.  Servers with many long-lived clients should use the
+ * NON_BLOCKING server mode, which executes each command on a worker.
+ *
+ * @author Russ Moul
+ */
+public final class ProcessorPool {
+    /** This class' logger. */
+    private static final Logger logger =
+                         Logger.getLogger(ProcessorPool.class.getName());
+
+    /** The type of this pool. */
+    private final PoolType type;
+
+    /** The maximum number of processors run at once. */
+    private final int workers;
+
+    /** The maximum number of processors waiting to run. */
+    private final int queueCapacity;
+
+    /** The executor running the processors. */
+    private final ExecutorService executor;
+
+    /** Permits for admitted (queued or running) processors. */
+    private final Semaphore admitted;
+
+    /** Permits for running processors, used to cap virtual threads. */
+    private final Semaphore running;
+
+    /** Number of admitted processors, queued or running. */
+    private final AtomicInteger admittedCount = new AtomicInteger();
+
+    /** Number of running processors. */
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+    /** Number of connections refused. */
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    /** Number of processors completed. */
+    private final AtomicLong completedCount = new AtomicLong();
+
+    /**
+     * Construct a ProcessorPool.
+     *
+     * @param type the type of worker pool
+     * @param workers the maximum number of processors run at once, and so
+     *        the maximum number of connections served at once
+     * @param queueCapacity the maximum number of processors waiting to run
+     */
+    public ProcessorPool(final PoolType type, final int workers, final int queueCapacity) {
+        if (workers <= 0 || queueCapacity < 0) {
+            throw new IllegalArgumentException(
+                    "Workers must be positive and queue capacity non-negative.");
+        }
+        this.type = type;
+        this.workers = workers;
+        this.queueCapacity = queueCapacity;
+        this.admitted = new Semaphore(workers + queueCapacity);
+        this.running = (type == PoolType.VIRTUAL) ? new Semaphore(workers) : null;
+        this.executor = createExecutor();
+    }
+
+    /**
+     * Create the executor for this pool's type.
+     *
+     * @return the executor
+     */
+    private ExecutorService createExecutor() {
+        switch (type) {
+        case VIRTUAL:
+            return createVirtualThreadExecutor();
+        default:
+            return new ThreadPoolExecutor(workers, workers,
+                    0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(1, queueCapacity)),
+                    new ProcessorThreadFactory());
+        }
+    }
+
+    /**
+     * Create a virtual thread per task executor, or a cached platform thread
+     * pool if virtual threads are not supported by this runtime.
+     *
+     * @return the executor
+     */
+    private ExecutorService createVirtualThreadExecutor() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)factory.invoke(null);
+        } catch (final NoSuchMethodException ex) {
+            logger.warning("Virtual threads not supported, using platform threads.");
+        } catch (final Exception ex) {
+            logger.log(Level.WARNING, "Unable to create virtual thread executor.", ex);
+        }
+        return Executors.newCachedThreadPool(new ProcessorThreadFactory());
+    }
+
+    /**
+     * Submit a CommandProcessor to be run.  If the pool is at capacity the
+     * connection is refused by closing it.
+     *
+     * @param processor the processor to run
+     * @param connection the processor's connection, closed if refused
+     *
+     * @return true if the processor was admitted, false if refused
+     */
+    public boolean execute(final CommandProcessor processor, final Socket connection) {
+        if (!admitted.tryAcquire()) {
+            reject(connection);
+            return false;
+        }
+        admittedCount.incrementAndGet();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    runProcessor(processor);
+                }
+            });
+        } catch (final RejectedExecutionException ex) {
+            admittedCount.decrementAndGet();
+            admitted.release();
+            reject(connection);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run a processor, maintaining the gauges and releasing its permits.
+     *
+     * @param processor the processor to run
+     */
+    private void runProcessor(final CommandProcessor processor) {
+        try {
+            if (running != null) {
+                running.acquireUninterruptibly();
+            }
+            activeCount.incrementAndGet();
+            try {
+                processor.run();
+            } finally {
+                activeCount.decrementAndGet();
+                if (running != null) {
+                    running.release();
+                }
+            }
+        } finally {
+            completedCount.incrementAndGet();
+            admittedCount.decrementAndGet();
+            admitted.release();
+        }
+    }
+
+    /**
+     * Refuse a connection by closing it.
+     *
+     * @param connection the connection to refuse
+     */
+    private void reject(final Socket connection) {
+        rejectedCount.incrementAndGet();
+        logger.warning(String.format(
+                "Refusing connection from %s, %d active, %d queued.",
+                connection.getRemoteSocketAddress(), getActiveWorkers(), getQueueDepth()));
+        try {
+            connection.close();
+        } catch (final IOException ex) {
+            logger.log(Level.WARNING, "Unable to close refused connection.", ex);
+        }
+    }
+
+    /**
+     * Gets the type of this pool.
+     *
+     * @return the pool type.
+     */
+    public PoolType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the maximum number of processors run at once.
+     *
+     * @return the worker count.
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Gets the maximum number of processors waiting to run.
+     *
+     * @return the queue capacity.
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Gets the number of admitted processors waiting to run.
+     *
+     * @return the queue depth.
+     */
+    public int getQueueDepth() {
+        return Math.max(0, admittedCount.get() - activeCount.get());
+    }
+
+    /**
+     * Gets the number of processors currently running.
+     *
+     * @return the active worker count.
+     */
+    public int getActiveWorkers() {
+        return activeCount.get();
+    }
+
+    /**
+     * Gets the number of connections refused since this pool was created.
+     *
+     * @return the rejected connection count.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Gets the number of processors completed since this pool was created.
+     *
+     * @return the completed processor count.
+     */
+    public long getCompletedCount() {
+        return completedCount.get();
+    }
+
+    /**
+     * Shutdown this pool, running and queued processors are allowed to
+     * complete.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Thread factory naming threads in the same manner as the thread per
+     * connection server.
+     */
+    private static final class ProcessorThreadFactory implements ThreadFactory {
+        /** The number assigned to the next thread. */
+        private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+        /**
+         * Create a new thread.
+         *
+         * @param runnable the runnable for the thread
+         *
+         * @return the new thread
+         */
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            return new Thread(runnable, "CommandProcessor_" + threadNumber.getAndIncrement());
+        }
+    }
+}
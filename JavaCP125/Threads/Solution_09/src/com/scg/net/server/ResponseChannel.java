@@ -0,0 +1,29 @@
+package com.scg.net.server;
+
+import java.io.IOException;
+
+import com.scg.net.CommandResponse;
+
+/**
+ * The channel a CommandProcessor sends command responses on, when the client
+ * has requested acknowledgements.
+ *
+ * @author Russ Moul
+ */
+interface ResponseChannel {
+    /**
+     * Queue a response to be sent to the client.
+     *
+     * @param response the response
+     *
+     * @throws IOException if the response can't be sent
+     */
+    void send(CommandResponse response) throws IOException;
+
+    /**
+     * Send any queued responses.
+     *
+     * @throws IOException if the responses can't be sent
+     */
+    void flush() throws IOException;
+}
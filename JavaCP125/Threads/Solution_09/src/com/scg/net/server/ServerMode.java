@@ -0,0 +1,16 @@
+package com.scg.net.server;
+
+/**
+ * The connection handling modes supported by the InvoiceServer.
+ *
+ * @author Russ Moul
+ */
+public enum ServerMode {
+    /** A thread per connection, reading commands using blocking IO. */
+    BLOCKING,
+    /**
+     * A small fixed set of event loop threads, reading framed commands from
+     * non-blocking channels.  Clients must send a framed command stream.
+     */
+    NON_BLOCKING
+}
@@ -0,0 +1,45 @@
+package com.scg.net.server;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.scg.net.CommandFrames;
+import com.scg.net.CommandResponse;
+
+/**
+ * A ResponseChannel writing to a connection's output stream, used by
+ * CommandProcessors running in BLOCKING mode.  Responses are buffered until
+ * flushed.
+ *
+ * @author Russ Moul
+ */
+final class StreamResponseChannel implements ResponseChannel {
+    /** The buffered connection output stream. */
+    private final OutputStream out;
+
+    /**
+     * Construct a StreamResponseChannel.
+     *
+     * @param out the connection's output stream
+     */
+    StreamResponseChannel(final OutputStream out) {
+        this.out = new BufferedOutputStream(out);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void send(final CommandResponse response) throws IOException {
+        out.write(CommandFrames.toResponseFrame(response));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+}
@@ -0,0 +1,242 @@
+package com.scg.net.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.scg.domain.Consultant;
+import com.scg.domain.InvoiceLineItem;
+import com.scg.domain.TimeCard;
+import com.scg.util.DateRange;
+import com.scg.util.TimeCardIndex;
+
+/**
+ * The server wide repository of time cards, shared by every CommandProcessor.
+ * A time card is identified by its consultant and week starting day; adding a
+ * time card replaces any previously added for the same consultant and week,
+ * the latest submission wins.  Time cards are returned in the order their
+ * consultant and week were first submitted.  The time cards are indexed by
+ * week, so a date range query examines only the weeks overlapping the range,
+ * O(log n + k), rather than every time card.  The invoice line items of each
+ * client and month are maintained as time cards are added.  The store is safe
+ * for concurrent use without external synchronization.
+ *
+ * @author Russ Moul
+ */
+public final class TimeCardStore {
+    /** Orders entries by first submission. */
+    private static final Comparator<Entry> SUBMISSION_ORDER = new Comparator<Entry>() {
+        @Override
+        public int compare(final Entry e1, final Entry e2) {
+            return (e1.sequence < e2.sequence) ? -1 : ((e1.sequence == e2.sequence) ? 0 : 1);
+        }
+    };
+
+    /** The submissions, by consultant and week. */
+    private final ConcurrentMap<Key, Submission> submissions =
+        new ConcurrentHashMap<Key, Submission>();
+
+    /** The time cards, by week. */
+    private final TimeCardIndex index = new TimeCardIndex();
+
+    /** The invoice line items, by client and month. */
+    private final InvoiceAggregates aggregates = new InvoiceAggregates();
+
+    /** Source of the submission sequence numbers. */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Add a time card, replacing any time card for the same consultant and
+     * week.
+     *
+     * @param timeCard the time card to add
+     *
+     * @return the time card replaced, or null if there was none
+     */
+    public TimeCard add(final TimeCard timeCard) {
+        final Key key = new Key(timeCard.getConsultant(), timeCard.getWeekStartingEpochDay());
+        Submission submission = submissions.get(key);
+        if (submission == null) {
+            final Submission created = new Submission(sequence.getAndIncrement());
+            submission = submissions.putIfAbsent(key, created);
+            if (submission == null) {
+                submission = created;
+            }
+        }
+        // Replacements of the same consultant and week are applied in turn
+        synchronized (submission) {
+            final TimeCard replaced = submission.timeCard;
+            submission.timeCard = timeCard;
+            index.add(timeCard);
+            aggregates.update(submission.sequence, replaced, timeCard);
+            return replaced;
+        }
+    }
+
+    /**
+     * Gets the number of time cards in the store.
+     *
+     * @return the number of time cards.
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Gets a snapshot of all the time cards, in submission order.
+     *
+     * @return a new list of the time cards.
+     */
+    public List<TimeCard> getTimeCards() {
+        return inSubmissionOrder(index.getTimeCards());
+    }
+
+    /**
+     * Gets a snapshot of the time cards having dates within a date range, in
+     * submission order.
+     *
+     * @param dateRange the date range
+     *
+     * @return a new list of the time cards.
+     */
+    public List<TimeCard> getTimeCardsForDateRange(final DateRange dateRange) {
+        return inSubmissionOrder(index.getTimeCardsForDateRange(dateRange));
+    }
+
+    /**
+     * Order time cards from the index by the first submission of their
+     * consultant and week.
+     *
+     * @param indexed the time cards, in week order
+     *
+     * @return a new list of the time cards, in submission order.
+     */
+    private List<TimeCard> inSubmissionOrder(final List<TimeCard> indexed) {
+        final List<Entry> entries = new ArrayList<Entry>(indexed.size());
+        for (final TimeCard timeCard : indexed) {
+            final Submission submission = submissions.get(
+                new Key(timeCard.getConsultant(), timeCard.getWeekStartingEpochDay()));
+            entries.add(new Entry(submission.sequence, timeCard));
+        }
+        Collections.sort(entries, SUBMISSION_ORDER);
+        final List<TimeCard> timeCards = new ArrayList<TimeCard>(entries.size());
+        for (final Entry entry : entries) {
+            timeCards.add(entry.timeCard);
+        }
+        return timeCards;
+    }
+
+    /**
+     * Gets the invoice line items of a client for a month, as extracted from
+     * the time cards in submission order.  The line items are those of the
+     * time cards in the store when called, and are created as they are
+     * iterated.
+     *
+     * @param clientName the client name, matched ignoring case
+     * @param month the 0-based month number
+     * @param year the year
+     *
+     * @return the line items.
+     */
+    public Iterable<InvoiceLineItem> getInvoiceLineItems(final String clientName,
+                                                         final int month, final int year) {
+        return aggregates.getLineItems(clientName, month, year);
+    }
+
+    /**
+     * The identity of a time card, its consultant and week starting day.
+     */
+    private static final class Key {
+        /** Factor used in calculating hashCode. */
+        private static final int HASH_FACTOR = 37;
+
+        /** The consultant. */
+        private final Consultant consultant;
+
+        /** The week starting day, as an epoch day. */
+        private final long weekStartingDay;
+
+        /**
+         * Construct a Key.
+         *
+         * @param consultant the consultant
+         * @param weekStartingDay the week starting day, as an epoch day
+         */
+        Key(final Consultant consultant, final long weekStartingDay) {
+            this.consultant = consultant;
+            this.weekStartingDay = weekStartingDay;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return HASH_FACTOR * consultant.hashCode()
+                   + (int)(weekStartingDay ^ (weekStartingDay >>> 32));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key)obj;
+            return weekStartingDay == other.weekStartingDay
+                   && consultant.equals(other.consultant);
+        }
+    }
+
+    /**
+     * The submissions of a consultant and week, also the lock serializing the
+     * replacement of their time card.
+     */
+    private static final class Submission {
+        /** The sequence number of the first submission. */
+        private final long sequence;
+
+        /** The latest time card submitted, null until the first is added. */
+        private volatile TimeCard timeCard;
+
+        /**
+         * Construct a Submission.
+         *
+         * @param sequence the sequence number of the first submission
+         */
+        Submission(final long sequence) {
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * A time card and the sequence number of its first submission.
+     */
+    private static final class Entry {
+        /** The sequence number of the first submission. */
+        private final long sequence;
+
+        /** The time card. */
+        private final TimeCard timeCard;
+
+        /**
+         * Construct an Entry.
+         *
+         * @param sequence the sequence number of the first submission
+         * @param timeCard the time card
+         */
+        Entry(final long sequence, final TimeCard timeCard) {
+            this.sequence = sequence;
+            this.timeCard = timeCard;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.scg.util;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.text.DateFormat;
 import java.text.ParseException;
@@ -22,6 +24,12 @@ public final class DateRange implements Serializable {
     /** The end date for this DateRange. The date is included in the range. */
     private Date endDate;
 
+    /** The epoch day of the start date. */
+    private transient long startEpochDay;
+
+    /** The epoch day of the end date. */
+    private transient long endEpochDay;
+
     /**
      * Construct a DateRange given two dates.
      *
@@ -98,6 +106,29 @@ public final class DateRange implements Serializable {
             throw new IllegalArgumentException(
                     "Start date must be before end date.");
         }
+        initEpochDays();
+    }
+
+    /**
+     * Compute the epoch days of the start and end dates.
+     */
+    private void initEpochDays() {
+        startEpochDay = EpochDays.fromDate(startDate);
+        endEpochDay = EpochDays.fromDate(endDate);
+    }
+
+    /**
+     * Restore the epoch days after deserialization.
+     *
+     * @param in the stream to read from
+     *
+     * @throws IOException if the read fails
+     * @throws ClassNotFoundException if a class can't be found
+     */
+    private void readObject(final ObjectInputStream in)
+        throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        initEpochDays();
     }
 
     /**
@@ -118,6 +149,35 @@ public final class DateRange implements Serializable {
         return new Date(endDate.getTime());
     }
 
+    /**
+     * Returns the epoch day of the start date for this DateRange.
+     *
+     * @return the start epoch day.
+     */
+    public long getStartEpochDay() {
+        return startEpochDay;
+    }
+
+    /**
+     * Returns the epoch day of the end date for this DateRange.
+     *
+     * @return the end epoch day.
+     */
+    public long getEndEpochDay() {
+        return endEpochDay;
+    }
+
+    /**
+     * Returns true if the specified epoch day is within the range, start date
+     * <= day <= end date.  Allocation free.
+     *
+     * @param epochDay the epoch day to check for being within this DateRange.
+     * @return true if the specified day is within this DateRange.
+     */
+    public boolean isInRange(final long epochDay) {
+        return epochDay >= startEpochDay && epochDay <= endEpochDay;
+    }
+
     /**
      * Returns true if the specified date is within the range start date <= date <=
      * end date.
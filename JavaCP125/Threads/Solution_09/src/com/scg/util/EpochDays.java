@@ -0,0 +1,111 @@
+package com.scg.util;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Conversions between dates and epoch days, the number of days since
+ * January 1, 1970 in a time zone.  An epoch day identifies a calendar date
+ * as a primitive, so dates may be stored and compared without allocating
+ * Date or Calendar objects.  The single argument conversions use the default
+ * time zone as it was when this class was initialized; the zone is not
+ * looked up again, since TimeZone.getDefault returns a new copy on every
+ * call, so the default zone should be set before any dates are converted.
+ *
+ * @author Russ Moul
+ */
+public final class EpochDays {
+    /** Milliseconds per day. */
+    public static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    /** The default time zone, as of class initialization. */
+    private static final TimeZone DEFAULT_ZONE = TimeZone.getDefault();
+
+    /**
+     * Prevent instantiation.
+     */
+    private EpochDays() {
+    }
+
+    /**
+     * Gets the epoch day of an instant in the default time zone.
+     *
+     * @param millis the instant, in milliseconds since the epoch
+     *
+     * @return the epoch day of the instant in the default time zone
+     */
+    public static long fromMillis(final long millis) {
+        return fromMillis(millis, DEFAULT_ZONE);
+    }
+
+    /**
+     * Gets the epoch day of an instant.
+     *
+     * @param millis the instant, in milliseconds since the epoch
+     * @param zone the time zone
+     *
+     * @return the epoch day of the instant in the time zone
+     */
+    public static long fromMillis(final long millis, final TimeZone zone) {
+        final long local = millis + zone.getOffset(millis);
+        final long day = local / MILLIS_PER_DAY;
+        return (local % MILLIS_PER_DAY < 0) ? day - 1 : day;
+    }
+
+    /**
+     * Gets the epoch day of a date in the default time zone.
+     *
+     * @param date the date
+     *
+     * @return the epoch day of the date in the default time zone
+     */
+    public static long fromDate(final Date date) {
+        return fromMillis(date.getTime(), DEFAULT_ZONE);
+    }
+
+    /**
+     * Gets the instant of the start of an epoch day in the default time zone.
+     *
+     * @param epochDay the epoch day
+     *
+     * @return the first instant of the day in the default time zone, in
+     *         milliseconds since the epoch
+     */
+    public static long toMillis(final long epochDay) {
+        return toMillis(epochDay, DEFAULT_ZONE);
+    }
+
+    /**
+     * Gets the instant of the start of an epoch day.  This is normally local
+     * midnight; if midnight falls in a daylight saving gap the day starts at
+     * the end of the gap, as it does for a lenient Calendar.
+     *
+     * @param epochDay the epoch day
+     * @param zone the time zone
+     *
+     * @return the first instant of the day in the time zone, in milliseconds
+     *         since the epoch
+     */
+    public static long toMillis(final long epochDay, final TimeZone zone) {
+        final long local = epochDay * MILLIS_PER_DAY;
+        long millis = local - zone.getOffset(local - zone.getOffset(local));
+        if (fromMillis(millis, zone) < epochDay) {
+            // midnight was skipped, millis is before the transition so its
+            // offset is the one in effect before the gap
+            millis = local - zone.getOffset(millis);
+        }
+        return millis;
+    }
+
+    /**
+     * Gets a date for the start of an epoch day in the default time zone.
+     *
+     * @param epochDay the epoch day
+     *
+     * @return a new Date for the first instant of the day in the default
+     *         time zone
+     */
+    public static Date toDate(final long epochDay) {
+        return new Date(toMillis(epochDay, DEFAULT_ZONE));
+    }
+}
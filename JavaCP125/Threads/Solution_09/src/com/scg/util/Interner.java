@@ -0,0 +1,54 @@
+package com.scg.util;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * A pool of canonical instances of immutable values.  Interning a value
+ * returns the pooled instance equal to it, pooling the value if there is
+ * none, so equal values resolve to a single shared instance.  Instances are
+ * only weakly referenced by the pool, an instance no longer in use elsewhere
+ * is removed by the garbage collector.  An Interner is safe for concurrent
+ * use.
+ *
+ * @param <T> the value type, which must be immutable with consistent equals
+ *        and hashCode
+ *
+ * @author Russ Moul
+ */
+public final class Interner<T> {
+    /** The canonical instances, keyed and referenced weakly. */
+    private final Map<T, WeakReference<T>> pool = new WeakHashMap<T, WeakReference<T>>();
+
+    /**
+     * Gets the canonical instance equal to a value.
+     *
+     * @param value the value, may be null
+     *
+     * @return the pooled instance equal to the value, the value itself if it
+     *         was not pooled, or null if the value is null
+     */
+    public synchronized T intern(final T value) {
+        if (value == null) {
+            return null;
+        }
+        final WeakReference<T> ref = pool.get(value);
+        final T canonical = (ref == null) ? null : ref.get();
+        if (canonical != null) {
+            return canonical;
+        }
+        pool.put(value, new WeakReference<T>(value));
+        return value;
+    }
+
+    /**
+     * Gets the number of pooled instances, which may include instances about
+     * to be collected.
+     *
+     * @return the number of instances.
+     */
+    public synchronized int size() {
+        return pool.size();
+    }
+}
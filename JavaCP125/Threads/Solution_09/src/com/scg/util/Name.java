@@ -156,6 +156,9 @@ public final class Name implements Comparable<Name>, Serializable {
      */
     @Override
     public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
         if (!(other instanceof Name)) {
             return false;
         }
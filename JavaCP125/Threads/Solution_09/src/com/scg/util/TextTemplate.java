@@ -0,0 +1,658 @@
+package com.scg.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A text layout compiled once from a Formatter style format string into a
+ * sequence of fixed field writers, which append directly to a StringBuilder
+ * without re-parsing the format or creating intermediate strings.  The
+ * output is that of Formatter with Locale.US for the supported subset of the
+ * format syntax:
+ * <ul>
+ * <li>%s, with the - flag and a width</li>
+ * <li>%d, with the - and , flags and a width</li>
+ * <li>%f, with the - and , flags, a width and a precision of up to 6,
+ * 6 if not given</li>
+ * <li>%tm, %td, %tY, %tB and %tb, of a Date, or of a Long epoch day</li>
+ * <li>%n and %%</li>
+ * </ul>
+ * Arguments may be referenced by explicit index, 1$.  Any other syntax,
+ * including any other flag such as 0, is rejected when the template is
+ * compiled.  Unlike Formatter, a Long argument of a %t conversion is an epoch
+ * day, as given by EpochDays, rather than milliseconds; the calendar date
+ * is computed once for a run of %t conversions of the same argument.
+ * Templates are immutable and may be shared by multiple threads.
+ *
+ * @author Russ Moul
+ */
+public final class TextTemplate {
+    /** The line separator, as output by %n. */
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    /** Full month names, as output by %tB. */
+    private static final String[] MONTHS = DateFormatSymbols.getInstance(Locale.US).getMonths();
+
+    /** Abbreviated month names, as output by %tb. */
+    private static final String[] SHORT_MONTHS =
+        DateFormatSymbols.getInstance(Locale.US).getShortMonths();
+
+    /** Digits per group when grouping. */
+    private static final int GROUP_SIZE = 3;
+
+    /** The largest double which is exactly an integer of any smaller magnitude. */
+    private static final double MAX_EXACT = 1L << 53;
+
+    /** Powers of ten, indexed by exponent. */
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L
+    };
+
+    /** The number of fraction digits of a %f without a precision. */
+    private static final int DEFAULT_PRECISION = 6;
+
+    /** Radix of decimal numbers. */
+    private static final int RADIX = 10;
+
+    /** The format string. */
+    private final String format;
+
+    /** The compiled fields. */
+    private final Field[] fields;
+
+    /**
+     * Construct a TextTemplate.
+     *
+     * @param format the format string
+     * @param fields the compiled fields
+     */
+    private TextTemplate(final String format, final Field[] fields) {
+        this.format = format;
+        this.fields = fields;
+    }
+
+    /**
+     * Compile a format string.
+     *
+     * @param format the format string
+     *
+     * @return the compiled template.
+     *
+     * @throws IllegalArgumentException if the format uses unsupported syntax
+     */
+    public static TextTemplate compile(final String format) {
+        final List<Field> fields = new ArrayList<Field>();
+        final StringBuilder literal = new StringBuilder();
+        int ordinaryIndex = 0;
+        int i = 0;
+        while (i < format.length()) {
+            final char c = format.charAt(i++);
+            if (c != '%') {
+                literal.append(c);
+                continue;
+            }
+            // [argument_index$][flags][width][.precision]conversion
+            int index = -1;
+            boolean leftJustify = false;
+            boolean grouped = false;
+            int width = 0;
+            int precision = -1;
+            int start = i;
+            int number = 0;
+            while (i < format.length() && Character.isDigit(format.charAt(i))) {
+                number = number * RADIX + (format.charAt(i++) - '0');
+            }
+            if (i < format.length() && format.charAt(i) == '$' && i > start) {
+                index = number - 1;
+                i++;
+                start = i;
+                number = 0;
+            } else {
+                i = start;
+                number = 0;
+            }
+            while (i < format.length() && (format.charAt(i) == '-' || format.charAt(i) == ',')) {
+                if (format.charAt(i++) == '-') {
+                    leftJustify = true;
+                } else {
+                    grouped = true;
+                }
+            }
+            if (i < format.length() && format.charAt(i) == '0') {
+                // the zero padding flag
+                throw unsupported(format);
+            }
+            while (i < format.length() && Character.isDigit(format.charAt(i))) {
+                width = width * RADIX + (format.charAt(i++) - '0');
+            }
+            if (i < format.length() && format.charAt(i) == '.') {
+                i++;
+                precision = 0;
+                while (i < format.length() && Character.isDigit(format.charAt(i))) {
+                    precision = precision * RADIX + (format.charAt(i++) - '0');
+                }
+            }
+            if (i >= format.length()) {
+                throw unsupported(format);
+            }
+            final char conversion = format.charAt(i++);
+            if (conversion == 'n' || conversion == '%') {
+                if (index >= 0 || leftJustify || grouped || width != 0 || precision >= 0) {
+                    throw unsupported(format);
+                }
+                literal.append((conversion == 'n') ? LINE_SEPARATOR : "%");
+                continue;
+            }
+            if (index < 0) {
+                index = ordinaryIndex++;
+            }
+            final Field field;
+            switch (conversion) {
+            case 's':
+                if (grouped || precision >= 0) {
+                    throw unsupported(format);
+                }
+                field = new StringField(index, width, leftJustify);
+                break;
+            case 'd':
+                if (precision >= 0) {
+                    throw unsupported(format);
+                }
+                field = new IntegerField(index, width, leftJustify, grouped);
+                break;
+            case 'f':
+                if (precision < 0) {
+                    precision = DEFAULT_PRECISION;
+                }
+                if (precision >= POWERS_OF_TEN.length) {
+                    throw unsupported(format);
+                }
+                field = new DecimalField(index, width, leftJustify, grouped, precision);
+                break;
+            case 't':
+                if (i >= format.length() || leftJustify || grouped || width != 0 || precision >= 0) {
+                    throw unsupported(format);
+                }
+                field = new DateField(index, format.charAt(i++));
+                break;
+            default:
+                throw unsupported(format);
+            }
+            if (literal.length() > 0) {
+                fields.add(new LiteralField(literal.toString()));
+                literal.setLength(0);
+            }
+            fields.add(field);
+        }
+        if (literal.length() > 0) {
+            fields.add(new LiteralField(literal.toString()));
+        }
+        return new TextTemplate(format, fields.toArray(new Field[fields.size()]));
+    }
+
+    /**
+     * Create the exception for an unsupported format.
+     *
+     * @param format the format string
+     *
+     * @return the exception.
+     */
+    private static IllegalArgumentException unsupported(final String format) {
+        return new IllegalArgumentException("Unsupported template format: " + format);
+    }
+
+    /**
+     * Append the template, with arguments, to a buffer.
+     *
+     * @param sb the buffer to append to
+     * @param args the arguments referenced by the template
+     *
+     * @return the buffer.
+     */
+    public StringBuilder appendTo(final StringBuilder sb, final Object... args) {
+        int dateIndex = -1;
+        long civilDate = 0L;
+        for (final Field field : fields) {
+            if (field instanceof DateField) {
+                final DateField dateField = (DateField)field;
+                if (dateField.index != dateIndex) {
+                    dateIndex = dateField.index;
+                    civilDate = DateField.civilDate(args[dateIndex]);
+                }
+                dateField.append(sb, civilDate);
+            } else {
+                field.append(sb, args);
+            }
+        }
+        return sb;
+    }
+
+    /**
+     * Format the template, with arguments, as a string.
+     *
+     * @param args the arguments referenced by the template
+     *
+     * @return the formatted string.
+     */
+    public String format(final Object... args) {
+        return appendTo(new StringBuilder(), args).toString();
+    }
+
+    /**
+     * Gets the format string this template was compiled from.
+     *
+     * @return the format string.
+     */
+    @Override
+    public String toString() {
+        return format;
+    }
+
+    /**
+     * Append padding spaces.
+     *
+     * @param sb the buffer to append to
+     * @param count the number of spaces, none if not positive
+     */
+    private static void pad(final StringBuilder sb, final int count) {
+        for (int i = 0; i < count; i++) {
+            sb.append(' ');
+        }
+    }
+
+    /**
+     * Append a non-negative number, optionally grouped, zero padded to a
+     * minimum number of digits.  The digits are written in place, from the
+     * least significant, without an intermediate string.
+     *
+     * @param sb the buffer to append to
+     * @param value the number, not negative
+     * @param minDigits the minimum number of digits
+     * @param grouped if true digits are grouped in thousands
+     */
+    private static void appendDigits(final StringBuilder sb, final long value,
+                                     final int minDigits, final boolean grouped) {
+        final int digits = Math.max(digitCount(value), minDigits);
+        final int length = digits + (grouped ? (digits - 1) / GROUP_SIZE : 0);
+        final int start = sb.length();
+        sb.setLength(start + length);
+        long remaining = value;
+        int pos = start + length;
+        for (int d = 0; d < digits; d++) {
+            if (grouped && d > 0 && d % GROUP_SIZE == 0) {
+                sb.setCharAt(--pos, ',');
+            }
+            sb.setCharAt(--pos, (char)('0' + (int)(remaining % RADIX)));
+            remaining /= RADIX;
+        }
+    }
+
+    /**
+     * Count the decimal digits of a non-negative number.
+     *
+     * @param value the number, not negative
+     *
+     * @return the number of digits, at least one.
+     */
+    private static int digitCount(final long value) {
+        int count = 1;
+        for (long remaining = value / RADIX; remaining != 0; remaining /= RADIX) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Gets the length of a number as written by appendDigits.
+     *
+     * @param value the number, not negative
+     * @param minDigits the minimum number of digits
+     * @param grouped if true digits are grouped in thousands
+     *
+     * @return the number of characters.
+     */
+    private static int digitsLength(final long value, final int minDigits, final boolean grouped) {
+        final int digits = Math.max(digitCount(value), minDigits);
+        return digits + (grouped ? (digits - 1) / GROUP_SIZE : 0);
+    }
+
+    /**
+     * A compiled segment of a template.
+     */
+    private abstract static class Field {
+        /**
+         * Append this field.
+         *
+         * @param sb the buffer to append to
+         * @param args the template arguments
+         */
+        abstract void append(StringBuilder sb, Object[] args);
+    }
+
+    /**
+     * Literal text.
+     */
+    private static final class LiteralField extends Field {
+        /** The text. */
+        private final String text;
+
+        /**
+         * Construct a LiteralField.
+         *
+         * @param text the text
+         */
+        LiteralField(final String text) {
+            this.text = text;
+        }
+
+        @Override
+        void append(final StringBuilder sb, final Object[] args) {
+            sb.append(text);
+        }
+    }
+
+    /**
+     * A %s field.
+     */
+    private static final class StringField extends Field {
+        /** The argument index. */
+        private final int index;
+
+        /** The minimum width. */
+        private final int width;
+
+        /** If true the value is padded on the right. */
+        private final boolean leftJustify;
+
+        /**
+         * Construct a StringField.
+         *
+         * @param index the argument index
+         * @param width the minimum width
+         * @param leftJustify if true the value is padded on the right
+         */
+        StringField(final int index, final int width, final boolean leftJustify) {
+            this.index = index;
+            this.width = width;
+            this.leftJustify = leftJustify;
+        }
+
+        @Override
+        void append(final StringBuilder sb, final Object[] args) {
+            final String value = String.valueOf(args[index]);
+            if (!leftJustify) {
+                pad(sb, width - value.length());
+            }
+            sb.append(value);
+            if (leftJustify) {
+                pad(sb, width - value.length());
+            }
+        }
+    }
+
+    /**
+     * A %d field.
+     */
+    private static final class IntegerField extends Field {
+        /** The argument index. */
+        private final int index;
+
+        /** The minimum width. */
+        private final int width;
+
+        /** If true the value is padded on the right. */
+        private final boolean leftJustify;
+
+        /** If true digits are grouped in thousands. */
+        private final boolean grouped;
+
+        /**
+         * Construct an IntegerField.
+         *
+         * @param index the argument index
+         * @param width the minimum width
+         * @param leftJustify if true the value is padded on the right
+         * @param grouped if true digits are grouped in thousands
+         */
+        IntegerField(final int index, final int width, final boolean leftJustify,
+                     final boolean grouped) {
+            this.index = index;
+            this.width = width;
+            this.leftJustify = leftJustify;
+            this.grouped = grouped;
+        }
+
+        @Override
+        void append(final StringBuilder sb, final Object[] args) {
+            final long value = ((Number)args[index]).longValue();
+            if (value == Long.MIN_VALUE) {
+                sb.append(String.format(Locale.US, grouped ? "%,d" : "%d", value));
+                return;
+            }
+            final long magnitude = Math.abs(value);
+            final int length = digitsLength(magnitude, 1, grouped) + ((value < 0) ? 1 : 0);
+            if (!leftJustify) {
+                pad(sb, width - length);
+            }
+            if (value < 0) {
+                sb.append('-');
+            }
+            appendDigits(sb, magnitude, 1, grouped);
+            if (leftJustify) {
+                pad(sb, width - length);
+            }
+        }
+    }
+
+    /**
+     * A %f field.  Values which are an exact number of units of the precision
+     * are written directly, others are rounded half up as Formatter does.
+     */
+    private static final class DecimalField extends Field {
+        /** The argument index. */
+        private final int index;
+
+        /** The minimum width. */
+        private final int width;
+
+        /** If true the value is padded on the right. */
+        private final boolean leftJustify;
+
+        /** If true integer digits are grouped in thousands. */
+        private final boolean grouped;
+
+        /** The number of fraction digits. */
+        private final int precision;
+
+        /**
+         * Construct a DecimalField.
+         *
+         * @param index the argument index
+         * @param width the minimum width
+         * @param leftJustify if true the value is padded on the right
+         * @param grouped if true integer digits are grouped in thousands
+         * @param precision the number of fraction digits
+         */
+        DecimalField(final int index, final int width, final boolean leftJustify,
+                     final boolean grouped, final int precision) {
+            this.index = index;
+            this.width = width;
+            this.leftJustify = leftJustify;
+            this.grouped = grouped;
+            this.precision = precision;
+        }
+
+        @Override
+        void append(final StringBuilder sb, final Object[] args) {
+            final double value = ((Number)args[index]).doubleValue();
+            final double scaled = Math.abs(value) * POWERS_OF_TEN[precision];
+            final long units;
+            if (scaled < MAX_EXACT && scaled == Math.rint(scaled)) {
+                units = (long)scaled;
+            } else if (!Double.isInfinite(value) && !Double.isNaN(value)
+                       && Math.abs(value) < MAX_EXACT) {
+                units = new BigDecimal(Double.toString(Math.abs(value)))
+                            .setScale(precision, RoundingMode.HALF_UP)
+                            .unscaledValue().longValue();
+            } else {
+                final String spec = "%" + (leftJustify ? "-" : "") + (grouped ? "," : "")
+                                    + ((width > 0) ? String.valueOf(width) : "")
+                                    + "." + precision + "f";
+                sb.append(String.format(Locale.US, spec, value));
+                return;
+            }
+            final boolean negative = value < 0 || (value == 0.0 && 1 / value < 0);
+            final long integer = units / POWERS_OF_TEN[precision];
+            final long fraction = units % POWERS_OF_TEN[precision];
+            final int length = (negative ? 1 : 0) + digitsLength(integer, 1, grouped)
+                               + ((precision > 0) ? precision + 1 : 0);
+            if (!leftJustify) {
+                pad(sb, width - length);
+            }
+            if (negative) {
+                sb.append('-');
+            }
+            appendDigits(sb, integer, 1, grouped);
+            if (precision > 0) {
+                sb.append('.');
+                appendDigits(sb, fraction, precision, false);
+            }
+            if (leftJustify) {
+                pad(sb, width - length);
+            }
+        }
+    }
+
+    /**
+     * A %t field, writing a calendar field of a Date in the default time
+     * zone, or of an epoch day.  The date is converted to the proleptic
+     * Gregorian calendar arithmetically, without a Calendar, by civilDate;
+     * appendTo converts each argument once and appends its fields from the
+     * packed result.
+     */
+    private static final class DateField extends Field {
+        /** Days from 0000-03-01 to the epoch. */
+        private static final long EPOCH_OFFSET = 719468L;
+
+        /** Days per 400 year era. */
+        private static final long DAYS_PER_ERA = 146097L;
+
+        /** Years per era. */
+        private static final long YEARS_PER_ERA = 400L;
+
+        /** Days per year, ignoring leap days. */
+        private static final long DAYS_PER_YEAR = 365L;
+
+        /** Digits of a %tY year. */
+        private static final int YEAR_DIGITS = 4;
+
+        /** Digits of a %tm month or %td day. */
+        private static final int DAY_DIGITS = 2;
+
+        /** Bits of the day of month in a packed civil date. */
+        private static final int DAY_BITS = 5;
+
+        /** Bits of the month in a packed civil date. */
+        private static final int MONTH_BITS = 4;
+
+        /** Mask of the day of month of a packed civil date. */
+        private static final int DAY_MASK = (1 << DAY_BITS) - 1;
+
+        /** Mask of the month of a packed civil date, once shifted. */
+        private static final int MONTH_MASK = (1 << MONTH_BITS) - 1;
+
+        /** The packed civil date of a null argument. */
+        private static final long NULL_DATE = Long.MIN_VALUE;
+
+        /** The argument index. */
+        private final int index;
+
+        /** The date conversion character. */
+        private final char conversion;
+
+        /**
+         * Construct a DateField.
+         *
+         * @param index the argument index
+         * @param conversion the date conversion, one of m, d, Y, B or b
+         */
+        DateField(final int index, final char conversion) {
+            if ("mdYBb".indexOf(conversion) < 0) {
+                throw new IllegalArgumentException("Unsupported date conversion: " + conversion);
+            }
+            this.index = index;
+            this.conversion = conversion;
+        }
+
+        @Override
+        void append(final StringBuilder sb, final Object[] args) {
+            append(sb, civilDate(args[index]));
+        }
+
+        /**
+         * Append this field of a civil date.
+         *
+         * @param sb the buffer to append to
+         * @param civilDate the packed civil date of the argument
+         */
+        void append(final StringBuilder sb, final long civilDate) {
+            if (civilDate == NULL_DATE) {
+                sb.append("null");
+                return;
+            }
+            final int day = (int)civilDate & DAY_MASK;
+            final int month = (int)(civilDate >> DAY_BITS) & MONTH_MASK;
+            final long year = civilDate >> (DAY_BITS + MONTH_BITS);
+            switch (conversion) {
+            case 'm':
+                appendDigits(sb, month + 1, DAY_DIGITS, false);
+                break;
+            case 'd':
+                appendDigits(sb, day, DAY_DIGITS, false);
+                break;
+            case 'Y':
+                appendDigits(sb, year, YEAR_DIGITS, false);
+                break;
+            case 'B':
+                sb.append(MONTHS[month]);
+                break;
+            default:
+                sb.append(SHORT_MONTHS[month]);
+                break;
+            }
+        }
+
+        /**
+         * Convert a date argument to a packed civil date, the year, 0-based
+         * month and day of month.
+         *
+         * @param arg the argument, a Date, a Long epoch day or null
+         *
+         * @return the packed civil date, or NULL_DATE for a null argument.
+         */
+        static long civilDate(final Object arg) {
+            if (arg == null) {
+                return NULL_DATE;
+            }
+            // Civil date from epoch day, counting years from March
+            final long z = ((arg instanceof Long) ? ((Long)arg).longValue()
+                                                  : EpochDays.fromDate((Date)arg)) + EPOCH_OFFSET;
+            final long era = ((z >= 0) ? z : z - DAYS_PER_ERA + 1) / DAYS_PER_ERA;
+            final long dayOfEra = z - era * DAYS_PER_ERA;
+            final long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                                    - dayOfEra / (DAYS_PER_ERA - 1)) / DAYS_PER_YEAR;
+            final long dayOfYear = dayOfEra - (DAYS_PER_YEAR * yearOfEra + yearOfEra / 4
+                                               - yearOfEra / 100);
+            final long shiftedMonth = (5 * dayOfYear + 2) / 153;
+            final int day = (int)(dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+            final int month = (int)((shiftedMonth < 10) ? shiftedMonth + 2 : shiftedMonth - 10);
+            final long year = yearOfEra + era * YEARS_PER_ERA + ((month <= 1) ? 1 : 0);
+            return (year << (DAY_BITS + MONTH_BITS)) | (month << DAY_BITS) | day;
+        }
+    }
+}
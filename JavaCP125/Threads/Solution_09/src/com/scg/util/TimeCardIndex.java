@@ -0,0 +1,116 @@
+package com.scg.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.scg.domain.Consultant;
+import com.scg.domain.TimeCard;
+
+/**
+ * An index of time cards by week, answering date range queries without
+ * scanning every time card.  Time cards are bucketed by the epoch day of
+ * their week starting day in a sorted map, so the time cards overlapping a
+ * date range are found by a sub map lookup of the weeks starting up to a week
+ * before the range through the end of the range, O(log n + k).  Within a
+ * week each consultant has a single time card, adding a time card replaces
+ * any previously added for the same consultant and week.  The index is safe
+ * for concurrent use without external synchronization.
+ *
+ * @author Russ Moul
+ */
+public final class TimeCardIndex {
+    /** The time cards, by week starting epoch day and consultant. */
+    private final ConcurrentNavigableMap<Long, ConcurrentMap<Consultant, TimeCard>> weeks =
+        new ConcurrentSkipListMap<Long, ConcurrentMap<Consultant, TimeCard>>();
+
+    /** The number of time cards in the index. */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Add a time card, replacing any time card for the same consultant and
+     * week.
+     *
+     * @param timeCard the time card to add
+     *
+     * @return the time card replaced, or null if there was none
+     */
+    public TimeCard add(final TimeCard timeCard) {
+        final Long week = Long.valueOf(timeCard.getWeekStartingEpochDay());
+        ConcurrentMap<Consultant, TimeCard> bucket = weeks.get(week);
+        if (bucket == null) {
+            final ConcurrentMap<Consultant, TimeCard> newBucket =
+                new ConcurrentHashMap<Consultant, TimeCard>();
+            bucket = weeks.putIfAbsent(week, newBucket);
+            if (bucket == null) {
+                bucket = newBucket;
+            }
+        }
+        final TimeCard replaced = bucket.put(timeCard.getConsultant(), timeCard);
+        if (replaced == null) {
+            size.incrementAndGet();
+        }
+        return replaced;
+    }
+
+    /**
+     * Gets the number of time cards in the index.
+     *
+     * @return the number of time cards.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Gets a snapshot of all the time cards, in week order.
+     *
+     * @return a new list of the time cards.
+     */
+    public List<TimeCard> getTimeCards() {
+        return collect(weeks);
+    }
+
+    /**
+     * Gets a snapshot of the time cards having dates within a date range, in
+     * week order.
+     *
+     * @param dateRange the date range
+     *
+     * @return a new list of the time cards.
+     */
+    public List<TimeCard> getTimeCardsForDateRange(final DateRange dateRange) {
+        final long first = dateRange.getStartEpochDay() - TimeCardListUtil.DAYS_PER_WEEK;
+        final long last = dateRange.getEndEpochDay();
+        final List<TimeCard> candidates =
+            collect(weeks.subMap(Long.valueOf(first), true, Long.valueOf(last), true));
+        final List<TimeCard> timeCards = new ArrayList<TimeCard>(candidates.size());
+        for (final TimeCard timeCard : candidates) {
+            if (TimeCardListUtil.isInRange(timeCard.getWeekStartingEpochDay(), dateRange)) {
+                timeCards.add(timeCard);
+            }
+        }
+        return timeCards;
+    }
+
+    /**
+     * Collect the time cards of a range of weeks.
+     *
+     * @param range the weeks
+     *
+     * @return a new list of the time cards.
+     */
+    private static List<TimeCard> collect(
+            final Map<Long, ConcurrentMap<Consultant, TimeCard>> range) {
+        final List<TimeCard> timeCards = new ArrayList<TimeCard>();
+        for (final ConcurrentMap<Consultant, TimeCard> bucket : range.values()) {
+            timeCards.addAll(bucket.values());
+        }
+        return timeCards;
+    }
+}
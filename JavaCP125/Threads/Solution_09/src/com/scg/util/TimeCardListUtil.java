@@ -1,10 +1,11 @@
 package com.scg.util;
 
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
 
 import com.scg.domain.Consultant;
 import com.scg.domain.TimeCard;
@@ -16,11 +17,76 @@ import com.scg.domain.TimeCard;
  */
 public final class TimeCardListUtil {
     /** Days per week. */
-    private static final int DAYS_PER_WEEK = 6;
+    static final int DAYS_PER_WEEK = 6;
 
-    /** Comparator used by his class. */
-    private static TimeCardConsultantComparator consultantComparator =
-               new TimeCardConsultantComparator();
+    /** Mask of the index in a packed sort key. */
+    private static final long INDEX_MASK = 0xFFFFFFFFL;
+
+    /** Bits to shift a rank to the high half of a packed sort key. */
+    private static final int RANK_SHIFT = 32;
+
+    /**
+     * The keys time cards may be sorted on.  Each key maps a time card to an
+     * int rank, which is packed with the card's position into a long so a
+     * sort compares primitives, and is stable, without calling compareTo.
+     */
+    public enum SortKey {
+        /** The week starting day, ascending. */
+        START_DATE {
+            @Override
+            void packKeys(final TimeCard[] timeCards, final long[] keys) {
+                for (int i = 0; i < timeCards.length; i++) {
+                    keys[i] = pack((int)timeCards[i].getWeekStartingEpochDay(), i);
+                }
+            }
+        },
+
+        /** The consultant, ascending by name. */
+        CONSULTANT {
+            @Override
+            void packKeys(final TimeCard[] timeCards, final long[] keys) {
+                // Rank the distinct consultants, equal names sharing a rank
+                final Map<Consultant, Integer> ranks = new HashMap<Consultant, Integer>();
+                for (final TimeCard timeCard : timeCards) {
+                    ranks.put(timeCard.getConsultant(), null);
+                }
+                final Consultant[] consultants =
+                    ranks.keySet().toArray(new Consultant[ranks.size()]);
+                Arrays.sort(consultants);
+                int rank = 0;
+                for (int i = 0; i < consultants.length; i++) {
+                    if (i > 0 && consultants[i].compareTo(consultants[i - 1]) != 0) {
+                        rank++;
+                    }
+                    ranks.put(consultants[i], Integer.valueOf(rank));
+                }
+                for (int i = 0; i < timeCards.length; i++) {
+                    keys[i] = pack(ranks.get(timeCards[i].getConsultant()).intValue(), i);
+                }
+            }
+        };
+
+        /**
+         * Compute the packed sort key of each time card.
+         *
+         * @param timeCards the time cards
+         * @param keys receives the packed key of each time card
+         */
+        abstract void packKeys(TimeCard[] timeCards, long[] keys);
+
+        /**
+         * Pack a rank and a position into a sort key, ordered by rank then
+         * position.
+         *
+         * @param rank the rank
+         * @param index the position
+         *
+         * @return the packed key
+         */
+        private static long pack(final int rank, final int index) {
+            return ((long)rank << RANK_SHIFT) | index;
+        }
+    }
 
     /**
      * Prevent instantiation.
@@ -29,12 +95,14 @@ public final class TimeCardListUtil {
     }
 
     /**
-     * Sorts this list into ascending order, by the start date.
+     * Sorts this list into ascending order, by the start date.  Time cards
+     * with the same start date are ordered by consultant, the TimeCard
+     * natural ordering.
      *
      * @param timeCards the list of time cards to sort
      */
     public static void sortByStartDate(final List<TimeCard> timeCards) {
-        Collections.sort(timeCards);
+        sort(timeCards, SortKey.START_DATE, SortKey.CONSULTANT);
     }
 
     /**
@@ -43,13 +111,48 @@ public final class TimeCardListUtil {
      * @param timeCards the list of time cards to sort
      */
     public static void sortByConsultantName(final List<TimeCard> timeCards) {
-        Collections.sort(timeCards, consultantComparator);
+        sort(timeCards, SortKey.CONSULTANT);
+    }
+
+    /**
+     * Sorts a list on one or more keys, the first key most significant.  The
+     * sort is stable, time cards equal on every key keep their order.  Each
+     * key is extracted once per time card and packed with the card's position
+     * into a long, the longs are sorted and the cards permuted accordingly;
+     * a pass is made per key, least significant first.
+     *
+     * @param timeCards the list of time cards to sort
+     * @param keys the sort keys
+     */
+    public static void sort(final List<TimeCard> timeCards, final SortKey... keys) {
+        if (timeCards.size() < 2 || keys.length == 0) {
+            return;
+        }
+        TimeCard[] cards = timeCards.toArray(new TimeCard[timeCards.size()]);
+        TimeCard[] sorted = new TimeCard[cards.length];
+        final long[] packed = new long[cards.length];
+        for (int k = keys.length - 1; k >= 0; k--) {
+            keys[k].packKeys(cards, packed);
+            Arrays.sort(packed);
+            for (int i = 0; i < packed.length; i++) {
+                sorted[i] = cards[(int)(packed[i] & INDEX_MASK)];
+            }
+            final TimeCard[] swap = cards;
+            cards = sorted;
+            sorted = swap;
+        }
+        final ListIterator<TimeCard> it = timeCards.listIterator();
+        for (final TimeCard timeCard : cards) {
+            it.next();
+            it.set(timeCard);
+        }
     }
 
     /**
      * Get a list of TimeCards that cover dates that fall within a date range.
      * Each time may have time entries through out one week beginning with the
-     * time card start date.
+     * time card start date.  Every time card in the list is examined, to
+     * query the same time cards repeatedly add them to a TimeCardIndex.
      *
      * @param timeCards the list of time cards to extract the sub set from
      * @param dateRange The DateRange within which the dates of the returned
@@ -62,21 +165,27 @@ public final class TimeCardListUtil {
                                      final DateRange dateRange) {
         final List<TimeCard> returnList = new ArrayList<TimeCard>();
         for (final TimeCard currentTimeCard : timeCards) {
-            // Check the first day of the week and the last
-            final Date startDate = currentTimeCard.getWeekStartingDay();
-            final Calendar cal = Calendar.getInstance();
-            cal.setTime(startDate);
-            cal.add(Calendar.DATE, DAYS_PER_WEEK);
-            final Date endDate = cal.getTime();
-
-            if (dateRange.isInRange(startDate) ||
-                dateRange.isInRange(endDate)) {
+            if (isInRange(currentTimeCard.getWeekStartingEpochDay(), dateRange)) {
                 returnList.add(currentTimeCard);
             }
         }
         return returnList;
     }
 
+    /**
+     * Determines if the week of a time card has dates within a date range.
+     *
+     * @param weekStartingEpochDay the epoch day of the time card start date
+     * @param dateRange the date range
+     *
+     * @return true if the first or last day of the week is within the range.
+     */
+    static boolean isInRange(final long weekStartingEpochDay, final DateRange dateRange) {
+        // Check the first day of the week and the last
+        return dateRange.isInRange(weekStartingEpochDay) ||
+               dateRange.isInRange(weekStartingEpochDay + DAYS_PER_WEEK);
+    }
+
     /**
      * Get a list of TimeCards for the specified consultant.
      *
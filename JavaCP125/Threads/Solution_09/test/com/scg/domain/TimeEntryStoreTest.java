@@ -0,0 +1,173 @@
+package com.scg.domain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scg.util.Address;
+import com.scg.util.Name;
+import com.scg.util.StateCode;
+
+/**
+ * JUnit test for TimeEntryStore class.
+ */
+public final class TimeEntryStoreTest {
+    /** The test year. */
+    private static final int TEST_YEAR = 2007;
+
+    /** Constant for the 4th. */
+    private static final int DAY_4 = 4;
+
+    /** Hours per entry. */
+    private static final int HOURS = 8;
+
+    /** A capacity smaller than the number of entries added. */
+    private static final int SMALL_CAPACITY = 3;
+
+    /** The number of entries added in the growth tests. */
+    private static final int ENTRY_COUNT = 100;
+
+    /** Test programmer. */
+    private Consultant programmer;
+
+    /** Test client. */
+    private ClientAccount client;
+
+    /**
+     * Set up the test fixture.
+     */
+    @Before
+    public void setUp() {
+        programmer = new Consultant(new Name("Coder", "Carl"));
+        client = new ClientAccount("Acme Industries", new Name("Coyote", "Wiley"),
+                                   new Address("1616 Index Ct.", "Redmond",
+                                               StateCode.WA, "98055"));
+    }
+
+    /**
+     * Create a date in February of the test year.
+     *
+     * @param day the day of the month
+     *
+     * @return the date.
+     */
+    private static Date date(final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(TEST_YEAR, Calendar.FEBRUARY, day, 2, 2, 0);
+        return calendar.getTime();
+    }
+
+    /**
+     * Create entries on consecutive days, alternating between the client and
+     * vacation, with the hours of each entry its position modulo HOURS.
+     *
+     * @param count the number of entries
+     *
+     * @return the entries.
+     */
+    private List<ConsultantTime> entries(final int count) {
+        final List<ConsultantTime> entries = new ArrayList<ConsultantTime>();
+        for (int i = 0; i < count; i++) {
+            final Account account = (i % 2 == 0) ? client : NonBillableAccount.VACATION;
+            entries.add(new ConsultantTime(date(DAY_4 + i), account,
+                                           Skill.SOFTWARE_ENGINEER, i % HOURS + 1));
+        }
+        return entries;
+    }
+
+    /**
+     * Assert a cursor reads entries in order.
+     *
+     * @param expected the expected entries
+     * @param cursor the cursor
+     */
+    private void assertEntries(final List<ConsultantTime> expected,
+                               final TimeEntryStore.Cursor cursor) {
+        for (final ConsultantTime consultantTime : expected) {
+            assertTrue(cursor.next());
+            assertEquals(consultantTime.getEpochDay(), cursor.getEpochDay());
+            assertEquals(consultantTime.getHours(), cursor.getHours());
+            assertSame(consultantTime.getSkill(), cursor.getSkill());
+            assertEquals(consultantTime.getAccount(), cursor.getAccount());
+            assertEquals(programmer, cursor.getConsultant());
+        }
+        assertFalse(cursor.next());
+    }
+
+    /** Test the entries added are read back by a cursor. */
+    @Test
+    public void testAdd() {
+        final TimeEntryStore store = new TimeEntryStore();
+        final List<ConsultantTime> entries = entries(SMALL_CAPACITY);
+        assertEquals(0, store.add(programmer, entries));
+        assertEquals(SMALL_CAPACITY, store.add(programmer, entries));
+        assertEquals(2 * SMALL_CAPACITY, store.size());
+        assertEquals(2, store.getAccountCount());
+        assertEntries(entries, store.cursor(SMALL_CAPACITY, 2 * SMALL_CAPACITY));
+    }
+
+    /** Test the store grows past its initial capacity, on and off heap. */
+    @Test
+    public void testGrowth() {
+        final List<ConsultantTime> entries = entries(ENTRY_COUNT);
+        for (final boolean direct : new boolean[] {false, true}) {
+            final TimeEntryStore store = new TimeEntryStore(SMALL_CAPACITY, direct);
+            for (final ConsultantTime consultantTime : entries) {
+                final List<ConsultantTime> single = new ArrayList<ConsultantTime>();
+                single.add(consultantTime);
+                store.add(programmer, single);
+            }
+            assertEquals(ENTRY_COUNT, store.size());
+            assertEntries(entries, store.cursor());
+        }
+    }
+
+    /** Test a cursor sees only the entries added before it was created. */
+    @Test
+    public void testCursorSnapshot() {
+        final TimeEntryStore store = new TimeEntryStore(SMALL_CAPACITY, false);
+        final List<ConsultantTime> entries = entries(SMALL_CAPACITY);
+        store.add(programmer, entries);
+        final TimeEntryStore.Cursor cursor = store.cursor();
+        store.add(programmer, entries(ENTRY_COUNT));
+        assertEntries(entries, cursor);
+    }
+
+    /** Test an entry without a date is rejected, and nothing is added. */
+    @Test
+    public void testAddWithoutDate() {
+        final TimeEntryStore store = new TimeEntryStore();
+        final List<ConsultantTime> entries = entries(SMALL_CAPACITY);
+        entries.add(new ConsultantTime(null, client, Skill.SOFTWARE_ENGINEER, HOURS));
+        try {
+            store.add(programmer, entries);
+        } catch (final IllegalArgumentException ex) {
+            assertEquals(0, store.size());
+            return;
+        }
+        throw new AssertionError("Entry without a date added");
+    }
+
+    /** Test a capacity of zero is rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new TimeEntryStore(0, false);
+    }
+
+    /** Test a range beyond the entries is rejected. */
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidRange() {
+        final TimeEntryStore store = new TimeEntryStore();
+        store.add(programmer, entries(SMALL_CAPACITY));
+        store.cursor(0, SMALL_CAPACITY + 1);
+    }
+}
@@ -0,0 +1,82 @@
+package com.scg.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for EpochDays class.  Zones which start or end daylight saving
+ * time at midnight are used, so that some days do not begin at midnight.
+ */
+public final class EpochDaysTest {
+    /** Zones to test, most with daylight saving transitions at midnight. */
+    private static final String[] ZONE_IDS = {
+        "America/Santiago", "America/Asuncion", "America/Havana",
+        "America/Sao_Paulo", "America/Los_Angeles", "UTC"
+    };
+
+    /** The first epoch day tested, in 1960. */
+    private static final long FIRST_EPOCH_DAY = -3653L;
+
+    /** The epoch day after the last day tested, in 2040. */
+    private static final long END_EPOCH_DAY = 25567L;
+
+    /** The test year. */
+    private static final int TEST_YEAR = 2018;
+
+    /** Constant for the 4th. */
+    private static final int DAY_4 = 4;
+
+    /** Zone to test, with midnight daylight saving transitions. */
+    private TimeZone saoPaulo;
+
+    /** Set up the test fixture. */
+    @Before
+    public void setUp() {
+        saoPaulo = TimeZone.getTimeZone("America/Sao_Paulo");
+    }
+
+    /** Test for the start of a day skipped by a midnight transition. */
+    @Test
+    public void testToMillisMidnightGap() {
+        final Calendar calendar = Calendar.getInstance(saoPaulo);
+        calendar.clear();
+        calendar.set(TEST_YEAR, Calendar.NOVEMBER, DAY_4);
+        final long millis = calendar.getTimeInMillis();
+        assertEquals(1, calendar.get(Calendar.HOUR_OF_DAY));
+
+        final long epochDay = EpochDays.fromMillis(millis, saoPaulo);
+        assertEquals(millis, EpochDays.toMillis(epochDay, saoPaulo));
+        assertEquals(epochDay, EpochDays.fromMillis(EpochDays.toMillis(epochDay, saoPaulo), saoPaulo));
+        assertEquals(epochDay - 1, EpochDays.fromMillis(millis - 1, saoPaulo));
+    }
+
+    /**
+     * Test that every day converts to an instant within the day, and that
+     * the instant before it is in the previous day.
+     */
+    @Test
+    public void testRoundTrip() {
+        for (final String id : ZONE_IDS) {
+            final TimeZone zone = TimeZone.getTimeZone(id);
+            for (long epochDay = FIRST_EPOCH_DAY; epochDay < END_EPOCH_DAY; epochDay++) {
+                final long millis = EpochDays.toMillis(epochDay, zone);
+                assertEquals(id, epochDay, EpochDays.fromMillis(millis, zone));
+                assertEquals(id, epochDay - 1, EpochDays.fromMillis(millis - 1, zone));
+            }
+        }
+    }
+
+    /** Test for days before the epoch. */
+    @Test
+    public void testBeforeEpoch() {
+        final TimeZone utc = TimeZone.getTimeZone("UTC");
+        assertEquals(-1L, EpochDays.fromMillis(-1L, utc));
+        assertEquals(-EpochDays.MILLIS_PER_DAY, EpochDays.toMillis(-1L, utc));
+        assertEquals(0L, EpochDays.fromMillis(0L, utc));
+    }
+}
@@ -0,0 +1,207 @@
+package com.scg.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit test for TextTemplate class.  Each template's output is compared with
+ * that of String.format with Locale.US.
+ */
+public final class TextTemplateTest {
+    /** The test year. */
+    private static final int TEST_YEAR = 2007;
+
+    /** Constant for the 31st. */
+    private static final int DAY_31 = 31;
+
+    /** The number of dates tested with epoch day arguments. */
+    private static final int DAYS_TESTED = 2000;
+
+    /** The days between dates tested with epoch day arguments. */
+    private static final int DAY_STEP = 37;
+
+    /** The invoice line item format. */
+    private static final String LINE_ITEM_FORMAT =
+        "%1$tm/%1$td/%1$tY  %2$-28s %3$-20s %4$5d    %5$,8.2f";
+
+    /** The invoice header format. */
+    private static final String HEADER_FORMAT =
+        "%s%n%s%n%nInvoice for:%n%s%nInvoice For Month of: %4$tB %4$tY%nInvoice Date: %5$tB %5$td, %5$tY%n%n";
+
+    /** The invoice footer format. */
+    private static final String FOOTER_FORMAT = "%n%n%n%-69s Page: %3d%n%s%n";
+
+    /** The invoice total format. */
+    private static final String TOTAL_FORMAT = "%nTotal: %60d  %,10.2f";
+
+    /** The time card header format. */
+    private static final String TIME_CARD_HEADER_FORMAT =
+        "Consultant: %-29s Week Starting: %2$tb %2$td,%2$tY\n";
+
+    /** The time card line format. */
+    private static final String TIME_CARD_LINE_FORMAT = "%-28s %2$tm/%2$td/%2$tY  %3$5d  %4$s%n";
+
+    /** The time card summary line format. */
+    private static final String SUMMARY_LINE_FORMAT = "%-39s  %5d%n";
+
+    /** December 31st of the test year. */
+    private Date december31;
+
+    /** January 1st of the year after the test year. */
+    private Date january1;
+
+    /** Set up the test fixture. */
+    @Before
+    public void setUp() {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.clear();
+        calendar.set(TEST_YEAR, Calendar.DECEMBER, DAY_31, 2, 2, 0);
+        december31 = calendar.getTime();
+        calendar.set(TEST_YEAR + 1, Calendar.JANUARY, 1, 0, 0, 0);
+        january1 = calendar.getTime();
+    }
+
+    /**
+     * Assert the template output for a format and arguments is that of
+     * String.format.
+     *
+     * @param format the format string
+     * @param args the arguments
+     */
+    private static void assertFormat(final String format, final Object... args) {
+        assertEquals(format, String.format(Locale.US, format, args),
+                     TextTemplate.compile(format).format(args));
+    }
+
+    /** Test for the invoice line item format. */
+    @Test
+    public void testLineItemFormat() {
+        assertFormat(LINE_ITEM_FORMAT, december31, "Coder, Carl", "Software Engineer", 8, 1200.0);
+        assertFormat(LINE_ITEM_FORMAT, january1, "Architect, Ann S.", "System Architect", 40, 8000.0);
+        assertFormat(LINE_ITEM_FORMAT, january1, "A Much Longer Consultant Name, First M.",
+                     "Project Manager", 12345, 1234567.5);
+    }
+
+    /** Test for the invoice header format. */
+    @Test
+    public void testHeaderFormat() {
+        assertFormat(HEADER_FORMAT, "The Small Consulting Group", "1616 Index Ct.",
+                     "Acme Industries", december31, january1);
+        assertFormat(HEADER_FORMAT, "The Small Consulting Group", "1616 Index Ct.",
+                     "Acme Industries", january1, december31);
+    }
+
+    /** Test for the invoice footer and total formats. */
+    @Test
+    public void testFooterAndTotalFormats() {
+        assertFormat(FOOTER_FORMAT, "The Small Consulting Group", 1, "=====");
+        assertFormat(FOOTER_FORMAT, "The Small Consulting Group", 1234, "=====");
+        assertFormat(TOTAL_FORMAT, 0, 0.0);
+        assertFormat(TOTAL_FORMAT, 1234, 987654.32);
+    }
+
+    /** Test for the time card formats. */
+    @Test
+    public void testTimeCardFormats() {
+        assertFormat(TIME_CARD_HEADER_FORMAT, "Coder, Carl", december31);
+        assertFormat(TIME_CARD_HEADER_FORMAT, "Coder, Carl", january1);
+        assertFormat(TIME_CARD_LINE_FORMAT, "Acme Industries", december31, 8, "Software Engineer");
+        assertFormat(TIME_CARD_LINE_FORMAT, "Acme Industries", january1, 8, "Software Engineer");
+        assertFormat(SUMMARY_LINE_FORMAT, "Total Billable:", 40);
+    }
+
+    /** Test for negative numbers. */
+    @Test
+    public void testNegativeNumbers() {
+        assertFormat("[%d] [%5d] [%-5d] [%,d]", -1, -42, -42, -1234567);
+        assertFormat("[%d] [%,d]", Integer.MIN_VALUE, Long.MIN_VALUE);
+        assertFormat("[%.2f] [%8.2f] [%-8.2f] [%,.2f]", -1.5, -1.5, -1.5, -1234567.891);
+        assertFormat("[%,8.2f]", -0.5);
+    }
+
+    /** Test for negative zero. */
+    @Test
+    public void testNegativeZero() {
+        assertFormat("[%.2f] [%f] [%.0f]", -0.0, -0.0, -0.0);
+        assertFormat("[%.2f] [%,8.2f]", -0.001, -0.004);
+        assertFormat("[%.2f]", 0.0);
+    }
+
+    /** Test for values half way between two results. */
+    @Test
+    public void testRoundingTies() {
+        assertFormat("[%.2f] [%.2f] [%.2f] [%.2f]", 0.125, 0.375, 1.005, 2.675);
+        assertFormat("[%.0f] [%.0f] [%.0f] [%.0f]", 0.5, 1.5, 2.5, -2.5);
+        assertFormat("[%.1f] [%.1f] [%.3f]", 0.05, 0.15, 1.0005);
+        assertFormat("[%,.2f] [%,.2f]", 999.995, 1234.565);
+        assertFormat("[%f] [%f]", 0.0000005, 1.0000005);
+    }
+
+    /** Test for large numbers with grouping. */
+    @Test
+    public void testLargeGroupedNumbers() {
+        assertFormat("[%,d] [%,d] [%,d]", 999, 1000, 1234567890123L);
+        assertFormat("[%,d] [%,20d]", Long.MAX_VALUE, Long.MAX_VALUE);
+        assertFormat("[%,.2f] [%,.2f]", 9876543210.987, 1.0E15);
+        assertFormat("[%,.2f] [%.2f]", 1.0E20, 1.0E20);
+        assertFormat("[%,10.2f]", 99999999.99);
+    }
+
+    /** Test for the default %f precision. */
+    @Test
+    public void testDefaultPrecision() {
+        assertFormat("[%f] [%,f] [%12f]", 1.5, 1234.5, -0.25);
+    }
+
+    /** Test for month and year boundary dates. */
+    @Test
+    public void testDecemberJanuaryDates() {
+        final String format = "%1$tm/%1$td/%1$tY %1$tb %1$tB";
+        assertFormat(format, december31);
+        assertFormat(format, january1);
+        assertFormat(format, new Date(january1.getTime() - 1));
+    }
+
+    /**
+     * Test that epoch day arguments give the output of the dates they
+     * represent, across many years and mixed with Date arguments.
+     */
+    @Test
+    public void testEpochDayDates() {
+        final String format = "%1$tm/%1$td/%1$tY %2$tb %2$td, %2$tY %1$tB";
+        final TextTemplate template = TextTemplate.compile(format);
+        final Calendar calendar = Calendar.getInstance();
+        calendar.setTime(december31);
+        for (int i = 0; i < DAYS_TESTED; i++) {
+            final Date date = calendar.getTime();
+            final Long epochDay = Long.valueOf(EpochDays.fromDate(date));
+            final String expected = String.format(Locale.US, format, date, january1);
+            assertEquals(expected, template.format(epochDay, january1));
+            calendar.add(Calendar.DATE, -DAY_STEP);
+        }
+    }
+
+    /** Test for a null date. */
+    @Test
+    public void testNullDate() {
+        assertFormat(TIME_CARD_LINE_FORMAT, "Acme Industries", null, 8, "Software Engineer");
+    }
+
+    /** Test the 0 flag is rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void testZeroFlag() {
+        TextTemplate.compile("%05d");
+    }
+
+    /** Test other unsupported flags are rejected. */
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedFlag() {
+        TextTemplate.compile("%+d");
+    }
+}
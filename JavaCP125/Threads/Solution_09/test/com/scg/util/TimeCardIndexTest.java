@@ -0,0 +1,149 @@
+package com.scg.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scg.domain.Consultant;
+import com.scg.domain.TimeCard;
+
+/**
+ * JUnit test for TimeCardIndex class.
+ */
+public final class TimeCardIndexTest {
+    /** The test year. */
+    private static final int TEST_YEAR = 2007;
+
+    /** Constant for the 4th. */
+    private static final int DAY_4 = 4;
+
+    /** Constant for the 11th. */
+    private static final int DAY_11 = 11;
+
+    /** Days per week. */
+    private static final int DAYS_PER_WEEK = 7;
+
+    /** The number of weeks in the randomized test. */
+    private static final int RANDOM_WEEK_COUNT = 260;
+
+    /** The number of consultants in the randomized test. */
+    private static final int RANDOM_CONSULTANT_COUNT = 20;
+
+    /** The number of date ranges queried in the randomized test. */
+    private static final int RANDOM_RANGE_COUNT = 500;
+
+    /** The longest date range queried in the randomized test, in days. */
+    private static final int MAX_RANGE_DAYS = 60;
+
+    /** The seed of the randomized test. */
+    private static final long RANDOM_SEED = 42L;
+
+    /** Test programmer. */
+    private Consultant programmer;
+
+    /** Test system analyst. */
+    private Consultant systemAnalyst;
+
+    /** The index under test. */
+    private TimeCardIndex index;
+
+    /** Set up the test fixture. */
+    @Before
+    public void setUp() {
+        programmer = new Consultant(new Name("Coder", "Carl"));
+        systemAnalyst = new Consultant(new Name("Architect", "Ann", "S."));
+        index = new TimeCardIndex();
+    }
+
+    /**
+     * Create a date in February of the test year.
+     *
+     * @param day the day of the month
+     *
+     * @return the date.
+     */
+    private static Date date(final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(TEST_YEAR, Calendar.FEBRUARY, day, 2, 2, 0);
+        return calendar.getTime();
+    }
+
+    /** Test adding time cards replaces a consultant's card for a week. */
+    @Test
+    public void testAdd() {
+        final TimeCard first = new TimeCard(programmer, date(DAY_4));
+        final TimeCard second = new TimeCard(programmer, date(DAY_4));
+        assertEquals(null, index.add(first));
+        assertEquals(null, index.add(new TimeCard(systemAnalyst, date(DAY_4))));
+        assertEquals(null, index.add(new TimeCard(programmer, date(DAY_11))));
+        assertSame(first, index.add(second));
+        assertEquals(3, index.size());
+        assertEquals(3, index.getTimeCards().size());
+    }
+
+    /** Test for the getTimeCardsForDateRange method. */
+    @Test
+    public void testGetTimeCardsForDateRange() {
+        final TimeCard timeCard = new TimeCard(programmer, date(DAY_11));
+        index.add(new TimeCard(programmer, date(DAY_4)));
+        index.add(timeCard);
+        final List<TimeCard> selected =
+            index.getTimeCardsForDateRange(new DateRange("02/11/2007", "02/17/2007"));
+        assertEquals(1, selected.size());
+        assertSame(timeCard, selected.get(0));
+    }
+
+    /**
+     * Test the getTimeCardsForDateRange method selects the same time cards
+     * as TimeCardListUtil.getTimeCardsForDateRange, for many ranges.
+     */
+    @Test
+    public void testGetTimeCardsForRandomDateRanges() {
+        final Random random = new Random(RANDOM_SEED);
+        final List<TimeCard> cards = new ArrayList<TimeCard>();
+        final Calendar calendar = Calendar.getInstance();
+        for (int c = 0; c < RANDOM_CONSULTANT_COUNT; c++) {
+            final Consultant consultant = new Consultant(new Name("Consultant" + c, "Carl"));
+            calendar.setTime(date(DAY_4));
+            for (int w = 0; w < RANDOM_WEEK_COUNT; w++) {
+                if (random.nextBoolean()) {
+                    final TimeCard timeCard = new TimeCard(consultant, calendar.getTime());
+                    cards.add(timeCard);
+                    index.add(timeCard);
+                }
+                calendar.add(Calendar.WEEK_OF_YEAR, 1);
+            }
+        }
+        Collections.shuffle(cards, random);
+        for (int i = 0; i < RANDOM_RANGE_COUNT; i++) {
+            calendar.setTime(date(1));
+            calendar.add(Calendar.DATE, random.nextInt(RANDOM_WEEK_COUNT * DAYS_PER_WEEK + MAX_RANGE_DAYS)
+                                        - MAX_RANGE_DAYS);
+            final Date start = calendar.getTime();
+            calendar.add(Calendar.DATE, random.nextInt(MAX_RANGE_DAYS));
+            final DateRange dateRange = new DateRange(start, calendar.getTime());
+
+            final List<TimeCard> expected = TimeCardListUtil.getTimeCardsForDateRange(cards, dateRange);
+            final List<TimeCard> actual = index.getTimeCardsForDateRange(dateRange);
+            assertEquals(expected.size(), actual.size());
+            final Set<TimeCard> actualSet =
+                Collections.newSetFromMap(new IdentityHashMap<TimeCard, Boolean>());
+            actualSet.addAll(actual);
+            for (final TimeCard timeCard : expected) {
+                assertTrue(actualSet.contains(timeCard));
+            }
+        }
+    }
+}
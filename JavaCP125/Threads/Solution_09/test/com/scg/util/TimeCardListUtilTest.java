@@ -0,0 +1,202 @@
+package com.scg.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.scg.domain.Consultant;
+import com.scg.domain.TimeCard;
+
+/**
+ * JUnit test for TimeCardListUtil class.
+ */
+public final class TimeCardListUtilTest {
+    /** The test year. */
+    private static final int TEST_YEAR = 2007;
+
+    /** Constant for the 4th. */
+    private static final int DAY_4 = 4;
+
+    /** Constant for the 11th. */
+    private static final int DAY_11 = 11;
+
+    /** Constant for the 18th. */
+    private static final int DAY_18 = 18;
+
+    /** The number of time cards in the randomized tests. */
+    private static final int RANDOM_CARD_COUNT = 20000;
+
+    /** The number of weeks in the randomized tests. */
+    private static final int RANDOM_WEEK_COUNT = 260;
+
+    /** The seed of the randomized tests. */
+    private static final long RANDOM_SEED = 42L;
+
+    /** Test programmer. */
+    private Consultant programmer;
+
+    /** Test system analyst. */
+    private Consultant systemAnalyst;
+
+    /** Test time card 1. */
+    private TimeCard timeCard1;
+
+    /** Test time card 2. */
+    private TimeCard timeCard2;
+
+    /** Test time card 3. */
+    private TimeCard timeCard3;
+
+    /** Test time cards. */
+    private ArrayList<TimeCard> timeCards;
+
+    /** Set up the test fixture. */
+    @Before
+    public void setUp() {
+        programmer = new Consultant(new Name("Coder", "Carl"));
+        systemAnalyst = new Consultant(new Name("Architect", "Ann", "S."));
+
+        timeCard1 = new TimeCard(programmer, date(DAY_4));
+        timeCard2 = new TimeCard(systemAnalyst, date(DAY_18));
+        timeCard3 = new TimeCard(programmer, date(DAY_11));
+
+        timeCards = new ArrayList<TimeCard>();
+        timeCards.add(timeCard1);
+        timeCards.add(timeCard2);
+        timeCards.add(timeCard3);
+    }
+
+    /**
+     * Create a date in February of the test year.
+     *
+     * @param day the day of the month
+     *
+     * @return the date.
+     */
+    private static Date date(final int day) {
+        final Calendar calendar = Calendar.getInstance();
+        calendar.set(TEST_YEAR, Calendar.FEBRUARY, day, 2, 2, 0);
+        return calendar.getTime();
+    }
+
+    /** Test for the sortByStartDate method. */
+    @Test
+    public void testSortByStartDate() {
+        TimeCardListUtil.sortByStartDate(timeCards);
+        assertEquals(timeCard1, timeCards.get(0));
+        assertEquals(timeCard3, timeCards.get(1));
+        assertEquals(timeCard2, timeCards.get(2));
+    }
+
+    /** Test the sortByStartDate method orders a date's time cards by consultant. */
+    @Test
+    public void testSortByStartDateThenConsultant() {
+        final TimeCard analystCard = new TimeCard(systemAnalyst, date(DAY_11));
+        timeCards.add(analystCard);
+        TimeCardListUtil.sortByStartDate(timeCards);
+        assertEquals(timeCard1, timeCards.get(0));
+        assertEquals(analystCard, timeCards.get(1));
+        assertEquals(timeCard3, timeCards.get(2));
+        assertEquals(timeCard2, timeCards.get(3));
+    }
+
+    /** Test the sortByStartDate method keeps the order of equal time cards. */
+    @Test
+    public void testSortByStartDateStable() {
+        final TimeCard duplicate = new TimeCard(programmer, date(DAY_4));
+        timeCards.add(0, duplicate);
+        TimeCardListUtil.sortByStartDate(timeCards);
+        assertSame(duplicate, timeCards.get(0));
+        assertSame(timeCard1, timeCards.get(1));
+    }
+
+    /** Test for the sortByConsultantName method. */
+    @Test
+    public void testSortByConsultantName() {
+        TimeCardListUtil.sortByConsultantName(timeCards);
+        assertEquals(timeCard2, timeCards.get(0));
+        assertEquals(timeCard1, timeCards.get(1));
+        assertEquals(timeCard3, timeCards.get(2));
+    }
+
+    /** Test the sortByConsultantName method keeps the order of each consultant's time cards. */
+    @Test
+    public void testSortByConsultantNameStable() {
+        Collections.reverse(timeCards);
+        TimeCardListUtil.sortByConsultantName(timeCards);
+        assertSame(timeCard2, timeCards.get(0));
+        assertSame(timeCard3, timeCards.get(1));
+        assertSame(timeCard1, timeCards.get(2));
+    }
+
+    /** Test the sort methods against a stable Comparator sort of many time cards. */
+    @Test
+    public void testSortRandomTimeCards() {
+        final Random random = new Random(RANDOM_SEED);
+        final Consultant[] consultants = {
+            programmer, systemAnalyst,
+            new Consultant(new Name("Coder", "Carl")),
+            new Consultant(new Name("Manager", "Mary"))
+        };
+        final List<TimeCard> cards = new ArrayList<TimeCard>();
+        final Calendar calendar = Calendar.getInstance();
+        for (int i = 0; i < RANDOM_CARD_COUNT; i++) {
+            calendar.setTime(date(DAY_4));
+            calendar.add(Calendar.WEEK_OF_YEAR, random.nextInt(RANDOM_WEEK_COUNT) - RANDOM_WEEK_COUNT / 2);
+            cards.add(new TimeCard(consultants[random.nextInt(consultants.length)], calendar.getTime()));
+        }
+
+        final List<TimeCard> byDate = new ArrayList<TimeCard>(cards);
+        TimeCardListUtil.sortByStartDate(byDate);
+        final List<TimeCard> expectedByDate = new ArrayList<TimeCard>(cards);
+        Collections.sort(expectedByDate);
+        assertSameOrder(expectedByDate, byDate);
+
+        final List<TimeCard> byConsultant = new ArrayList<TimeCard>(cards);
+        TimeCardListUtil.sortByConsultantName(byConsultant);
+        final List<TimeCard> expectedByConsultant = new ArrayList<TimeCard>(cards);
+        Collections.sort(expectedByConsultant, new TimeCardConsultantComparator());
+        assertSameOrder(expectedByConsultant, byConsultant);
+    }
+
+    /**
+     * Assert two lists hold the same time cards in the same order.
+     *
+     * @param expected the expected list
+     * @param actual the actual list
+     */
+    private static void assertSameOrder(final List<TimeCard> expected, final List<TimeCard> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSame(expected.get(i), actual.get(i));
+        }
+    }
+
+    /** Test for the getTimeCardsForDateRange method. */
+    @Test
+    public void testGetTimeCardsForDateRange() {
+        final DateRange dateRange = new DateRange("02/11/2007", "02/17/2007");
+
+        final List<TimeCard> selected = TimeCardListUtil.getTimeCardsForDateRange(timeCards, dateRange);
+
+        assertEquals(1, selected.size());
+    }
+
+    /** Test for the getTimeCardsForConsultant method. */
+    @Test
+    public void testGetTimeCardsForConsultant() {
+        final List<TimeCard> selected = TimeCardListUtil.getTimeCardsForConsultant(timeCards, programmer);
+        assertEquals(2, selected.size());
+        assertEquals(timeCard1, selected.get(0));
+        assertEquals(timeCard3, selected.get(1));
+    }
+}